@@ -19,6 +19,9 @@ import io.cosmosoftware.kite.exception.KiteTestException;
 import io.cosmosoftware.kite.interfaces.Runner;
 import io.cosmosoftware.kite.report.Status;
 import io.cosmosoftware.kite.steps.TestCheck;
+import org.webrtc.kite.stats.StatEnum;
+import org.webrtc.kite.stats.rtc.RTCStatColumns.DoubleColumn;
+import org.webrtc.kite.stats.rtc.RTCStatColumns.StreamColumns;
 import org.webrtc.kite.stats.rtc.RTCStatList;
 
 import static io.cosmosoftware.kite.entities.Timeouts.ONE_SECOND_INTERVAL;
@@ -51,8 +54,8 @@ public class BitrateCheck extends TestCheck {
     int duration = 5;
     RTCStatList stats = getPCStatOvertime(
       webDriver,"", 5 * ONE_SECOND_INTERVAL, ONE_SECOND_INTERVAL, runner.getPlatform());
-    double startingTotalByteCount = stats.get(0).getTotalBytesByMedia(direction, mediaType);
-    double endingTotalByteCount = stats.get(duration - 1).getTotalBytesByMedia(direction, mediaType);
+    double startingTotalByteCount = getTotalBytes(stats, 0);
+    double endingTotalByteCount = getTotalBytes(stats, duration - 1);
     double avgBitrate = (endingTotalByteCount - startingTotalByteCount)/duration;
     // Assuming that there's a 10% tolerance to the test result:
     reporter.textAttachment(report, "Bitrate check",
@@ -62,6 +65,25 @@ public class BitrateCheck extends TestCheck {
     }
   }
 
+  /**
+   * Gets the total bytes of the streams of the media type and direction at a sample.
+   *
+   * @param stats  the stats collected
+   * @param sample the index of the sample
+   *
+   * @return the total bytes
+   */
+  private double getTotalBytes(RTCStatList stats, int sample) {
+    double total = 0;
+    for (StreamColumns stream : stats.getColumns().getStreams(direction)) {
+      DoubleColumn bytes = stream.get(StatEnum.BYTES);
+      if (stream.getKind() != null && stream.getKind().equals(mediaType) && sample < bytes.size()) {
+        total += bytes.get(sample);
+      }
+    }
+    return total;
+  }
+
   public void setExpectedBitrate(int expectedBitrate) {
     this.expectedBitrate = expectedBitrate;
     updateReport();
@@ -0,0 +1,286 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.webrtc.kite;
+
+import io.cosmosoftware.kite.report.KiteLogger;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import org.webrtc.kite.config.test.TestConfig;
+import org.webrtc.kite.exception.KiteBadValueException;
+
+/**
+ * Launches the increments of a ramp up at a target arrival rate, in clients per second.
+ * It is an open loop: each increment is started when the profile says its clients arrive,
+ * whether the previous increments have finished their ramp up phase or not.
+ * <p>
+ * The profile is given by "rampUp" in the test config:
+ * <ul>
+ *   <li>{"profile": "rate", "rate": 2}: a constant rate;</li>
+ *   <li>{"profile": "linear", "startRate": 1, "endRate": 10, "duration": 60}: a rate going
+ *   linearly from startRate to endRate in duration seconds, then staying at endRate;</li>
+ *   <li>{"profile": "step", "steps": [{"rate": 1, "duration": 30}, {"rate": 5}]}: constant rates
+ *   for the given durations, the last one lasting until the end.</li>
+ * </ul>
+ * Without "rampUp", one increment is started every rampUpDelay ms, or all of them at once if
+ * rampUpDelay is 0. The achieved arrival rate is compared to the target once all are started.
+ * </p>
+ */
+public class ArrivalScheduler {
+
+  private static final KiteLogger logger = KiteLogger.getLogger(ArrivalScheduler.class.getName());
+
+  private final String description;
+  private final List<Segment> segments;
+  private JsonObject report = null;
+
+  private ArrivalScheduler(String description, List<Segment> segments) {
+    this.description = description;
+    this.segments = segments;
+  }
+
+  /**
+   * Creates the arrival scheduler of a load test.
+   *
+   * @param testConfig the test config
+   *
+   * @return the arrival scheduler
+   * @throws KiteBadValueException if the rampUp profile is invalid
+   */
+  public static ArrivalScheduler fromConfig(TestConfig testConfig) throws KiteBadValueException {
+    List<Segment> segments = new ArrayList<>();
+    JsonObject rampUp = testConfig.getRampUp();
+    if (rampUp == null) {
+      if (testConfig.getRampUpDelay() <= 0) {
+        return new ArrivalScheduler("all at once", segments);
+      }
+      double rate = 1000.0 * testConfig.getIncrement() / testConfig.getRampUpDelay();
+      segments.add(new Segment(rate, rate, Double.POSITIVE_INFINITY));
+      return new ArrivalScheduler("one increment every " + testConfig.getRampUpDelay() + "ms", segments);
+    }
+    String profile = rampUp.getString("profile", "rate");
+    switch (profile) {
+      case "rate": {
+        double rate = getNumber(rampUp, "rate");
+        segments.add(new Segment(rate, rate, Double.POSITIVE_INFINITY));
+        break;
+      }
+      case "linear": {
+        double startRate = getNumber(rampUp, "startRate");
+        double endRate = getNumber(rampUp, "endRate");
+        segments.add(new Segment(startRate, endRate, getNumber(rampUp, "duration")));
+        segments.add(new Segment(endRate, endRate, Double.POSITIVE_INFINITY));
+        break;
+      }
+      case "step": {
+        JsonArray steps = rampUp.getJsonArray("steps");
+        if (steps == null || steps.isEmpty()) {
+          throw new KiteBadValueException("rampUp.steps");
+        }
+        for (int index = 0; index < steps.size(); index++) {
+          JsonObject step = steps.getJsonObject(index);
+          double rate = getNumber(step, "rate");
+          double duration = index == steps.size() - 1 ? Double.POSITIVE_INFINITY : getNumber(step, "duration");
+          segments.add(new Segment(rate, rate, duration));
+        }
+        break;
+      }
+      default:
+        throw new KiteBadValueException("rampUp.profile");
+    }
+    if (segments.get(segments.size() - 1).startRate <= 0) {
+      // the last clients would never arrive
+      throw new KiteBadValueException("rampUp." + (profile.equals("linear") ? "endRate" : "rate"));
+    }
+    return new ArrivalScheduler(profile + " " + rampUp, segments);
+  }
+
+  private static double getNumber(JsonObject jsonObject, String key) throws KiteBadValueException {
+    JsonNumber number = jsonObject.getJsonNumber(key);
+    if (number == null || number.doubleValue() < 0) {
+      throw new KiteBadValueException("rampUp." + key);
+    }
+    return number.doubleValue();
+  }
+
+  /**
+   * Gets the time at which a number of clients have arrived since the start of the ramp up.
+   *
+   * @param clients the number of clients
+   *
+   * @return the time in ms
+   */
+  public long getArrivalTime(int clients) {
+    double start = 0;
+    double remaining = clients;
+    for (Segment segment : segments) {
+      if (remaining <= 0) {
+        break;
+      }
+      double arrivals = segment.getArrivals(segment.duration);
+      if (remaining <= arrivals) {
+        return Math.round(1000 * (start + segment.getTime(remaining)));
+      }
+      remaining -= arrivals;
+      start += segment.duration;
+    }
+    return Math.round(1000 * start);
+  }
+
+  /**
+   * Starts each test run thread at the arrival time of its clients, then waits for all of them.
+   *
+   * @param testRunThreads the test run threads, one per increment
+   *
+   * @return the futures of the test run threads, in the same order
+   * @throws InterruptedException if interrupted, the test run threads are then cancelled
+   */
+  public List<Future<List<Future<Object>>>> run(List<TestRunThread> testRunThreads)
+    throws InterruptedException {
+    List<Future<List<Future<Object>>>> futures = new ArrayList<>();
+    JsonArrayBuilder increments = Json.createArrayBuilder();
+    int clients = 0;
+    long maxLag = 0;
+    long totalLag = 0;
+    long lastTarget = 0;
+    long lastActual = 0;
+    long start = System.currentTimeMillis();
+    try {
+      for (TestRunThread testRunThread : testRunThreads) {
+        long target = getArrivalTime(clients);
+        long wait = start + target - System.currentTimeMillis();
+        if (wait > 0) {
+          Thread.sleep(wait);
+        }
+        long actual = System.currentTimeMillis() - start;
+        futures.add(KiteScheduler.getInstance().submit(testRunThread));
+        increments.add(Json.createObjectBuilder()
+          .add("clients", testRunThread.getClientCount())
+          .add("targetTime", target)
+          .add("actualTime", actual));
+        maxLag = Math.max(maxLag, actual - target);
+        totalLag += actual - target;
+        lastTarget = target;
+        lastActual = actual;
+        clients += testRunThread.getClientCount();
+      }
+      for (Future<List<Future<Object>>> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          // reported by the test run thread
+        }
+      }
+    } catch (InterruptedException e) {
+      for (Future<List<Future<Object>>> future : futures) {
+        future.cancel(true);
+      }
+      throw e;
+    }
+    // the rate at which the clients before the last increment arrived
+    int arrived = testRunThreads.isEmpty() ? 0 : clients - testRunThreads.get(testRunThreads.size() - 1).getClientCount();
+    JsonObjectBuilder builder = Json.createObjectBuilder()
+      .add("profile", description)
+      .add("clients", clients)
+      .add("maxLag", maxLag)
+      .add("meanLag", testRunThreads.isEmpty() ? 0 : totalLag / testRunThreads.size());
+    if (lastTarget > 0) {
+      builder.add("targetRate", 1000.0 * arrived / lastTarget);
+    }
+    if (lastActual > 0) {
+      builder.add("achievedRate", 1000.0 * arrived / lastActual);
+    }
+    this.report = builder.add("increments", increments).build();
+    logger.info("Ramp up (" + description + "): " + clients + " clients in " + testRunThreads.size()
+      + " increments, target rate " + (lastTarget > 0 ? String.format("%.2f", 1000.0 * arrived / lastTarget) : "-")
+      + " clients/s, achieved " + (lastActual > 0 ? String.format("%.2f", 1000.0 * arrived / lastActual) : "-")
+      + " clients/s, max lag " + maxLag + "ms");
+    return futures;
+  }
+
+  /**
+   * Gets the target and achieved arrivals of the last run.
+   *
+   * @return the report, null if not run yet
+   */
+  public JsonObject getReport() {
+    return report;
+  }
+
+  /**
+   * Writes the report of the last run to a file.
+   *
+   * @param file the file
+   *
+   * @throws IOException if the file cannot be written
+   */
+  public void writeReport(File file) throws IOException {
+    if (report == null) {
+      return;
+    }
+    if (file.getParentFile() != null) {
+      file.getParentFile().mkdirs();
+    }
+    Files.write(file.toPath(), report.toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  /**
+   * A period during which the arrival rate goes linearly from startRate to endRate.
+   */
+  private static class Segment {
+    private final double startRate;
+    private final double duration;
+    private final double slope;
+
+    private Segment(double startRate, double endRate, double duration) {
+      this.startRate = startRate;
+      this.duration = duration;
+      this.slope = Double.isInfinite(duration) || duration <= 0 ? 0 : (endRate - startRate) / duration;
+    }
+
+    /**
+     * @return the number of clients arriving in the first time seconds of the segment
+     */
+    private double getArrivals(double time) {
+      if (startRate == 0 && slope == 0) {
+        return 0;
+      }
+      return startRate * time + slope * time * time / 2;
+    }
+
+    /**
+     * @return the time in seconds at which clients have arrived since the start of the segment
+     */
+    private double getTime(double clients) {
+      if (slope == 0) {
+        return clients / startRate;
+      }
+      return (Math.sqrt(startRate * startRate + 2 * slope * clients) - startRate) / slope;
+    }
+  }
+}
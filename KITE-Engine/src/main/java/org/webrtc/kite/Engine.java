@@ -16,29 +16,33 @@
 
 package org.webrtc.kite;
 
-import static io.cosmosoftware.kite.entities.Timeouts.ONE_SECOND_INTERVAL;
-import static io.cosmosoftware.kite.util.TestUtils.waitAround;
-import static org.webrtc.kite.Utils.shutdown;
-
 import io.cosmosoftware.kite.instrumentation.NetworkProfile;
-import io.cosmosoftware.kite.util.CircularLinkedList;
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import javax.json.JsonException;
+import javax.json.JsonValue;
 
 import io.cosmosoftware.kite.util.ReportUtils;
 import org.webrtc.kite.config.Configurator;
+import org.webrtc.kite.config.LazyTupleList;
 import org.webrtc.kite.config.client.Client;
 import org.webrtc.kite.config.paas.Paas;
+import org.webrtc.kite.config.paas.PaasPlacement;
 import org.webrtc.kite.config.test.TestConfig;
 import org.webrtc.kite.config.test.Tuple;
 import org.webrtc.kite.exception.KiteBadValueException;
@@ -54,8 +58,14 @@ public class Engine {
 
   /** The run thread. */
 //  public static TestRunThread runThread;
-  public static List<TestRunThread> testRunThreads = new ArrayList<>();
+  public static List<TestRunThread> testRunThreads = new CopyOnWriteArrayList<>();
   private static final int IDEAL_TUPLE_SIZE = 20;
+  private static final String CONCURRENT_OPTION = "--concurrent";
+  private static final String WORKER_OPTION = "--worker";
+  private static final String RESUME_OPTION = "--resume";
+
+  /** Whether the completed tuples of the checkpoint journals are skipped. */
+  private static boolean resume = false;
 
   static {
     SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HHmmss");
@@ -113,9 +123,13 @@ public class Engine {
    * @param tupleList the tuple list
    */
   public static void distributeRemote(List<Paas> paasList, List<Tuple> tupleList) {
-    CircularLinkedList<Paas> linkedList = new CircularLinkedList(paasList);
+    if (tupleList instanceof LazyTupleList) {
+      // the tuples are only created when they are run
+      ((LazyTupleList) tupleList).setInitializer(tuple -> distributeRemote(paasList, tuple));
+      return;
+    }
     for (Tuple tuple : tupleList) {
-      distributeRemote(linkedList, tuple);
+      distributeRemote(paasList, tuple);
     }
   }
 
@@ -126,13 +140,12 @@ public class Engine {
    * @param paasList the list of available paas
    * @param tuple the tuple
    */
-  public static void distributeRemote(CircularLinkedList<Paas> paasList, Tuple tuple) {
-    // setting remote hub address to client, using circular linked list
-    // each tuple will be prioritised to be in the same hub
+  public static void distributeRemote(List<Paas> paasList, Tuple tuple) {
+    // setting remote hub address to client, on the least loaded paas
     // need to handle mobile == null
     for (Client client : tuple.getClients()) {
       if (client.getPaas() == null) {
-        Paas paas = paasList.get();
+        Paas paas = PaasPlacement.getInstance().choose(getPaasWithProfile(paasList, client));
         logger.debug("Assigning client to: " + paas.toString());
         client.setPaas(paas);
       }
@@ -142,7 +155,9 @@ public class Engine {
   /**
    * main method.
    *
-   * @param args relative or absolute path of the configuration file.
+   * @param args relative or absolute path of the configuration file, --concurrent to run
+   *             the configuration files at the same time, --resume to skip the tuples completed
+   *             by the previous run.
    */
   public static void main(String[] args) {
     if (args.length < 1) {
@@ -150,60 +165,383 @@ public class Engine {
       return;
     }
 
-    for (String configFile : getConfigfilesFromParameters(args)) {
+    if (args[0].equals(WORKER_OPTION)) {
+      startWorker(args.length > 1 ? args[1] : null);
+      return;
+    }
+
+    resume = Arrays.asList(args).contains(RESUME_OPTION);
+    List<String> configFiles = getConfigfilesFromParameters(args);
+    if (!Arrays.asList(args).contains(CONCURRENT_OPTION) || configFiles.size() < 2) {
+      for (String configFile : configFiles) {
+        Configurator configurator = new Configurator();
+        buildConfig(configurator, configFile);
+        MetricsServer metricsServer = startMetricsServer(configurator.getMetricsPort());
+        applySchedulerSettings(Collections.singletonList(configurator));
+        runConfig(configurator);
+        WebDriverPool.getInstance().shutdown();
+        if (metricsServer != null) {
+          metricsServer.stop();
+        }
+      }
+      return;
+    }
+
+    List<Configurator> configurators = new ArrayList<>();
+    int metricsPort = 0;
+    for (String configFile : configFiles) {
       Configurator configurator = new Configurator();
       buildConfig(configurator, configFile);
+      configurators.add(configurator);
+      metricsPort = metricsPort > 0 ? metricsPort : configurator.getMetricsPort();
+    }
+    MetricsServer metricsServer = startMetricsServer(metricsPort);
+    applySchedulerSettings(configurators);
+    List<Callable<Object>> configRuns = new ArrayList<>();
+    for (Configurator configurator : configurators) {
+      configRuns.add(() -> {
+        runConfig(configurator);
+        return null;
+      });
+    }
+    logger.info("Running " + configurators.size() + " configuration files concurrently");
+    try {
+      KiteScheduler.getInstance().invokeAll(configRuns, 0);
+    } catch (InterruptedException e) {
+      stopRunThreads();
+      Thread.currentThread().interrupt();
+    } finally {
+      WebDriverPool.getInstance().shutdown();
+      if (metricsServer != null) {
+        metricsServer.stop();
+      }
+    }
+  }
 
-      for (TestConfig testConfig : configurator.getConfigHandler().getTestList()) {
-        List<Tuple> tupleList = new ArrayList<>();
-        testConfig.setPathToConfigFile(configurator.getConfigFilePath());
-        testConfig.setReportPath(configurator.getReportPath());
-        ExecutorService service = Executors.newSingleThreadExecutor();
-        try {
-          if (testConfig.isLoadTest()) {
-            testConfig.setIncrement(testConfig.getTupleSize());
-            for (Client client : configurator.getConfigHandler().getClientList()) {
-              client.setCount(testConfig.getTupleSize());
-            }
-            List<Future<List<Future<Object>>>> ramUpResults = runRampUp(service, configurator.getName() ,testConfig,
-                configurator.getRemoteList(), configurator.getConfigHandler().getClientList());
-            List<List<TestManager>> secondPhase = processRamUpResults(ramUpResults);
-            runLoadReached(service, configurator.getName(), secondPhase);
-          } else {
-            List<List<Integer>> matrix = configurator.getMatrix();
-            if (matrix != null && !matrix.isEmpty()) {
-              for (List<Integer> indexList : matrix) {
-                Tuple tuple = new Tuple();
-                for (int index : indexList) {
-                  tuple.add(configurator.getConfigHandler().getClientList().get(index));
-                }
-                tupleList.add(tuple);
-              }
-            } else {
-              tupleList = configurator.buildTuples(testConfig.getTupleSize(), testConfig.isPermute(),
-                  testConfig.isRegression());
+  /**
+   * Starts a worker engine, running the shards of tuples sent by a coordinator engine until the
+   * process is stopped.
+   *
+   * @param address the port to listen to on localhost, or host:port
+   */
+  private static void startWorker(String address) {
+    if (address == null) {
+      logger.error("Error [Missing Argument]: Use java -jar KITE.jar --worker <[host:]port>");
+      return;
+    }
+    try {
+      WorkerServer workerServer = new WorkerServer(WorkerServer.parseAddress(address));
+      workerServer.start();
+      Runtime.getRuntime().addShutdownHook(new Thread(workerServer::stop));
+      Runtime.getRuntime().addShutdownHook(new Thread(WebDriverPool.getInstance()::shutdown));
+    } catch (IOException | IllegalArgumentException e) {
+      logger.fatal("Error [Worker]: could not listen to " + address + ": " + e.getLocalizedMessage(), e);
+    }
+  }
+
+  /**
+   * Applies the scheduler and placement settings of the configurations run together. The
+   * concurrency limits are engine-wide, so the strictest ones apply to all of them.
+   *
+   * @param configurators the configurators
+   */
+  static void applySchedulerSettings(List<Configurator> configurators) {
+    int maxConcurrency = 0;
+    int maxConcurrencyPerPaas = 0;
+    boolean virtualThreads = false;
+    int sessionPoolMaxUses = 0;
+    int sessionPoolIdleTimeout = 0;
+    int sessionLookAhead = 0;
+    for (Configurator configurator : configurators) {
+      maxConcurrency = strictest(maxConcurrency, configurator.getMaxConcurrency());
+      maxConcurrencyPerPaas = strictest(maxConcurrencyPerPaas, configurator.getMaxConcurrencyPerPaas());
+      virtualThreads |= configurator.isVirtualThreads();
+      sessionPoolMaxUses = strictest(sessionPoolMaxUses, configurator.getSessionPoolMaxUses());
+      sessionPoolIdleTimeout = strictest(sessionPoolIdleTimeout, configurator.getSessionPoolIdleTimeout());
+      sessionLookAhead = strictest(sessionLookAhead, configurator.getSessionLookAhead());
+    }
+    KiteScheduler.getInstance().setMaxConcurrency(maxConcurrency);
+    KiteScheduler.getInstance().setMaxConcurrencyPerPaas(maxConcurrencyPerPaas);
+    KiteScheduler.getInstance().setVirtualThreads(virtualThreads);
+    PaasPlacement.getInstance().setStrategy(configurators.get(0).getPlacement());
+    WebDriverPool.getInstance().configure(sessionPoolMaxUses, sessionPoolIdleTimeout, sessionLookAhead);
+  }
+
+  private static int strictest(int limit, int other) {
+    return limit <= 0 ? other : other <= 0 ? limit : Math.min(limit, other);
+  }
+
+  /**
+   * Runs the tests of a configuration, one after the other, or at the same time if concurrentTests
+   * is set, each of them on its share of the paas.
+   *
+   * @param configurator the configurator
+   */
+  public static void runConfig(Configurator configurator) {
+    RunJournal journal = null;
+    try {
+      journal = new RunJournal(RunJournal.getFile(configurator.getReportPath(), configurator.getConfigFilePath()), resume);
+    } catch (IOException e) {
+      logger.error("Could not open the checkpoint journal, the run cannot be resumed: " + e.getLocalizedMessage());
+    }
+    try {
+      runTests(configurator, journal);
+    } finally {
+      if (journal != null) {
+        journal.close();
+      }
+    }
+  }
+
+  private static void runTests(Configurator configurator, RunJournal journal) {
+    List<TestConfig> testList = configurator.getConfigHandler().getTestList();
+    if (!configurator.isConcurrentTests() || testList.size() < 2) {
+      for (TestConfig testConfig : testList) {
+        runTest(configurator, testConfig, configurator.getRemoteList(), configurator.getReportPath(), journal);
+      }
+      return;
+    }
+
+    List<List<Paas>> partitions = partitionPaas(configurator.getRemoteList(), testList);
+    List<Callable<Object>> testRuns = new ArrayList<>();
+    for (int index = 0; index < testList.size(); index++) {
+      TestConfig testConfig = testList.get(index);
+      List<Paas> paasList = partitions.get(index);
+      String reportPath = getTestReportPath(configurator.getReportPath(), testConfig);
+      testRuns.add(() -> {
+        runTest(configurator, testConfig, paasList, reportPath, journal);
+        return null;
+      });
+    }
+    logger.info("Running " + testList.size() + " tests of " + configurator.getName() + " concurrently");
+    try {
+      KiteScheduler.getInstance().invokeAll(testRuns, 0);
+    } catch (InterruptedException e) {
+      stopRunThreads();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Runs a test on the given paas.
+   *
+   * @param configurator the configurator
+   * @param testConfig the test config
+   * @param paasList the paas the clients of the test can be assigned to
+   * @param reportPath the report folder of the test
+   * @param journal the checkpoint journal of the interop tests, null if none
+   */
+  private static void runTest(Configurator configurator, TestConfig testConfig, List<Paas> paasList,
+      String reportPath, RunJournal journal) {
+    List<Tuple> tupleList = new ArrayList<>();
+    testConfig.setPathToConfigFile(configurator.getConfigFilePath());
+    testConfig.setReportPath(reportPath);
+    KiteMetrics.getInstance().addFleetStats(configurator.getName(), testConfig);
+    ExecutorService service = Executors.newSingleThreadExecutor();
+    try {
+      if (testConfig.isLoadTest()) {
+        testConfig.setIncrement(testConfig.getTupleSize());
+        // the clients are shared by the tests of the config, which may be running at the same time
+        List<Client> clients = new ArrayList<>();
+        for (Client client : configurator.getConfigHandler().getClientList()) {
+          Client copy = new Client(client);
+          copy.setCount(testConfig.getTupleSize());
+          clients.add(copy);
+        }
+        List<Future<List<Future<Object>>>> ramUpResults = runRampUp(service, configurator.getName() ,testConfig,
+            paasList, clients);
+        List<List<TestManager>> secondPhase = processRamUpResults(ramUpResults);
+        runLoadReached(service, configurator.getName(), secondPhase);
+      } else {
+        List<List<Integer>> matrix = configurator.getMatrix();
+        if (matrix != null && !matrix.isEmpty()) {
+          for (List<Integer> indexList : matrix) {
+            Tuple tuple = new Tuple();
+            for (int index : indexList) {
+              tuple.add(configurator.getConfigHandler().getClientList().get(index));
             }
-            distributeRemote(configurator, tupleList);
-            List<Future<Object>> interopResult = runInterop(service, configurator.getName(), testConfig, tupleList);
+            tupleList.add(tuple);
           }
+        } else {
+          tupleList = configurator.buildTuples(testConfig.getTupleSize(), testConfig.isPermute(),
+              testConfig.isRegression());
+        }
+        if (journal != null) {
+          tupleList = journal.skipCompleted(testConfig.getName(), tupleList);
+        }
+        List<int[]> tupleIndexes = getTupleIndexes(configurator, tupleList);
+        if (!configurator.getWorkers().isEmpty() && tupleIndexes != null) {
+          runOnWorkers(configurator, testConfig, tupleIndexes, journal);
+        } else {
+          distributeRemote(paasList, tupleList);
+          List<Future<Object>> interopResult = runInterop(service, configurator.getName(), testConfig, tupleList,
+              paasList, journal);
+        }
+      }
 
-          if(testConfig.getCallbackUrl() != null) {
-            upload(testConfig.getReporter().getReportPath() + "../" + testConfig.getName() + "-allure." + System.currentTimeMillis() + ".zip",
-                    testConfig.getReporter().getReportPath(), testConfig.getCallbackUrl(), testConfig.getCallbackPort(), testConfig.getCallbackUsername(), testConfig.getCallbackPassword());
-          }
+      if(testConfig.getCallbackUrl() != null) {
+        upload(testConfig.getReporter().getReportPath() + "../" + testConfig.getName() + "-allure." + System.currentTimeMillis() + ".zip",
+                testConfig.getReporter().getReportPath(), testConfig.getCallbackUrl(), testConfig.getCallbackPort(), testConfig.getCallbackUsername(), testConfig.getCallbackPassword());
+      }
+
+    } catch (Exception e) {
+      e.printStackTrace();
+    } finally {
+      service.shutdown();
+      testRunThreads.removeIf(thread -> thread.getTestConfig() == testConfig);
+      KiteMetrics.getInstance().removeFleetStats(testConfig);
+    }
+  }
+
+  /**
+   * Runs the tuples of an interop test on the worker engines of the config, and writes their merged
+   * results to distributed.json in the report folder of the test.
+   *
+   * @param configurator the configurator
+   * @param testConfig the test config
+   * @param tupleIndexes the indexes of the clients of each tuple
+   * @param journal the checkpoint journal the completed tuples are appended to, null if none
+   * @throws InterruptedException if interrupted while waiting for the workers
+   */
+  private static void runOnWorkers(Configurator configurator, TestConfig testConfig, List<int[]> tupleIndexes,
+      RunJournal journal) throws InterruptedException {
+    List<TestConfig> testList = configurator.getConfigHandler().getTestList();
+    int testIndex = 0;
+    while (testList.get(testIndex) != testConfig) {
+      testIndex++;
+    }
+    ShardCoordinator coordinator = new ShardCoordinator(configurator.getWorkers());
+    List<JsonValue> results = coordinator.run(configurator.getConfigFilePath(), testConfig.getName(), testIndex,
+        testConfig.getReporter().getReportPath(), tupleIndexes);
+    for (int index = 0; journal != null && index < results.size(); index++) {
+      if (results.get(index) != null) {
+        List<Integer> tuple = new ArrayList<>();
+        for (int clientIndex : tupleIndexes.get(index)) {
+          tuple.add(clientIndex);
+        }
+        journal.record(testConfig.getName(), tuple);
+      }
+    }
+    try {
+      coordinator.writeReport(new File(testConfig.getReporter().getReportPath(), "distributed.json"));
+    } catch (IOException e) {
+      logger.error("Could not write the results of the workers: " + e.getLocalizedMessage());
+    }
+  }
+
+  /**
+   * Gets the indexes of the clients of each tuple in the client list, to send them to the workers.
+   *
+   * @param configurator the configurator
+   * @param tupleList the tuple list
+   * @return the indexes, null if the tuples are not made of the clients of the config
+   */
+  private static List<int[]> getTupleIndexes(Configurator configurator, List<Tuple> tupleList) {
+    List<int[]> tupleIndexes = new ArrayList<>();
+    if (tupleList instanceof LazyTupleList) {
+      for (int index = 0; index < tupleList.size(); index++) {
+        tupleIndexes.add(((LazyTupleList) tupleList).getIndexes(index));
+      }
+      return tupleIndexes;
+    }
+    List<List<Integer>> matrix = configurator.getMatrix();
+    if (matrix == null || matrix.isEmpty()) {
+      // e.g. the placeholder tuple of a regression test
+      return null;
+    }
+    for (Tuple tuple : tupleList) {
+      List<Integer> indexList = tuple.getMatrix();
+      int[] indexes = new int[indexList.size()];
+      for (int index = 0; index < indexes.length; index++) {
+        indexes[index] = indexList.get(index);
+      }
+      tupleIndexes.add(indexes);
+    }
+    return tupleIndexes;
+  }
 
-        } catch (Exception e) {
-          e.printStackTrace();
-        } finally {
-          service.shutdown();
+  /**
+   * Splits the paas between tests running at the same time, in proportion to the weight of each
+   * test: each paas, from the largest, is given to the test with the fewest available slots for its
+   * weight. With fewer paas than tests, all the tests share all the paas, and the clients are
+   * placed on the least loaded ones.
+   *
+   * @param paasList the list of available paas
+   * @param testList the tests
+   * @return the paas of each test, in the same order as the tests
+   */
+  public static List<List<Paas>> partitionPaas(List<Paas> paasList, List<TestConfig> testList) {
+    List<List<Paas>> partitions = new ArrayList<>();
+    if (paasList.size() < testList.size()) {
+      for (int index = 0; index < testList.size(); index++) {
+        partitions.add(paasList);
+      }
+      return partitions;
+    }
+    double[] slots = new double[testList.size()];
+    for (int index = 0; index < testList.size(); index++) {
+      partitions.add(new ArrayList<>());
+    }
+    List<Paas> sorted = new ArrayList<>(paasList);
+    sorted.sort((first, second) -> Integer.compare(second.getAvailableSlots(), first.getAvailableSlots()));
+    for (Paas paas : sorted) {
+      int chosen = 0;
+      for (int index = 1; index < testList.size(); index++) {
+        if (slots[index] / testList.get(index).getWeight() < slots[chosen] / testList.get(chosen).getWeight()) {
+          chosen = index;
         }
       }
+      slots[chosen] += Math.max(1, paas.getAvailableSlots());
+      partitions.get(chosen).add(paas);
+    }
+    for (int index = 0; index < testList.size(); index++) {
+      logger.info(testList.get(index).getName() + " runs on " + partitions.get(index).size() + " paas ("
+          + (int) slots[index] + " slots)");
+    }
+    return partitions;
+  }
+
+  /**
+   * Gets the report folder of a test running at the same time as others, a sub folder named
+   * after the test, so that the tests do not write into each other's report.
+   *
+   * @param reportPath the report folder of the config
+   * @param testConfig the test config
+   * @return the report folder of the test
+   */
+  private static String getTestReportPath(String reportPath, TestConfig testConfig) {
+    if (reportPath == null || reportPath.isEmpty()) {
+      return reportPath;
+    }
+    return reportPath + (reportPath.endsWith("/") ? "" : "/") + testConfig.getName().replaceAll("[^\\w.-]", "_") + "/";
+  }
+
+  /**
+   * Starts the live metrics endpoint on localhost.
+   *
+   * @param port the port, 0 to not start it
+   * @return the metrics server, null if not started
+   */
+  private static MetricsServer startMetricsServer(int port) {
+    if (port <= 0) {
+      return null;
+    }
+    MetricsServer metricsServer = new MetricsServer(port);
+    try {
+      metricsServer.start();
+      return metricsServer;
+    } catch (IOException e) {
+      logger.error("Could not start the metrics endpoint on port " + port + ": " + e.getLocalizedMessage());
+      return null;
     }
   }
 
   private static List<String> getConfigfilesFromParameters(String[] args) {
     List<String> configFiles = new ArrayList<>();
     for (String arg : args) {
+      if (arg.startsWith("--")) {
+        continue;
+      }
       configFiles.addAll(getJsonFiles(new File(arg)));
     }
     return configFiles;
@@ -253,8 +591,30 @@ public class Engine {
   public static List<Future<Object>> runInterop(ExecutorService service, String testSuiteName,
       TestConfig testConfig, List<Tuple> tupleList)
       throws ExecutionException, InterruptedException {
+    return runInterop(service, testSuiteName, testConfig, tupleList, null, null);
+  }
+
+  /**
+   * Run interop, retrying the tuples on the given paas and appending each completed tuple to a
+   * checkpoint journal.
+   *
+   * @param service the service
+   * @param testSuiteName the test suite name
+   * @param testConfig the test config
+   * @param tupleList the tuple list
+   * @param paasList the paas the tuples to retry are placed on, null to retry them on the same paas
+   * @param journal the checkpoint journal, null if none
+   * @return the list
+   * @throws ExecutionException the execution exception
+   * @throws InterruptedException the interrupted exception
+   */
+  public static List<Future<Object>> runInterop(ExecutorService service, String testSuiteName,
+      TestConfig testConfig, List<Tuple> tupleList, List<Paas> paasList, RunJournal journal)
+      throws ExecutionException, InterruptedException {
     TestRunThread runThread = new TestRunThread(testConfig, tupleList);
     runThread.setName(testSuiteName);
+    runThread.setPaasList(paasList);
+    runThread.setJournal(journal);
     testRunThreads.add(runThread);
     List<Future<Object>> runResults = service.submit(runThread).get();
     runThread = null;
@@ -299,37 +659,39 @@ public class Engine {
 
   public static List<Future<List<Future<Object>>>> runLoadReached(ExecutorService executorService, String testSuiteName, List<List<TestManager>> secondPhaseTestManagerList)
       throws InterruptedException {
-//    List<TestRunThread> testRunThreads = new ArrayList<>();
-    testRunThreads.clear();
+    if (secondPhaseTestManagerList.isEmpty()) {
+      return new ArrayList<>();
+    }
+    TestConfig testConfig = secondPhaseTestManagerList.get(0).get(0).getTestConfig();
+    PhaseCoordinator phaseCoordinator = new PhaseCoordinator(testConfig, secondPhaseTestManagerList.size(),
+        testConfig.getPhaseTimeout(), TimeUnit.MINUTES);
+    List<TestRunThread> runThreads = new ArrayList<>();
     for (int index = 0 ; index < secondPhaseTestManagerList.size(); index ++) {
       TestRunThread testRunThread = new TestRunThread(testSuiteName, secondPhaseTestManagerList.get(index));
-      if (index == secondPhaseTestManagerList.size() - 1) {
-        testRunThread.setLastThread(true);
-      }
-      testRunThreads.add(testRunThread);
+      testRunThread.setPhaseCoordinator(phaseCoordinator);
+      runThreads.add(testRunThread);
     }
-    executorService = Executors.newFixedThreadPool(secondPhaseTestManagerList.size());
-    List<Future<List<Future<Object>>>> res =  executorService.invokeAll(testRunThreads);
-    shutdown(executorService);
-    return res;
+    testRunThreads.addAll(runThreads);
+    return KiteScheduler.getInstance().invokeAll(runThreads, runThreads.size());
   }
 
   public static List<Future<List<Future<Object>>>> runRampUp(ExecutorService executorService, String testSuiteName, TestConfig testConfig, List<Paas> paasList, List<Client> clients) throws KiteGridException, InterruptedException {
     if (paasList.size() < 1) {
       throw new KiteGridException("Looks like the grid is not up, no hub IP or DNS was provided.");
     }
+    ArrivalScheduler arrivalScheduler = ArrivalScheduler.fromConfig(testConfig);
     testConfig.setNoOfThreads(paasList.size());
-    testRunThreads.clear();
+    List<TestRunThread> runThreads = new ArrayList<>();
 
     for (Client client : clients) {
-      CircularLinkedList<Paas> paasWithProfile = getPaasWithProfile(paasList, client);
+      List<Paas> paasWithProfile = getPaasWithProfile(paasList, client);
       int increment = testConfig.getIncrement();
       int numberOfIteration = (int) Math.floor(client.getCount()/increment);
       int leftOver = client.getCount() - increment*numberOfIteration;
       logger.info("SUMMARY----------------------------------------------------");
       logger.info("Current client is: " + client.toString());
       logger.info("Increment: "  + increment);
-      logger.info("The client will be distributed evenly into every grids in round-robin fashion");
+      logger.info("The client will be distributed into the grids in proportion to their available slots");
       logger.info("END OF SUMMARY---------------------------------------------");
       for (int iterationCount = 0; iterationCount < numberOfIteration; iterationCount ++) {
         List<Tuple> tupleList = new ArrayList<>();
@@ -338,7 +700,7 @@ public class Engine {
         } else {
           Tuple tuple = new Tuple();
           for (int count = 0; count < increment; count ++) {
-            client.setPaas(paasWithProfile.get());
+            client.setPaas(PaasPlacement.getInstance().choose(paasWithProfile));
             tuple.add(client);
           }
           tupleList.add(tuple);
@@ -347,7 +709,7 @@ public class Engine {
         TestRunThread runThread = new TestRunThread(testConfig, tupleList);
         runThread.setName(testSuiteName);
         runThread.setCurrentIteration(iterationCount*increment);
-        testRunThreads.add(runThread);
+        runThreads.add(runThread);
       }
 
       if (leftOver > 0) {
@@ -357,7 +719,7 @@ public class Engine {
         } else {
           Tuple tuple = new Tuple();
           for (int count = 0; count < leftOver; count ++) {
-            client.setPaas(paasWithProfile.get());
+            client.setPaas(PaasPlacement.getInstance().choose(paasWithProfile));
             tuple.add(client);
           }
           tupleList.add(tuple);
@@ -366,41 +728,20 @@ public class Engine {
         TestRunThread runThread = new TestRunThread(testConfig, tupleList);
         runThread.setName(testSuiteName);
         runThread.setCurrentIteration(increment*numberOfIteration);
-        testRunThreads.add(runThread);
+        runThreads.add(runThread);
       }
     }
-    List<Future<List<Future<Object>>>> res = new ArrayList<>();
-    if(testConfig.getRampUpDelay() == 0) {
-      executorService = Executors.newFixedThreadPool(1);
-       res =  executorService.invokeAll(testRunThreads);
-      shutdown(executorService);
-    } else {
-      List<ExecutorService> executorServices = new ArrayList<>();
-      int index = 0;
-      while(index < testRunThreads.size() ) {
-        long start = System.currentTimeMillis();
-        logger.info("Starting batch no. " + index);
-        List<TestRunThread> testRunThread = new ArrayList<>();
-        testRunThread.add(testRunThreads.get(index));
-        executorService = Executors.newFixedThreadPool(1);
-        res.addAll(executorService.invokeAll(testRunThread));
-        executorServices.add(executorService);
-        int threadTime = (int) (System.currentTimeMillis() - start);
-        logger.info("Threadtime : " + threadTime);
-        index ++;
-        if (threadTime < testConfig.getRampUpDelay()) {
-          logger.info("Waiting " +  (testConfig.getRampUpDelay() - threadTime));
-          waitAround(Math.abs((testConfig.getRampUpDelay() - threadTime) - ONE_SECOND_INTERVAL));
-        }
-      }
-      for(ExecutorService service: executorServices) {
-        shutdown(service);
-      }
+    testRunThreads.addAll(runThreads);
+    List<Future<List<Future<Object>>>> res = arrivalScheduler.run(runThreads);
+    try {
+      arrivalScheduler.writeReport(new File(testConfig.getReporter().getReportPath(), "rampUp.json"));
+    } catch (IOException e) {
+      logger.error("Could not write the ramp up report: " + e.getLocalizedMessage());
     }
     return res;
   }
 
-  private static List<Tuple> getSmallerTuple(CircularLinkedList<Paas> paasList, Client client, int originalTupleSize, int idealTupleSize) {
+  private static List<Tuple> getSmallerTuple(List<Paas> paasList, Client client, int originalTupleSize, int idealTupleSize) {
     List<Tuple> tupleList = new ArrayList<>();
     int tupleCount = originalTupleSize/idealTupleSize;
     int leftOver = originalTupleSize - idealTupleSize*tupleCount;
@@ -408,7 +749,7 @@ public class Engine {
     for (int i = 0; i < tupleCount; i++) {
       Tuple tuple = new Tuple();
       for (int j = 0; j < idealTupleSize; j++) {
-        client.setPaas(paasList.get());
+        client.setPaas(PaasPlacement.getInstance().choose(paasList));
         tuple.add(client);
       }
       tupleList.add(tuple);
@@ -416,7 +757,7 @@ public class Engine {
     if (leftOver > 0) {
       Tuple tuple = new Tuple();
       for (int j = 0; j < leftOver; j++) {
-        client.setPaas(paasList.get());
+        client.setPaas(PaasPlacement.getInstance().choose(paasList));
         tuple.add(client);
       }
       tupleList.add(tuple);
@@ -424,21 +765,29 @@ public class Engine {
     return tupleList;
   }
 
-  public static CircularLinkedList<Paas> getPaasWithProfile(List<Paas> originalList, Client client) {
-
+  /**
+   * Gets the paas with the network profile of the client, or all of them if none has it.
+   * The available slots are taken into account by PaasPlacement.
+   *
+   * @param originalList the list of available paas
+   * @param client the client
+   * @return the paas the client can be assigned to
+   */
+  public static List<Paas> getPaasWithProfile(List<Paas> originalList, Client client) {
+    if (client.getNetworkProfile() == null) {
+      return originalList;
+    }
     List<Paas> res = new ArrayList<>();
     for (Paas paas : originalList) {
-//      logger.info("looking for paas with spec " + client.getBrowserSpecs());
-//      if (paas.getSpecList().contains(client.getBrowserSpecs())) {
-        logger.info("looking for paas with profile " + client.getNetworkProfile().getName());
-//        if (paas.getNetworkProfile().getName().equals(client.getNetworkProfile().getName())) {
-//          if (paas.getAvailableSlots() > 0) {
-            res.add(paas);
-//          }
-//        }
-//      }
-    }
-    return new CircularLinkedList<Paas>(res);
+      if (paas.getNetworkProfile().getName().equals(client.getNetworkProfile().getName())) {
+        res.add(paas);
+      }
+    }
+    if (res.isEmpty()) {
+      logger.debug("No paas with profile " + client.getNetworkProfile().getName() + ", using all of them");
+      return originalList;
+    }
+    return res;
   }
 
   private static HashMap<Client, Integer> getIncrementMap(List<Client> clients, int totalIncrement) {
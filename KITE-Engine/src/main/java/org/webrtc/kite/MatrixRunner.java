@@ -16,7 +16,6 @@
 
 package org.webrtc.kite;
 
-import static io.cosmosoftware.kite.entities.Timeouts.FIVE_SECOND_INTERVAL;
 import static io.cosmosoftware.kite.entities.Timeouts.ONE_SECOND_INTERVAL;
 import static io.cosmosoftware.kite.util.ReportUtils.getStackTrace;
 import static io.cosmosoftware.kite.util.ReportUtils.timestamp;
@@ -25,18 +24,31 @@ import static io.cosmosoftware.kite.util.TestUtils.waitAround;
 import io.cosmosoftware.kite.report.Container;
 import io.cosmosoftware.kite.report.KiteLogger;
 import io.cosmosoftware.kite.steps.StepPhase;
+import java.io.File;
 import java.io.IOException;
 import java.net.URL;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Random;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import org.webrtc.kite.config.LazyTupleList;
 import org.webrtc.kite.config.client.BrowserSpecs;
 import org.webrtc.kite.config.client.Client;
+import org.webrtc.kite.config.paas.Paas;
+import org.webrtc.kite.config.paas.PaasPlacement;
 import org.webrtc.kite.config.test.TestConfig;
 import org.webrtc.kite.config.test.Tuple;
 
@@ -46,6 +58,14 @@ import org.webrtc.kite.config.test.Tuple;
  */
 public class MatrixRunner {
 
+  /** The first backoff before retrying a tuple, doubled at each attempt. */
+  private static final long RETRY_BACKOFF = 10 * ONE_SECOND_INTERVAL;
+
+  private static final long MAX_RETRY_BACKOFF = 300 * ONE_SECOND_INTERVAL;
+
+  /** Marks a tuple whose test was started, so that it is no longer created in advance. */
+  private static final CompletableFuture<Tuple> STARTED = CompletableFuture.completedFuture(null);
+
   /** The logger. */
   private final KiteLogger logger = KiteLogger.getLogger(MatrixRunner.class.getName());
 
@@ -55,23 +75,61 @@ public class MatrixRunner {
   /** The interrupted. */
   private boolean interrupted;
 
-  /** The multi executor service. */
-  private ExecutorService multiExecutorService;
+  /** The thread waiting for the test managers, interrupted to cancel them. */
+  private Thread runThread;
 
-  /** The tuple list. */
+  /** The tuple list, created lazily for an interop test. */
   private List<Tuple> tupleList = new ArrayList<>();
 
   /** The test suite. */
   private Container testSuite;
 
-  /** The test manager list. */
-  private List<TestManager> testManagerList = new ArrayList<>();
+  /** The test manager list, filled as the test managers are started. */
+  private List<TestManager> testManagerList = Collections.synchronizedList(new ArrayList<>());
 
   private StepPhase currentPhase;
 
   private int currentIteration = 0;
 
-  private boolean lastThread = false;
+  /** The barrier of the matrix runners of the load reached phase, null if not a load test. */
+  private PhaseCoordinator phaseCoordinator;
+
+  /** Notified of the result of each tuple of an interop test as soon as it is known. */
+  private BiConsumer<Integer, Object> resultListener;
+
+  /** The checkpoint journal the completed tuples of an interop test are appended to, if any. */
+  private RunJournal journal;
+
+  /** The paas the tuples to retry can be placed on, null to retry them on the same paas. */
+  private List<Paas> paasList;
+
+  /** The tuples of an interop test waiting to be retried, by due time. */
+  private final DelayQueue<Retry> retryQueue = new DelayQueue<>();
+
+  /** The results of the tuples of an interop test, completed once their last attempt is done. */
+  private List<CompletableFuture<Object>> results;
+
+  /** The index of the next tuple of an interop test to start. */
+  private final AtomicInteger nextIndex = new AtomicInteger();
+
+  /** The number of tuples of an interop test not done yet, including the ones waiting to be retried. */
+  private final AtomicInteger remaining = new AtomicInteger();
+
+  /** The tuple of the last attempt of each tuple retried, by index. */
+  private final Map<Integer, Tuple> lastAttempts = new ConcurrentHashMap<>();
+
+  /**
+   * The tuples of an interop test created before their test starts, to create their sessions in
+   * advance, by index. An index is claimed before its tuple is created, so that the test starting
+   * waits for the tuple being created instead of creating another one.
+   */
+  private final Map<Integer, CompletableFuture<Tuple>> preparedTuples = new ConcurrentHashMap<>();
+
+  /** The index of the last tuple started. */
+  private final AtomicInteger lastStarted = new AtomicInteger(-1);
+
+  /** The index of the last tuple created in advance, or started before it could be. */
+  private final AtomicInteger lastPrepared = new AtomicInteger(-1);
 
   /**
    * Constructs a new MatrixRunner with the given TestConfig and List<Tuple>.
@@ -82,21 +140,11 @@ public class MatrixRunner {
    */
   public MatrixRunner(TestConfig testConfig, List<Tuple> listOfTuples, String parentSuiteName) {
     this.testConfig = testConfig;
-    this.tupleList.addAll(listOfTuples);
-    for (Tuple tuple : this.tupleList) {
-      for (Client client : tuple.getClients()) {
-        BrowserSpecs specs = client.getBrowserSpecs();
-        if (specs.getBrowserName().equals("firefox")) {
-          if (specs.getProfile() != null && !specs.getProfile().isEmpty()) {
-            specs.setProfile(testConfig.getFirefoxProfile());
-          }
-        }
-        if (specs.getBrowserName().equals("chrome") && specs.getVersion() != null && !specs.getVersion().contains("electron")) {
-          if (specs.getExtension() != null && !specs.getExtension().isEmpty()) {
-            specs.setExtension(testConfig.getChromeExtension());
-          }
-        }
-      }
+    if (testConfig.isLoadTest()) {
+      this.tupleList.addAll(listOfTuples);
+    } else {
+      // not copied, the tuples of a LazyTupleList are only created when their test is started
+      this.tupleList = listOfTuples;
     }
     if (testConfig.isLoadTest()) {
       this.testSuite = new Container("1st phase(RU) | " + getHostUrlWithTs(this.tupleList.get(0).getClients().get(0)));
@@ -109,7 +157,7 @@ public class MatrixRunner {
 
   public MatrixRunner(List<TestManager> testManagers, String parentSuiteName) {
     this.testConfig = testManagers.get(0).getTestConfig();
-    this.testManagerList = testManagers;
+    this.testManagerList = Collections.synchronizedList(testManagers);
     waitAround(new Random().nextInt(1000)); // avoid duplicated container
     this.testSuite = new Container("2nd phase(LR) | " + getHostUrl(this.testManagerList.get(0).getTuple().getClients().get(0)) + testConfig.getReporter().getTimestamp());
     logger.info("Created container " + this.testSuite.getName());
@@ -140,7 +188,10 @@ public class MatrixRunner {
    */
   public void interrupt() {
     this.interrupted = true;
-    for (TestManager manager : this.testManagerList) {
+    if (this.phaseCoordinator != null) {
+      this.phaseCoordinator.release();
+    }
+    for (TestManager manager : getTestManagers()) {
       manager.terminate();
     }
     this.shutdownExecutors();
@@ -153,7 +204,9 @@ public class MatrixRunner {
    */
   public List<Future<Object>> run() {
     List<Future<Object>> futureList = new ArrayList<>();
-    this.multiExecutorService = Executors.newFixedThreadPool(this.testConfig.getNoOfThreads());
+    List<Callable<Object>> tasks = new ArrayList<>();
+    boolean workers = false;
+    this.runThread = Thread.currentThread();
 
     if (this.testManagerList.isEmpty()) {
       int totalTestCases = this.tupleList.size();
@@ -161,7 +214,7 @@ public class MatrixRunner {
         return null;
       }
       logger.info("Executing " + this.testConfig + " for " + totalTestCases
-          + " browser tuples with size :" + tupleList.get(0).size());
+          + " browser tuples with size :" + testConfig.getTupleSize());
       testConfig.setLogger(KiteLogger.getLogger(testConfig.getTestClassName()));
       if (testConfig.isLoadTest()) {
         Tuple neo = new Tuple();
@@ -170,40 +223,52 @@ public class MatrixRunner {
         }
         this.tupleList.clear();
         this.tupleList.add(neo);
-      }
-
-      for (int index = 0; index < this.tupleList.size(); index++) {
-        TestManager manager = new TestManager(this.testConfig, this.tupleList.get(index));
-        manager.setSuite(this.testSuite);
-        if (this.testConfig.isLoadTest()) {
-          manager.setId((currentIteration + index * this.tupleList.get(index).size() + 1));
-        } else {
-          manager.setId(index);
+        for (int index = 0; index < this.tupleList.size(); index++) {
+          tasks.add(createTestManager(index));
+        }
+      } else {
+        // each tuple and its test manager are only created when the test is started,
+        // or when its sessions are created in advance
+        this.results = new ArrayList<>();
+        for (int index = 0; index < totalTestCases; index++) {
+          this.results.add(new CompletableFuture<>());
+        }
+        this.remaining.set(totalTestCases);
+        int noOfWorkers = this.testConfig.getNoOfThreads() > 0
+            ? Math.min(this.testConfig.getNoOfThreads(), totalTestCases) : totalTestCases;
+        for (int worker = 0; worker < noOfWorkers; worker++) {
+          tasks.add(this::runTuples);
         }
-        manager.setTotal(this.tupleList.size());
-        manager.setDelay(index*ONE_SECOND_INTERVAL);
-        this.testManagerList.add(manager);
+        workers = true;
       }
+    } else {
+      tasks.addAll(this.testManagerList);
     }
 
     try {
-      this.currentPhase = testManagerList.get(0).getCurrentPhase(); // if null -> firs time executing
+      // if null -> firs time executing
+      this.currentPhase = testManagerList.isEmpty() ? StepPhase.DEFAULT : testManagerList.get(0).getCurrentPhase();
       //Runtime.getRuntime().addShutdownHook(new Thread(() -> terminate()));
-      futureList.addAll(multiExecutorService.invokeAll(testManagerList));
+      if (workers) {
+        // the workers are already limited to the number of threads
+        KiteScheduler.getInstance().invokeAll(tasks, 0);
+        futureList.addAll(this.results);
+      } else {
+        futureList.addAll(KiteScheduler.getInstance().invokeAll(tasks, this.testConfig.getNoOfThreads()));
+      }
     } catch (Exception e) {
       logger.error(getStackTrace(e));
     } finally {
+      if (workers) {
+        for (CompletableFuture<Object> result : this.results) {
+          // the tuples not run or waiting to be retried when interrupted
+          result.cancel(true);
+        }
+      }
+      this.preparedTuples.clear();
       if (this.currentPhase.isLastPhase()) {
-        if (this.currentPhase.equals(StepPhase.LOADREACHED)) {
-          // todo: wait for last iteration
-          if (this.isLastThread()) {
-            logger.info("Last thread has finished!");
-            this.testConfig.setDone(true);
-          }
-          logger.info("Waiting for all threads to finish");
-          while (!this.testConfig.isDone()) {
-            waitAround(FIVE_SECOND_INTERVAL);
-          }
+        if (this.currentPhase.equals(StepPhase.LOADREACHED) && this.phaseCoordinator != null) {
+          this.phaseCoordinator.arriveAndAwait(this.testSuite.getName());
         } else {
           logger.info("Matrix runner at last phase, ending. ");
         }
@@ -215,34 +280,304 @@ public class MatrixRunner {
     return futureList;
   }
 
+  /**
+   * Creates the test manager of a tuple, and the tuple itself if it is created lazily.
+   *
+   * @param index the index of the tuple
+   * @return the test manager
+   */
+  private TestManager createTestManager(int index) {
+    CompletableFuture<Tuple> prepared = this.preparedTuples.put(index, STARTED);
+    // null if the tuple could not be created in advance
+    Tuple tuple = prepared != null ? prepared.join() : null;
+    return createTestManager(index, tuple != null ? tuple : getTuple(index));
+  }
+
+  /**
+   * Gets a tuple to run, created if the tuple list is lazy.
+   *
+   * @param index the index of the tuple
+   * @return the tuple
+   */
+  private Tuple getTuple(int index) {
+    Tuple tuple = this.tupleList.get(index);
+    if (!this.testConfig.isLoadTest() && this.testConfig.getMaxRetryCount() > 0
+        && !(this.tupleList instanceof LazyTupleList)) {
+      // the tuple is kept untouched for the retries
+      tuple = new Tuple(tuple);
+    }
+    return tuple;
+  }
+
+  /**
+   * Creates in advance the sessions of the next tuples of an interop test, up to the look-ahead of
+   * the session pool, while the tuple just started runs. The tuples are created (and placed on
+   * their paas) now, and their clients get the sessions from the pool when their test starts.
+   * A session is only created if its paas has a free slot: within its availableSlots, counting
+   * the clients placed on it, and within the limits of the scheduler, counting the sessions already
+   * held by the pool. A failure is only logged: the tuple is then created when its test starts.
+   *
+   * @param index the index of the tuple starting
+   */
+  private void preCreateSessions(int index) {
+    int lookAhead = WebDriverPool.getInstance().getLookAhead();
+    if (lookAhead <= 0 || this.testConfig.isLoadTest() || this.testConfig.isJavascript() || this.interrupted) {
+      return;
+    }
+    int started = this.lastStarted.accumulateAndGet(index, Math::max);
+    int last = Math.min(started + lookAhead, this.tupleList.size() - 1);
+    int next;
+    while ((next = this.lastPrepared.get() + 1) <= last) {
+      if (!this.lastPrepared.compareAndSet(next - 1, next) || next <= started) {
+        continue;
+      }
+      CompletableFuture<Tuple> prepared = new CompletableFuture<>();
+      if (this.preparedTuples.putIfAbsent(next, prepared) != null) {
+        // already started
+        continue;
+      }
+      Tuple tuple = null;
+      try {
+        tuple = getTuple(next);
+        applyBrowserSettings(tuple);
+      } catch (RuntimeException e) {
+        logger.warn("Could not create tuple " + next + " in advance: " + getStackTrace(e));
+        tuple = null;
+      } finally {
+        prepared.complete(tuple);
+      }
+      if (tuple == null) {
+        continue;
+      }
+      try {
+        // the sessions submitted are only counted by the pool once their creation has started
+        Map<String, Integer> submitted = new HashMap<>();
+        for (Client client : tuple.getClients()) {
+          Paas paas = client.getPaas();
+          if (paas != null && hasFreeSlot(paas, submitted.getOrDefault(paas.getUrl(), 0),
+              submitted.values().stream().mapToInt(Integer::intValue).sum())) {
+            submitted.merge(paas.getUrl(), 1, Integer::sum);
+            KiteScheduler.getInstance().submit(() -> WebDriverPool.getInstance().preCreate(client));
+          }
+        }
+      } catch (RuntimeException e) {
+        logger.warn("Could not create the sessions of tuple " + next + " in advance: " + getStackTrace(e));
+      }
+    }
+  }
+
+  /**
+   * Checks whether one more session can be created in advance on a paas.
+   *
+   * @param paas the paas
+   * @param submittedOnPaas the sessions already submitted for the tuple on the paas
+   * @param submitted the sessions already submitted for the tuple on all the paas
+   * @return true if within the availableSlots of the paas and the limits of the scheduler
+   */
+  private boolean hasFreeSlot(Paas paas, int submittedOnPaas, int submitted) {
+    WebDriverPool pool = WebDriverPool.getInstance();
+    return PaasPlacement.getInstance().hasFreeSlot(paas, pool.getIdleSessions(paas.getUrl()) + submittedOnPaas)
+        && KiteScheduler.getInstance().hasFreeSlots(paas,
+            pool.getHeldSessions(paas.getUrl()) + submittedOnPaas + 1, pool.getHeldSessions(null) + submitted + 1);
+  }
+
+  private TestManager createTestManager(int index, Tuple tuple) {
+    applyBrowserSettings(tuple);
+    TestManager manager = new TestManager(this.testConfig, tuple);
+    manager.setSuite(this.testSuite);
+    if (this.testConfig.isLoadTest()) {
+      manager.setId((currentIteration + index * tuple.size() + 1));
+    } else {
+      manager.setId(currentIteration + index);
+    }
+    manager.setTotal(this.tupleList.size());
+    manager.setDelay(index*ONE_SECOND_INTERVAL);
+    this.testManagerList.add(manager);
+    return manager;
+  }
+
+  /**
+   * Runs the tuples of an interop test until all of them are done: the tuples to retry once their
+   * backoff is over first, then the tuples not started yet, in order. A worker only waits for a
+   * retry when there is no tuple left to start, so that the backoff of a retry never holds a thread
+   * another tuple could run on.
+   *
+   * @return null, the results are in the results list
+   * @throws InterruptedException if interrupted while waiting for a retry
+   */
+  private Object runTuples() throws InterruptedException {
+    while (this.remaining.get() > 0 && !this.interrupted) {
+      Retry retry = this.retryQueue.poll();
+      if (retry == null && this.nextIndex.get() < this.tupleList.size()) {
+        int index = this.nextIndex.getAndIncrement();
+        if (index < this.tupleList.size()) {
+          try {
+            preCreateSessions(index);
+          } catch (RuntimeException e) {
+            // the sessions created in advance are an optimization, the tuple must still run
+            logger.warn("Could not create sessions in advance: " + getStackTrace(e));
+          }
+          runTestManager(index, 1);
+        }
+        continue;
+      }
+      if (retry == null) {
+        // checks again regularly, as a tuple still running may be queued for a retry
+        retry = this.retryQueue.poll(ONE_SECOND_INTERVAL, TimeUnit.MILLISECONDS);
+      }
+      if (retry != null) {
+        runTestManager(retry.index, retry.attempt);
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Creates and runs the test manager of a tuple of an interop test. If the test failed for a reason
+   * that may be transient, the tuple is queued to be retried, otherwise it is journaled, its result
+   * is notified and set in the results list.
+   *
+   * @param index the index of the tuple
+   * @param attempt the attempt for this tuple, 1 for the first one
+   */
+  private void runTestManager(int index, int attempt) {
+    Object result = null;
+    boolean retried = false;
+    try {
+      TestManager manager = attempt == 1 ? createTestManager(index)
+          : createTestManager(index, replace(getRetryTuple(index), this.lastAttempts.get(index)));
+      manager.setAttempt(attempt);
+      result = manager.call();
+      if (manager.isRetryable() && !this.interrupted) {
+        long backoff = Math.min(MAX_RETRY_BACKOFF, RETRY_BACKOFF << Math.min(attempt - 1, 10));
+        logger.warn("The test of tuple " + index + " failed at attempt " + attempt + ", retrying it in "
+            + backoff / 1000 + "s on other paas");
+        this.lastAttempts.put(index, manager.getTuple());
+        this.retryQueue.add(new Retry(index, attempt + 1, System.currentTimeMillis() + backoff));
+        retried = true;
+      } else if (this.journal != null && result != null) {
+        this.journal.record(this.testConfig.getName(), manager.getTuple().getMatrix());
+      }
+      if (!retried) {
+        this.results.get(index).complete(result);
+      }
+    } catch (Exception e) {
+      this.results.get(index).completeExceptionally(e);
+    } finally {
+      if (!retried) {
+        this.remaining.decrementAndGet();
+        if (this.resultListener != null) {
+          this.resultListener.accept(index, result);
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates a new copy of a tuple to retry. When its clients are placed again by replace, a lazily
+   * created tuple is not initialized, so that each client is only placed once per attempt.
+   *
+   * @param index the index of the tuple
+   * @return the tuple
+   */
+  private Tuple getRetryTuple(int index) {
+    if (this.tupleList instanceof LazyTupleList && this.paasList != null && !this.paasList.isEmpty()) {
+      return ((LazyTupleList) this.tupleList).getUninitialized(index);
+    }
+    return new Tuple(this.tupleList.get(index));
+  }
+
+  /**
+   * Places the clients of a tuple to retry on other paas than at the last attempt, if possible.
+   *
+   * @param tuple the tuple to retry
+   * @param lastAttempt the tuple of the last attempt
+   * @return the tuple
+   */
+  private Tuple replace(Tuple tuple, Tuple lastAttempt) {
+    if (this.paasList == null || this.paasList.isEmpty()) {
+      return tuple;
+    }
+    for (int index = 0; index < tuple.size(); index++) {
+      Client client = tuple.get(index);
+      List<Paas> candidates = new ArrayList<>(Engine.getPaasWithProfile(this.paasList, client));
+      if (lastAttempt != null && candidates.size() > 1) {
+        candidates.remove(lastAttempt.get(index).getPaas());
+      }
+      client.setPaas(PaasPlacement.getInstance().choose(candidates));
+    }
+    return tuple;
+  }
+
+  private void applyBrowserSettings(Tuple tuple) {
+    for (Client client : tuple.getClients()) {
+      BrowserSpecs specs = client.getBrowserSpecs();
+      if (specs.getBrowserName().equals("firefox")) {
+        if (specs.getProfile() != null && !specs.getProfile().isEmpty()) {
+          specs.setProfile(testConfig.getFirefoxProfile());
+        }
+      }
+      if (specs.getBrowserName().equals("chrome") && specs.getVersion() != null && !specs.getVersion().contains("electron")) {
+        if (specs.getExtension() != null && !specs.getExtension().isEmpty()) {
+          specs.setExtension(testConfig.getChromeExtension());
+        }
+      }
+    }
+  }
+
+  private List<TestManager> getTestManagers() {
+    synchronized (this.testManagerList) {
+      return new ArrayList<>(this.testManagerList);
+    }
+  }
+
   private void terminate() {
-    for (TestManager manager : this.testManagerList) {
+    for (TestManager manager : getTestManagers()) {
       if (!manager.isFinished()) {
         manager.terminate();
       }
     }
     testSuite.setStopTimestamp();
     if (currentPhase == null || !currentPhase.equals(StepPhase.RAMPUP)) {
+      writeFleetStats();
       if (testConfig.generateReport()) {
         testConfig.getReporter().generateReportFiles();
       }
     }
   }
 
+  /**
+   * Writes the stats combined across all the runners of the test, per phase, next to the report.
+   */
+  private void writeFleetStats() {
+    if (!testConfig.getFleetStats().isEmpty()) {
+      File file = new File(testConfig.getReporter().getReportPath(), "fleetStats.json");
+      try {
+        testConfig.getFleetStats().writeTo(file);
+        logger.info("Fleet stats written to " + file.getAbsolutePath());
+      } catch (IOException e) {
+        logger.error("Could not write the fleet stats: " + getStackTrace(e));
+      }
+    }
+  }
+
   /**
    * Shutdown executors.
    */
   synchronized private void shutdownExecutors() {
-    if (this.multiExecutorService != null && !this.multiExecutorService.isShutdown()) {
+    if (this.runThread != null) {
       if (testConfig.isLoadTest() && (this.currentPhase == null || this.currentPhase.equals(StepPhase.RAMPUP))) {
         // todo: maybe some action is needed at this point
       } else {
-        for (TestManager manager : this.testManagerList) {
+        for (TestManager manager : getTestManagers()) {
           manager.terminate();
         }
       }
-      this.multiExecutorService.shutdownNow();
-      this.multiExecutorService = null;
+      if (this.runThread != Thread.currentThread()) {
+        // cancels the test managers still running in the scheduler
+        this.runThread.interrupt();
+      }
+      this.runThread = null;
     }
     logger.info("shutdownExecutors() done.");
   }
@@ -254,11 +589,62 @@ public class MatrixRunner {
   }
 
 
-  public void setLastThread(boolean lastThread) {
-    this.lastThread = lastThread;
+  public void setPhaseCoordinator(PhaseCoordinator phaseCoordinator) {
+    this.phaseCoordinator = phaseCoordinator;
   }
 
-  public boolean isLastThread() {
-    return lastThread;
+  /**
+   * Sets the listener notified of the result of each tuple of an interop test, with its index in
+   * the tuple list, from the thread that ran it. The result is null if the test failed to run.
+   *
+   * @param resultListener the result listener
+   */
+  public void setResultListener(BiConsumer<Integer, Object> resultListener) {
+    this.resultListener = resultListener;
+  }
+
+  /**
+   * Sets the paas the clients of the tuples to retry are placed on, preferably not on the paas of
+   * their last attempt.
+   *
+   * @param paasList the paas list
+   */
+  public void setPaasList(List<Paas> paasList) {
+    this.paasList = paasList;
+  }
+
+  /**
+   * Sets the checkpoint journal each tuple of an interop test is appended to once its test has
+   * finished.
+   *
+   * @param journal the journal
+   */
+  public void setJournal(RunJournal journal) {
+    this.journal = journal;
+  }
+
+  /**
+   * A tuple of an interop test waiting to be retried.
+   */
+  private static class Retry implements Delayed {
+    private final int index;
+    private final int attempt;
+    private final long due;
+
+    private Retry(int index, int attempt, long due) {
+      this.index = index;
+      this.attempt = attempt;
+      this.due = due;
+    }
+
+    @Override
+    public long getDelay(TimeUnit unit) {
+      return unit.convert(due - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public int compareTo(Delayed other) {
+      return Long.compare(due, ((Retry) other).due);
+    }
   }
 }
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.webrtc.kite;
+
+import io.cosmosoftware.kite.report.KiteLogger;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.webrtc.kite.config.test.TestConfig;
+
+/**
+ * The barrier the matrix runners of a load test wait at once they have finished their phase,
+ * so that they all tear down together, as soon as the last one arrives.
+ * A matrix runner arrives whether its phase succeeded or failed. If the others have not all
+ * arrived within the timeout, the barrier is broken and the waiting matrix runners tear down
+ * without them.
+ */
+public class PhaseCoordinator {
+
+  private static final KiteLogger logger = KiteLogger.getLogger(PhaseCoordinator.class.getName());
+
+  private final TestConfig testConfig;
+  private final long timeout;
+  private final TimeUnit unit;
+  private final Phaser phaser;
+
+  /**
+   * Constructs a new PhaseCoordinator.
+   *
+   * @param testConfig the test config, set done once all the matrix runners have arrived
+   * @param parties    the number of matrix runners
+   * @param timeout    the maximum time to wait for the others
+   * @param unit       the unit of the timeout
+   */
+  public PhaseCoordinator(TestConfig testConfig, int parties, long timeout, TimeUnit unit) {
+    this.testConfig = testConfig;
+    this.timeout = timeout;
+    this.unit = unit;
+    this.phaser = new Phaser(parties) {
+      @Override
+      protected boolean onAdvance(int phase, int registeredParties) {
+        testConfig.setDone(true);
+        return true;
+      }
+    };
+  }
+
+  /**
+   * Arrives at the barrier and waits for the other matrix runners, or for the timeout.
+   *
+   * @param name the name of the matrix runner arriving, for the logs
+   */
+  public void arriveAndAwait(String name) {
+    int phase = phaser.arrive();
+    if (phase < 0) {
+      // already released or broken
+      return;
+    }
+    logger.info(name + " has finished, waiting for " + phaser.getUnarrivedParties() + " other matrix runners");
+    try {
+      phaser.awaitAdvanceInterruptibly(phase, timeout, unit);
+    } catch (TimeoutException e) {
+      logger.warn("Timed out after " + timeout + " " + unit.name().toLowerCase() + " waiting for "
+        + phaser.getUnarrivedParties() + " matrix runners of " + testConfig.getName() + ", tearing down without them");
+      phaser.forceTermination();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Releases the matrix runners waiting, e.g. when the test is stopped.
+   */
+  public void release() {
+    phaser.forceTermination();
+  }
+}
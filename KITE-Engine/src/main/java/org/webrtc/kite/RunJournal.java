@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.webrtc.kite;
+
+import io.cosmosoftware.kite.report.KiteLogger;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonReader;
+import org.webrtc.kite.config.LazyTupleList;
+import org.webrtc.kite.config.test.Tuple;
+
+/**
+ * The checkpoint journal of the interop tests of a config file: one JSON line is appended each
+ * time the test of a tuple has finished, {"test": "IceConnectionTest", "tuple": [0, 2], "time": ...},
+ * where tuple is the index of each client in the client list of the config file (Tuple.getMatrix()).
+ * <p>
+ * When a run is resumed, the tuples already in the journal are skipped, so that only the
+ * remaining ones are run. Otherwise the journal is started again. A line cut short by a crash
+ * is ignored.
+ * </p>
+ */
+public class RunJournal {
+
+  private static final KiteLogger logger = KiteLogger.getLogger(RunJournal.class.getName());
+
+  private final File file;
+  private final Set<String> completed = Collections.synchronizedSet(new HashSet<>());
+  private FileOutputStream out;
+
+  /**
+   * Opens the journal of a run.
+   *
+   * @param file   the journal file
+   * @param resume true to keep the tuples already completed, false to start again
+   *
+   * @throws IOException if the journal cannot be read or created
+   */
+  public RunJournal(File file, boolean resume) throws IOException {
+    this.file = file;
+    if (file.getParentFile() != null) {
+      file.getParentFile().mkdirs();
+    }
+    if (resume && file.exists()) {
+      load();
+      logger.info("Resuming from " + file.getAbsolutePath() + ", " + completed.size() + " tuples already completed");
+    }
+    this.out = new FileOutputStream(file, resume);
+  }
+
+  /**
+   * Gets the journal of a config file: [config file name].journal in the report folder.
+   *
+   * @param reportPath     the report folder, null or empty for the working directory
+   * @param configFilePath the path of the config file
+   *
+   * @return the journal file
+   */
+  public static File getFile(String reportPath, String configFilePath) {
+    String name = new File(configFilePath).getName().replaceAll("\\.json$", "");
+    return new File(reportPath == null || reportPath.isEmpty() ? "." : reportPath, name + ".journal");
+  }
+
+  private void load() throws IOException {
+    try (BufferedReader reader = Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        try (JsonReader jsonReader = Json.createReader(new StringReader(line))) {
+          JsonObject entry = jsonReader.readObject();
+          List<Integer> tuple = new ArrayList<>();
+          JsonArray indexes = entry.getJsonArray("tuple");
+          for (int index = 0; index < indexes.size(); index++) {
+            tuple.add(indexes.getInt(index));
+          }
+          completed.add(getKey(entry.getString("test"), tuple));
+        } catch (JsonException | ClassCastException | NullPointerException e) {
+          logger.warn("Ignoring an incomplete line of " + file.getName());
+        }
+      }
+    }
+  }
+
+  private static String getKey(String testName, List<Integer> tuple) {
+    return testName + "|" + tuple;
+  }
+
+  /**
+   * Checks whether the test of a tuple was completed in the journal.
+   *
+   * @param testName the name of the test
+   * @param tuple    the indexes of the clients of the tuple in the client list
+   *
+   * @return true if completed
+   */
+  public boolean isCompleted(String testName, List<Integer> tuple) {
+    return completed.contains(getKey(testName, tuple));
+  }
+
+  /**
+   * Appends a completed tuple to the journal, and writes it to the disk.
+   *
+   * @param testName the name of the test
+   * @param tuple    the indexes of the clients of the tuple in the client list
+   */
+  public synchronized void record(String testName, List<Integer> tuple) {
+    if (!completed.add(getKey(testName, tuple)) || out == null) {
+      return;
+    }
+    JsonArrayBuilder indexes = Json.createArrayBuilder();
+    for (int index : tuple) {
+      indexes.add(index);
+    }
+    String line = Json.createObjectBuilder()
+      .add("test", testName)
+      .add("tuple", indexes)
+      .add("time", System.currentTimeMillis())
+      .build().toString() + "\n";
+    try {
+      out.write(line.getBytes(StandardCharsets.UTF_8));
+      out.getChannel().force(false);
+    } catch (IOException e) {
+      logger.error("Could not write to " + file.getAbsolutePath() + ": " + e.getLocalizedMessage());
+    }
+  }
+
+  /**
+   * Removes the tuples completed in the journal from the tuples of a test.
+   *
+   * @param testName  the name of the test
+   * @param tupleList the tuple list
+   *
+   * @return the tuples left to run
+   */
+  public List<Tuple> skipCompleted(String testName, List<Tuple> tupleList) {
+    if (completed.isEmpty()) {
+      return tupleList;
+    }
+    List<Tuple> remaining;
+    if (tupleList instanceof LazyTupleList) {
+      remaining = ((LazyTupleList) tupleList).filter(indexes -> {
+        List<Integer> tuple = new ArrayList<>();
+        for (int index : indexes) {
+          tuple.add(index);
+        }
+        return !isCompleted(testName, tuple);
+      });
+    } else {
+      remaining = new ArrayList<>();
+      for (Tuple tuple : tupleList) {
+        if (!isCompleted(testName, tuple.getMatrix())) {
+          remaining.add(tuple);
+        }
+      }
+    }
+    if (remaining.size() < tupleList.size()) {
+      logger.info("Skipping " + (tupleList.size() - remaining.size()) + " completed tuples of " + testName
+        + ", " + remaining.size() + " left");
+    }
+    return remaining;
+  }
+
+  /**
+   * Closes the journal.
+   */
+  public synchronized void close() {
+    if (out != null) {
+      try {
+        out.close();
+      } catch (IOException e) {
+        // ignore
+      }
+      out = null;
+    }
+  }
+}
@@ -0,0 +1,268 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.webrtc.kite;
+
+import io.cosmosoftware.kite.report.KiteLogger;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+
+/**
+ * Runs the tuples of an interop test on worker engines (see WorkerServer) instead of this engine.
+ * <p>
+ * The tuples are split into shards, a few per worker, that the workers take in turn as they
+ * finish the previous ones, so that a slow worker does not hold back the others. The results are
+ * streamed back by the workers as each test finishes. If a worker fails, disconnects, or sends
+ * nothing, not even a keep-alive line, for READ_TIMEOUT, it is not used anymore, and the tuples of
+ * its shard without a result are run by the other workers.
+ * </p>
+ * The results of all the workers are merged into one report.
+ */
+public class ShardCoordinator {
+
+  private static final KiteLogger logger = KiteLogger.getLogger(ShardCoordinator.class.getName());
+
+  /** The number of shards per worker. */
+  private static final int SHARDS_PER_WORKER = 4;
+  private static final int CONNECT_TIMEOUT = 10000;
+  /** The time without any line from a worker after which it is considered dead, in ms. */
+  private static final int READ_TIMEOUT = 3 * WorkerServer.KEEP_ALIVE_INTERVAL * 1000;
+
+  private final List<String> workers;
+  private JsonObject report = null;
+
+  /**
+   * Constructs a new ShardCoordinator.
+   *
+   * @param workers the urls of the workers, e.g. http://localhost:9001
+   */
+  public ShardCoordinator(List<String> workers) {
+    this.workers = workers;
+  }
+
+  /**
+   * Runs the tuples of a test on the workers, and waits for their results.
+   *
+   * @param configFile the path of the config file, as read by the workers
+   * @param testName   the name of the test, for the logs and the report
+   * @param testIndex  the index of the test in the config file
+   * @param reportPath the report folder of the test
+   * @param tuples     the indexes of the clients of each tuple in the client list of the config file
+   *
+   * @return the result of each tuple, null if it could not be run
+   * @throws InterruptedException if interrupted while waiting for the workers
+   */
+  public List<JsonValue> run(String configFile, String testName, int testIndex, String reportPath,
+    List<int[]> tuples) throws InterruptedException {
+    int shardSize = Math.max(1, (int) Math.ceil((double) tuples.size() / (workers.size() * SHARDS_PER_WORKER)));
+    Queue<List<Integer>> shards = new ConcurrentLinkedQueue<>();
+    for (int first = 0; first < tuples.size(); first += shardSize) {
+      List<Integer> shard = new ArrayList<>();
+      for (int position = first; position < Math.min(tuples.size(), first + shardSize); position++) {
+        shard.add(position);
+      }
+      shards.add(shard);
+    }
+    AtomicReferenceArray<JsonValue> results = new AtomicReferenceArray<>(tuples.size());
+    AtomicReferenceArray<String> ranBy = new AtomicReferenceArray<>(tuples.size());
+    List<String> liveWorkers = new CopyOnWriteArrayList<>(workers);
+    logger.info("Running " + tuples.size() + " tuples of " + testName + " on " + workers.size()
+      + " workers, in " + shards.size() + " shards");
+
+    // a failed worker puts back the rest of its shard, possibly after the others have stopped
+    while (!shards.isEmpty() && !liveWorkers.isEmpty()) {
+      List<Callable<Object>> workerRuns = new ArrayList<>();
+      for (String worker : liveWorkers) {
+        workerRuns.add(() -> {
+          List<Integer> shard;
+          while ((shard = shards.poll()) != null) {
+            try {
+              runShard(worker, configFile, testIndex, reportPath, tuples, shard, results, ranBy);
+            } catch (IOException e) {
+              logger.error("Worker " + worker + " failed, not using it anymore: " + e.getLocalizedMessage());
+              liveWorkers.remove(worker);
+              List<Integer> rest = new ArrayList<>();
+              for (int position : shard) {
+                if (ranBy.get(position) == null) {
+                  rest.add(position);
+                }
+              }
+              if (!rest.isEmpty()) {
+                shards.add(rest);
+              }
+              return null;
+            }
+          }
+          return null;
+        });
+      }
+      KiteScheduler.getInstance().invokeAll(workerRuns, 0);
+    }
+
+    List<JsonValue> resultList = new ArrayList<>();
+    JsonArrayBuilder tupleReports = Json.createArrayBuilder();
+    int completed = 0;
+    for (int position = 0; position < tuples.size(); position++) {
+      resultList.add(results.get(position));
+      JsonArrayBuilder clients = Json.createArrayBuilder();
+      for (int clientIndex : tuples.get(position)) {
+        clients.add(clientIndex);
+      }
+      JsonObjectBuilder tupleReport = Json.createObjectBuilder().add("tuple", position).add("clients", clients);
+      if (ranBy.get(position) != null) {
+        tupleReport.add("worker", ranBy.get(position));
+        completed++;
+      }
+      if (results.get(position) != null) {
+        tupleReport.add("result", results.get(position));
+      }
+      tupleReports.add(tupleReport);
+    }
+    JsonArrayBuilder workerList = Json.createArrayBuilder();
+    for (String worker : workers) {
+      workerList.add(worker);
+    }
+    this.report = Json.createObjectBuilder()
+      .add("test", testName)
+      .add("workers", workerList)
+      .add("tuples", tuples.size())
+      .add("completed", completed)
+      .add("results", tupleReports)
+      .build();
+    if (completed < tuples.size()) {
+      logger.error((tuples.size() - completed) + " tuples of " + testName + " could not be run, no worker left");
+    }
+    logger.info("Workers finished " + completed + "/" + tuples.size() + " tuples of " + testName);
+    return resultList;
+  }
+
+  private void runShard(String worker, String configFile, int testIndex, String reportPath, List<int[]> tuples,
+    List<Integer> shard, AtomicReferenceArray<JsonValue> results, AtomicReferenceArray<String> ranBy)
+    throws IOException {
+    JsonArrayBuilder positions = Json.createArrayBuilder();
+    JsonArrayBuilder shardTuples = Json.createArrayBuilder();
+    for (int position : shard) {
+      positions.add(position);
+      JsonArrayBuilder clients = Json.createArrayBuilder();
+      for (int clientIndex : tuples.get(position)) {
+        clients.add(clientIndex);
+      }
+      shardTuples.add(clients);
+    }
+    JsonObjectBuilder request = Json.createObjectBuilder()
+      .add("configFile", configFile)
+      .add("test", testIndex)
+      .add("positions", positions)
+      .add("tuples", shardTuples);
+    if (reportPath != null) {
+      request.add("reportPath", reportPath);
+    }
+
+    HttpURLConnection connection = (HttpURLConnection) new URL(worker + "/shard").openConnection();
+    connection.setRequestMethod("POST");
+    connection.setDoOutput(true);
+    connection.setConnectTimeout(CONNECT_TIMEOUT);
+    // the tests of a shard can take hours, but the worker sends a keep-alive line regularly
+    connection.setReadTimeout(READ_TIMEOUT);
+    connection.setRequestProperty("Content-Type", "application/json");
+    try {
+      try (OutputStream out = connection.getOutputStream()) {
+        out.write(request.build().toString().getBytes(StandardCharsets.UTF_8));
+      }
+      if (connection.getResponseCode() != 200) {
+        throw new IOException("HTTP " + connection.getResponseCode());
+      }
+      boolean done = false;
+      try (BufferedReader reader = new BufferedReader(
+        new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          JsonObject message;
+          try (JsonReader jsonReader = Json.createReader(new StringReader(line))) {
+            message = jsonReader.readObject();
+          }
+          if (message.containsKey("error")) {
+            throw new IOException(message.getString("error"));
+          }
+          if (message.containsKey("keepAlive")) {
+            continue;
+          }
+          if (message.containsKey("done")) {
+            done = true;
+          } else if (message.containsKey("tuple")) {
+            int position = message.getInt("tuple");
+            if (message.containsKey("result")) {
+              results.set(position, message.get("result"));
+            }
+            ranBy.set(position, worker);
+          }
+        }
+      }
+      if (!done) {
+        throw new IOException("Disconnected before the end of the shard");
+      }
+    } finally {
+      connection.disconnect();
+    }
+  }
+
+  /**
+   * Gets the merged results of the last run: the worker that ran each tuple and its result.
+   *
+   * @return the report, null if not run yet
+   */
+  public JsonObject getReport() {
+    return report;
+  }
+
+  /**
+   * Writes the report of the last run to a file.
+   *
+   * @param file the file
+   *
+   * @throws IOException if the file cannot be written
+   */
+  public void writeReport(File file) throws IOException {
+    if (report == null) {
+      return;
+    }
+    if (file.getParentFile() != null) {
+      file.getParentFile().mkdirs();
+    }
+    Files.write(file.toPath(), report.toString().getBytes(StandardCharsets.UTF_8));
+  }
+}
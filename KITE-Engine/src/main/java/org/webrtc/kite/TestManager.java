@@ -26,7 +26,6 @@ import io.cosmosoftware.kite.report.KiteLogger;
 import io.cosmosoftware.kite.report.Status;
 import io.cosmosoftware.kite.steps.StepPhase;
 import io.cosmosoftware.kite.usrmgmt.EmailSender;
-import io.cosmosoftware.kite.util.WebDriverUtils;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
@@ -40,6 +39,8 @@ import java.util.concurrent.Callable;
 import javax.json.Json;
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
+import org.webrtc.kite.config.client.Client;
+import org.webrtc.kite.config.paas.PaasPlacement;
 import org.webrtc.kite.config.test.TestConfig;
 import org.webrtc.kite.config.test.Tuple;
 import org.webrtc.kite.tests.KiteBaseTest;
@@ -69,6 +70,12 @@ public class TestManager implements Callable<Object> {
   /** The retry. */
   private final int retry;
 
+  /** The attempt of this test manager for its tuple, 1 for the first one. */
+  private int attempt = 1;
+
+  /** Whether the test failed for a reason that may be transient (grid failure, broken test). */
+  private boolean retryable = false;
+
   /** The start timestamp. */
   private long startTime = System.currentTimeMillis();
 
@@ -100,6 +107,10 @@ public class TestManager implements Callable<Object> {
   private boolean finished = false;
 
   private int delay = 0;
+
+  /** Whether the clients of the tuple were released from their Paas. */
+  private boolean released = false;
+
   /**
    * Constructs a new TestManager with the given TestConfig and List<Client>.
    *
@@ -144,6 +155,7 @@ public class TestManager implements Callable<Object> {
     
     test.setTuple(tuple);
     test.setCurrentIteration(this.id);
+    test.setAttempt(this.attempt);
     test.setDelayForClosing(testConfig.getDelayForClosing());
     test.setGenerateReport(testConfig.generateReport());
     test.setPhases(this.phases);
@@ -230,6 +242,7 @@ public class TestManager implements Callable<Object> {
     JsonObject jsonTestResult = developResult(builder.build());
 
     sendEmail(jsonTestResult);
+    retryable = hasTransientFailure();
     test = null;
     finished = true;
     return jsonTestResult;
@@ -239,6 +252,49 @@ public class TestManager implements Callable<Object> {
     return finished;
   }
 
+  /**
+   * Checks whether the test of the tuple failed because the grid could not create a WebDriver,
+   * or is broken rather than failed.
+   *
+   * @return true if running the tuple again may succeed
+   */
+  private boolean hasTransientFailure() {
+    for (Client client : tuple.getClients()) {
+      if (client.isGridFailure()) {
+        return true;
+      }
+    }
+    try {
+      return test != null && !test.isLoadTest()
+        && test.getReport(currentPhase).getActualStatus().equals(Status.BROKEN);
+    } catch (Exception e) {
+      return false;
+    }
+  }
+
+  /**
+   * Checks whether the tuple should be run again: its interop test failed for a reason that may be
+   * transient, and the maxRetryCount of the test config is not reached.
+   *
+   * @return true if the tuple should be retried
+   */
+  public boolean isRetryable() {
+    return retryable && !testConfig.isLoadTest() && attempt <= retry;
+  }
+
+  /**
+   * Sets the attempt of this test manager for its tuple, 1 for the first one.
+   *
+   * @param attempt the attempt
+   */
+  public void setAttempt(int attempt) {
+    this.attempt = attempt;
+  }
+
+  public int getAttempt() {
+    return attempt;
+  }
+
   public StepPhase getCurrentPhase() {
     return currentPhase;
   }
@@ -389,7 +445,21 @@ public class TestManager implements Callable<Object> {
       }
       if (!testConfig.isJavascript()) {
         logger.info("Terminating, quiting web drivers");
-        WebDriverUtils.closeDrivers(this.tuple.getWebDrivers());
+        WebDriverPool.getInstance().release(this.tuple);
+      }
+    }
+    releasePaas();
+  }
+
+  /**
+   * Counts the clients of the tuple as no longer assigned to their Paas, only once even if the
+   * test manager is terminated several times.
+   */
+  private synchronized void releasePaas() {
+    if (!this.released) {
+      this.released = true;
+      for (Client client : this.tuple.getClients()) {
+        PaasPlacement.getInstance().release(client.getPaas());
       }
     }
   }
@@ -19,6 +19,8 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
+import org.webrtc.kite.config.paas.Paas;
 import org.webrtc.kite.config.test.TestConfig;
 import org.webrtc.kite.config.test.Tuple;
 
@@ -44,6 +46,15 @@ public class TestRunThread implements Callable<List<Future<Object>>> {
 
   private int currentIteration = 0;
 
+  /** Notified of the result of each tuple, null if none. */
+  private BiConsumer<Integer, Object> resultListener;
+
+  /** The checkpoint journal, null if none. */
+  private RunJournal journal;
+
+  /** The paas the tuples to retry are placed on, null if none. */
+  private List<Paas> paasList;
+
   /** The matrix runner. */
   private MatrixRunner matrixRunner;
 
@@ -66,6 +77,15 @@ public class TestRunThread implements Callable<List<Future<Object>>> {
     this.matrixRunner = new MatrixRunner(testManagers, this.name);
   }
 
+  /**
+   * Gets the test config.
+   *
+   * @return the test config
+   */
+  public TestConfig getTestConfig() {
+    return testConfig;
+  }
+
   /**
    * Sets the name.
    *
@@ -88,6 +108,9 @@ public class TestRunThread implements Callable<List<Future<Object>>> {
         logger.info("Running " + testConfig + " ...");
         this.matrixRunner = new MatrixRunner(testConfig, tupleList, this.name);
         this.matrixRunner.setCurrentIteration(this.currentIteration);
+        this.matrixRunner.setResultListener(this.resultListener);
+        this.matrixRunner.setJournal(this.journal);
+        this.matrixRunner.setPaasList(this.paasList);
       } else {
         logger.info("Running LOADREACHED phase for " + testConfig);
       }
@@ -138,12 +161,56 @@ public class TestRunThread implements Callable<List<Future<Object>>> {
     this.currentIteration = currentIteration;
   }
 
+  /**
+   * Sets the listener notified of the result of each tuple of an interop test as soon as it is
+   * known, with its index in the tuple list.
+   *
+   * @param resultListener the result listener
+   */
+  public void setResultListener(BiConsumer<Integer, Object> resultListener) {
+    this.resultListener = resultListener;
+  }
 
-  public void setLastThread(boolean lastThread) {
-    this.matrixRunner.setLastThread(true);
+  /**
+   * Sets the checkpoint journal the completed tuples of an interop test are appended to.
+   *
+   * @param journal the journal
+   */
+  public void setJournal(RunJournal journal) {
+    this.journal = journal;
   }
 
-  public boolean isLastThread() {
-    return matrixRunner.isLastThread();
+  /**
+   * Sets the paas the clients of the tuples to retry are placed on.
+   *
+   * @param paasList the paas list
+   */
+  public void setPaasList(List<Paas> paasList) {
+    this.paasList = paasList;
+  }
+
+  /**
+   * Gets the number of clients started by this thread.
+   *
+   * @return the total size of its tuples
+   */
+  public int getClientCount() {
+    int count = 0;
+    if (this.tupleList != null) {
+      for (Tuple tuple : this.tupleList) {
+        count += tuple.size();
+      }
+    }
+    return count;
+  }
+
+
+  /**
+   * Sets the barrier the matrix runner waits at before tearing down.
+   *
+   * @param phaseCoordinator the phase coordinator
+   */
+  public void setPhaseCoordinator(PhaseCoordinator phaseCoordinator) {
+    this.matrixRunner.setPhaseCoordinator(phaseCoordinator);
   }
 }
@@ -0,0 +1,288 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.webrtc.kite;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.cosmosoftware.kite.report.KiteLogger;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.json.Json;
+import javax.json.JsonArray;
+import javax.json.JsonException;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+import org.webrtc.kite.config.Configurator;
+import org.webrtc.kite.config.client.Client;
+import org.webrtc.kite.config.test.TestConfig;
+import org.webrtc.kite.config.test.Tuple;
+
+/**
+ * A worker engine, running the shards of tuples sent by a coordinator engine (see ShardCoordinator).
+ * <p>
+ * A shard is posted as JSON to http://host:port/shard:
+ * {"configFile": "/path/config.json", "test": 0, "reportPath": "...", "positions": [4, 5],
+ * "tuples": [[0, 1], [0, 2]]}, where test is the index of the test in the config file, tuples are
+ * the indexes of the clients of each tuple in the client list of the config file, and positions
+ * the indexes of the tuples in the tuple list of the coordinator. The config file must be readable
+ * by the worker at the same path.
+ * </p>
+ * The worker runs the shard with a MatrixRunner, on the grids of the config file, and streams
+ * back one JSON line per tuple as soon as its test is finished: {"tuple": 4, "result": {...}},
+ * followed by {"done": 2}, or {"error": "..."} if the shard could not be run. While the tests run,
+ * it also sends {"keepAlive": true} every KEEP_ALIVE_INTERVAL seconds, so that the coordinator can
+ * tell a long test from a dead worker. If the coordinator disconnects, the shard is stopped.
+ * <p>
+ * The scheduler, placement and session pool settings are engine-wide: they are applied when a
+ * shard of a config file not run yet by this worker arrives, the strictest of all the config files
+ * run, and left as they are for the shards of the config files already known.
+ * </p>
+ */
+public class WorkerServer {
+
+  private static final KiteLogger logger = KiteLogger.getLogger(WorkerServer.class.getName());
+
+  /** The interval between two keep-alive lines, in seconds. */
+  static final int KEEP_ALIVE_INTERVAL = 30;
+
+  private final InetSocketAddress address;
+  private final AtomicInteger runningShards = new AtomicInteger();
+  /** The configurators of the config files run by this worker, by path. Guarded by this. */
+  private final Map<String, Configurator> appliedConfigs = new HashMap<>();
+  private HttpServer server;
+  private ExecutorService executor;
+  private ScheduledExecutorService keepAliveExecutor;
+
+  /**
+   * Constructs a new WorkerServer.
+   *
+   * @param address the address to listen to
+   */
+  public WorkerServer(InetSocketAddress address) {
+    this.address = address;
+  }
+
+  /**
+   * Parses the address of a worker given on the command line: port, or host:port.
+   * Without host, only the loopback interface is listened to.
+   *
+   * @param value the port, or host:port
+   *
+   * @return the address
+   * @throws NumberFormatException if the port is not a number
+   */
+  public static InetSocketAddress parseAddress(String value) {
+    int separator = value.lastIndexOf(':');
+    if (separator < 0) {
+      return new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(value));
+    }
+    return new InetSocketAddress(value.substring(0, separator), Integer.parseInt(value.substring(separator + 1)));
+  }
+
+  /**
+   * Starts listening.
+   *
+   * @throws IOException if the address cannot be bound
+   */
+  public synchronized void start() throws IOException {
+    if (server != null) {
+      return;
+    }
+    server = HttpServer.create(address, 0);
+    server.createContext("/shard", this::handleShard);
+    server.createContext("/status", this::handleStatus);
+    executor = Executors.newCachedThreadPool(runnable -> {
+      Thread thread = new Thread(runnable, "kite-worker");
+      thread.setDaemon(true);
+      return thread;
+    });
+    keepAliveExecutor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "kite-worker-keepalive");
+      thread.setDaemon(true);
+      return thread;
+    });
+    server.setExecutor(executor);
+    server.start();
+    logger.info("Worker listening at http://" + address.getHostString() + ":" + server.getAddress().getPort());
+  }
+
+  /**
+   * Stops listening, and the shards running.
+   */
+  public synchronized void stop() {
+    if (server != null) {
+      server.stop(0);
+      executor.shutdownNow();
+      keepAliveExecutor.shutdownNow();
+      server = null;
+      executor = null;
+      keepAliveExecutor = null;
+    }
+  }
+
+  private void handleStatus(HttpExchange exchange) throws IOException {
+    try {
+      byte[] body = Json.createObjectBuilder().add("runningShards", runningShards.get()).build()
+        .toString().getBytes(StandardCharsets.UTF_8);
+      exchange.getResponseHeaders().set("Content-Type", "application/json");
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void handleShard(HttpExchange exchange) throws IOException {
+    try {
+      if (!"POST".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      JsonObject shard;
+      try (JsonReader reader = Json.createReader(exchange.getRequestBody())) {
+        shard = reader.readObject();
+      } catch (JsonException e) {
+        exchange.sendResponseHeaders(400, -1);
+        return;
+      }
+      exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+      exchange.sendResponseHeaders(200, 0);
+      runningShards.incrementAndGet();
+      try (Writer writer = new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8)) {
+        runShard(shard, writer);
+      } finally {
+        runningShards.decrementAndGet();
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void runShard(JsonObject shard, Writer writer) throws IOException {
+    Configurator configurator = new Configurator();
+    Engine.buildConfig(configurator, shard.getString("configFile", null));
+    if (configurator.getConfigHandler() == null) {
+      writeLine(writer, Json.createObjectBuilder()
+        .add("error", "Could not read " + shard.getString("configFile", null)).build());
+      return;
+    }
+    List<TestConfig> testList = configurator.getConfigHandler().getTestList();
+    int testIndex = shard.getInt("test", 0);
+    if (testIndex < 0 || testIndex >= testList.size()) {
+      writeLine(writer, Json.createObjectBuilder().add("error", "No test " + testIndex).build());
+      return;
+    }
+    applySchedulerSettings(configurator);
+    TestConfig testConfig = testList.get(testIndex);
+    testConfig.setPathToConfigFile(configurator.getConfigFilePath());
+    testConfig.setReportPath(shard.getString("reportPath", configurator.getReportPath()));
+
+    List<Client> clients = configurator.getConfigHandler().getClientList();
+    JsonArray tuples = shard.getJsonArray("tuples");
+    JsonArray positions = shard.getJsonArray("positions");
+    List<Tuple> tupleList = new ArrayList<>();
+    for (int index = 0; index < tuples.size(); index++) {
+      Tuple tuple = new Tuple();
+      JsonArray clientIndexes = tuples.getJsonArray(index);
+      for (int clientIndex = 0; clientIndex < clientIndexes.size(); clientIndex++) {
+        tuple.add(clients.get(clientIndexes.getInt(clientIndex)));
+      }
+      tupleList.add(tuple);
+    }
+    logger.info("Running " + tupleList.size() + " tuples of " + testConfig.getName() + " for the coordinator");
+    Engine.distributeRemote(configurator.getRemoteList(), tupleList);
+
+    TestRunThread runThread = new TestRunThread(testConfig, tupleList);
+    runThread.setName(configurator.getName());
+    runThread.setCurrentIteration(positions.isEmpty() ? 0 : positions.getInt(0));
+    runThread.setPaasList(configurator.getRemoteList());
+    runThread.setResultListener((index, result) -> {
+      JsonObjectBuilder line = Json.createObjectBuilder().add("tuple", positions.getInt(index));
+      if (result instanceof JsonValue) {
+        line.add("result", (JsonValue) result);
+      } else if (result != null) {
+        line.add("result", result.toString());
+      }
+      try {
+        writeLine(writer, line.build());
+      } catch (IOException e) {
+        logger.warn("Lost the coordinator, stopping the shard: " + e.getLocalizedMessage());
+        runThread.interrupt();
+      }
+    });
+    ScheduledFuture<?> keepAlive = scheduleKeepAlive(writer, runThread);
+    try {
+      runThread.call();
+    } finally {
+      keepAlive.cancel(false);
+    }
+    writeLine(writer, Json.createObjectBuilder().add("done", tupleList.size()).build());
+  }
+
+  /**
+   * Applies the scheduler settings of the config files run by this worker, when a shard of a new
+   * one arrives, so that the shards already running are not affected by the next ones.
+   */
+  private synchronized void applySchedulerSettings(Configurator configurator) {
+    String key = String.valueOf(configurator.getConfigFilePath());
+    if (!appliedConfigs.containsKey(key)) {
+      appliedConfigs.put(key, configurator);
+      Engine.applySchedulerSettings(new ArrayList<>(appliedConfigs.values()));
+    }
+  }
+
+  private synchronized ScheduledFuture<?> scheduleKeepAlive(Writer writer, TestRunThread runThread) {
+    JsonObject line = Json.createObjectBuilder().add("keepAlive", true).build();
+    return keepAliveExecutor.scheduleAtFixedRate(() -> {
+      try {
+        writeLine(writer, line);
+      } catch (IOException e) {
+        logger.warn("Lost the coordinator, stopping the shard: " + e.getLocalizedMessage());
+        runThread.interrupt();
+        // no more keep-alive lines
+        throw new IllegalStateException(e);
+      }
+    }, KEEP_ALIVE_INTERVAL, KEEP_ALIVE_INTERVAL, TimeUnit.SECONDS);
+  }
+
+  private static void writeLine(Writer writer, JsonObject line) throws IOException {
+    synchronized (writer) {
+      writer.write(line.toString());
+      writer.write('\n');
+      writer.flush();
+    }
+  }
+}
@@ -23,8 +23,10 @@ import io.cosmosoftware.kite.util.CircularLinkedList;
 import io.cosmosoftware.kite.usrmgmt.EmailSender;
 import org.webrtc.kite.config.client.Client;
 import org.webrtc.kite.config.paas.Paas;
+import org.webrtc.kite.config.paas.PaasPlacement;
 import org.webrtc.kite.config.test.TestConfig;
 import org.webrtc.kite.config.test.Tuple;
+import org.webrtc.kite.exception.KiteBadValueException;
 import org.webrtc.kite.exception.KiteInsufficientValueException;
 
 import javax.json.JsonArray;
@@ -61,6 +63,18 @@ public class Configurator {
   private JsonObject jsonConfigObject;
   private String name;
   private boolean skipSame = false;
+  private int metricsPort = 0;
+  private int maxConcurrency = 0;
+  private int maxConcurrencyPerPaas = 0;
+  private boolean virtualThreads = false;
+  private boolean concurrentTests = false;
+  private int sessionPoolMaxUses = 0;
+  private int sessionPoolIdleTimeout = 0;
+  private int sessionLookAhead = 0;
+  private List<String> workers = new ArrayList<>();
+  private String placement = PaasPlacement.LEAST_LOADED;
+  private String tupleStrategy = "full";
+  private int tupleStrength = 0;
   private List<JsonObject> testObjectList;
   private List<List<Integer>> matrix = new ArrayList<>();
   private long timeStamp = System.currentTimeMillis();
@@ -175,6 +189,26 @@ public class Configurator {
     }
     
     skipSame = jsonConfigObject.getBoolean("skipSame", skipSame);
+    metricsPort = jsonConfigObject.getInt("metricsPort", metricsPort);
+    maxConcurrency = jsonConfigObject.getInt("maxConcurrency", maxConcurrency);
+    maxConcurrencyPerPaas = jsonConfigObject.getInt("maxConcurrencyPerPaas", maxConcurrencyPerPaas);
+    virtualThreads = jsonConfigObject.getBoolean("virtualThreads", virtualThreads);
+    concurrentTests = jsonConfigObject.getBoolean("concurrentTests", concurrentTests);
+    sessionPoolMaxUses = jsonConfigObject.getInt("sessionPoolMaxUses", sessionPoolMaxUses);
+    sessionPoolIdleTimeout = jsonConfigObject.getInt("sessionPoolIdleTimeout", sessionPoolIdleTimeout);
+    sessionLookAhead = jsonConfigObject.getInt("sessionLookAhead", sessionLookAhead);
+    JsonArray workerArray = jsonConfigObject.getJsonArray("workers");
+    if (workerArray != null) {
+      for (int i = 0; i < workerArray.size(); i++) {
+        workers.add(workerArray.getString(i).replaceAll("/+$", ""));
+      }
+    }
+    placement = jsonConfigObject.getString("placement", placement);
+    if (!placement.equals(PaasPlacement.LEAST_LOADED) && !placement.equals(PaasPlacement.POWER_OF_TWO)) {
+      throw new KiteBadValueException("placement");
+    }
+    tupleStrategy = jsonConfigObject.getString("tupleStrategy", tupleStrategy);
+    tupleStrength = parseTupleStrength(tupleStrategy);
     logger.info("Finished reading the configuration file");
   }
 
@@ -197,40 +231,52 @@ public class Configurator {
    * @param permute    the permute
    * @param regression the regression
    *
-   * @return a matrix of browser tuples as List<Tuple>
+   * @return a matrix of browser tuples as List<Tuple>, each tuple being created when it is got
    */
   public List<Tuple> buildTuples(int tupleSize, boolean permute, boolean regression) {
-    List<Tuple> listOfTuples = new ArrayList<>();
     if (regression) {
       // only add 1 placeholder tuple
+      List<Tuple> listOfTuples = new ArrayList<>();
       listOfTuples.add(new Tuple());
-    } else {
-
-      List<Client> clientList = this.configHandler.getClientList();
-
-      List<Client> focusedList = new ArrayList<>();
-      for (Client client : clientList) {
-        if (! client.isExclude()) {
-          focusedList.add(client);
-        }
-      }
-
-      listOfTuples = recursivelyBuildTuples(tupleSize, 0, clientList, (new Tuple()).getClients(), permute);
-
-      List<Tuple> tempListOfTuples = new ArrayList<>(listOfTuples);
-      for (Tuple tuple : tempListOfTuples) {
-        if (Collections.disjoint(tuple.getClients(), focusedList)
-            || (skipSame && tuple.getClients().stream().distinct().limit(2).count() <= 1)) {
-          listOfTuples.remove(tuple);
-        }
-      }
-      for (Tuple t :listOfTuples) {
-        logger.debug("Tuple = " + t.getId());
-      }      
+      return listOfTuples;
+    }
+    List<Client> clientList = this.configHandler.getClientList();
+    if (tupleStrength > 0 && tupleStrength < tupleSize * 4) {
+      CoveringTupleGenerator generator =
+          new CoveringTupleGenerator(clientList, tupleSize, permute, skipSame, tupleStrength);
+      LazyTupleList listOfTuples = new LazyTupleList(clientList, tupleSize, generator.generate().iterator());
+      logger.info("Built " + listOfTuples.size() + " " + tupleStrategy + " tuples of size " + tupleSize
+          + " instead of " + generator.getCandidateCount() + ", reduction factor "
+          + String.format("%.1f", (double) generator.getCandidateCount() / Math.max(1, listOfTuples.size()))
+          + ", covering " + generator.getInteractionCount() + " interactions");
+      return listOfTuples;
     }
+    LazyTupleList listOfTuples = new LazyTupleList(clientList, tupleSize,
+        new TupleGenerator(clientList, tupleSize, permute, skipSame));
+    logger.debug("Built " + listOfTuples.size() + " tuples of size " + tupleSize);
     return listOfTuples;
   }
 
+  /**
+   * Parses the tupleStrategy: full, pairwise or t-wise (e.g. 3-wise).
+   *
+   * @param tupleStrategy the tupleStrategy
+   *
+   * @return the number of attribute values each interaction covers, 0 for full
+   */
+  private static int parseTupleStrength(String tupleStrategy) {
+    if (tupleStrategy.equals("full")) {
+      return 0;
+    }
+    if (tupleStrategy.equals("pairwise")) {
+      return 2;
+    }
+    if (tupleStrategy.matches("[1-9][0-9]?-wise")) {
+      return Integer.parseInt(tupleStrategy.substring(0, tupleStrategy.indexOf('-')));
+    }
+    throw new KiteBadValueException("tupleStrategy");
+  }
+
   /**
    * Gets the command name for the NW instrumentation.
    *
@@ -350,6 +396,107 @@ public class Configurator {
     return reportPath;
   }
 
+  /**
+   * Gets the port of the live metrics endpoint on localhost.
+   *
+   * @return the port, 0 if the endpoint is disabled
+   */
+  public int getMetricsPort() {
+    return metricsPort;
+  }
+
+  /**
+   * Gets the maximum number of test runners (and test runner creations) running at the same time.
+   *
+   * @return the limit, 0 for no limit
+   */
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  /**
+   * Gets the maximum number of test runners running at the same time on a Paas,
+   * for the Paas without a maxConcurrency of their own.
+   *
+   * @return the limit, 0 for no limit
+   */
+  public int getMaxConcurrencyPerPaas() {
+    return maxConcurrencyPerPaas;
+  }
+
+  /**
+   * Checks whether the test runners, their creation and the test managers run on virtual threads.
+   *
+   * @return true if virtual threads were requested (they also require Java 21 or later)
+   */
+  public boolean isVirtualThreads() {
+    return virtualThreads;
+  }
+
+  /**
+   * Checks whether the tests of this config run at the same time, each on its share of the paas.
+   *
+   * @return true if the tests of this config run at the same time
+   */
+  public boolean isConcurrentTests() {
+    return concurrentTests;
+  }
+
+  /**
+   * Gets the number of tests a pooled WebDriver session is used for before being quit.
+   *
+   * @return the number of tests, 0 if the sessions are not pooled
+   */
+  public int getSessionPoolMaxUses() {
+    return sessionPoolMaxUses;
+  }
+
+  /**
+   * Gets the number of seconds a WebDriver session can stay idle in the pool.
+   *
+   * @return the number of seconds, 0 for the default
+   */
+  public int getSessionPoolIdleTimeout() {
+    return sessionPoolIdleTimeout;
+  }
+
+  /**
+   * Gets the number of tuples of an interop test whose WebDriver sessions are created in advance,
+   * while the previous tuples run.
+   *
+   * @return the number of tuples, 0 to create the sessions when each test starts
+   */
+  public int getSessionLookAhead() {
+    return sessionLookAhead;
+  }
+
+  /**
+   * Gets the worker engines the tuples of the interop tests are run on.
+   *
+   * @return the urls of the workers, empty to run the tests on this engine
+   */
+  public List<String> getWorkers() {
+    return workers;
+  }
+
+  /**
+   * Gets the strategy used to assign the clients to the paas.
+   *
+   * @return leastLoaded or powerOfTwo
+   */
+  public String getPlacement() {
+    return placement;
+  }
+
+  /**
+   * Gets the strategy used to build the tuples.
+   *
+   * @return full, pairwise or t-wise
+   */
+  public String getTupleStrategy() {
+    return tupleStrategy;
+  }
+
   /**
    * Gets json config object.
    *
@@ -0,0 +1,278 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.webrtc.kite.config;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.LongConsumer;
+import org.webrtc.kite.config.client.BrowserSpecs;
+import org.webrtc.kite.config.client.Client;
+import org.webrtc.kite.exception.KiteBadValueException;
+
+/**
+ * Selects a t-wise covering subset of the tuples of a test, instead of all of them.
+ * <p>
+ * Each position of a tuple has four attributes, taken from its client: browserName, version,
+ * platform and networkProfile. A t-wise interaction is a combination of values of t attributes,
+ * at the same or different positions (e.g. for t = 2: chrome at the first position and firefox at
+ * the second one, or version 70 and platform MAC at the first position). The tuples selected cover
+ * every interaction found in at least one of the tuples of the full matrix (after the exclude and
+ * skipSame filters), so every pair (pairwise) of attribute values is still tested together.
+ * </p>
+ * The tuples are chosen greedily, building each one position by position with the client covering
+ * the most uncovered interactions, keeping the best of a few attempts. The result is reproducible.
+ */
+public class CoveringTupleGenerator {
+
+  /** browserName, version, platform, networkProfile. */
+  private static final int ATTRIBUTES = 4;
+  /** The number of tuples built before keeping the best one. */
+  private static final int ATTEMPTS = 10;
+
+  private final List<Client> clients;
+  private final int tupleSize;
+  private final boolean permute;
+  private final boolean skipSame;
+  private final int strength;
+  /** The value of each attribute of each client, as an index. */
+  private final int[][] values;
+  private final int valueCount;
+  private final long base;
+  private final int[] allFactors;
+  private long candidateCount = 0;
+  private int interactionCount = 0;
+
+  /**
+   * Constructs a new CoveringTupleGenerator.
+   *
+   * @param clients   the clients
+   * @param tupleSize the size of the tuples
+   * @param permute   true for all the ordered tuples, false for the combinations
+   * @param skipSame  true to skip the tuples made of the same client
+   * @param strength  the number of attribute values of each interaction, 2 for pairwise
+   *
+   * @throws KiteBadValueException if the strength is not supported for this tuple size
+   */
+  public CoveringTupleGenerator(List<Client> clients, int tupleSize, boolean permute, boolean skipSame,
+      int strength) throws KiteBadValueException {
+    this.clients = clients;
+    this.tupleSize = tupleSize;
+    this.permute = permute;
+    this.skipSame = skipSame;
+    this.strength = strength;
+    this.values = new int[clients.size()][ATTRIBUTES];
+    List<Map<String, Integer>> dictionaries = new ArrayList<>();
+    for (int attribute = 0; attribute < ATTRIBUTES; attribute++) {
+      dictionaries.add(new HashMap<>());
+    }
+    int maxValues = 1;
+    for (int index = 0; index < clients.size(); index++) {
+      String[] attributes = getAttributes(clients.get(index));
+      for (int attribute = 0; attribute < ATTRIBUTES; attribute++) {
+        Map<String, Integer> dictionary = dictionaries.get(attribute);
+        values[index][attribute] = dictionary.computeIfAbsent(attributes[attribute], value -> dictionary.size());
+        maxValues = Math.max(maxValues, dictionary.size());
+      }
+    }
+    this.valueCount = maxValues;
+    int factorCount = tupleSize * ATTRIBUTES;
+    this.base = (long) factorCount * valueCount;
+    if (strength < 1 || strength > factorCount || Math.pow(base, strength) >= Long.MAX_VALUE) {
+      throw new KiteBadValueException("tupleStrategy");
+    }
+    this.allFactors = new int[factorCount];
+    for (int factor = 0; factor < factorCount; factor++) {
+      allFactors[factor] = factor;
+    }
+  }
+
+  private static String[] getAttributes(Client client) {
+    BrowserSpecs specs = client.getBrowserSpecs();
+    return new String[] {
+        specs == null ? null : specs.getBrowserName(),
+        specs == null ? null : specs.getVersion(),
+        specs == null || specs.getPlatform() == null ? null : specs.getPlatform().name(),
+        client.getNetworkProfile() == null ? null : client.getNetworkProfile().getName()
+    };
+  }
+
+  /**
+   * Selects the tuples covering all the interactions.
+   *
+   * @return the tuples, as the indexes of their clients in the client list
+   */
+  public List<int[]> generate() {
+    Set<Long> uncovered = new HashSet<>();
+    TupleGenerator candidates = new TupleGenerator(clients, tupleSize, permute, skipSame);
+    candidateCount = 0;
+    while (candidates.hasNext()) {
+      forEachInteraction(candidates.next(), allFactors, -1, uncovered::add);
+      candidateCount++;
+    }
+    interactionCount = uncovered.size();
+
+    List<int[]> selection = new ArrayList<>();
+    Random random = new Random(tupleSize * 31L + clients.size());
+    while (!uncovered.isEmpty()) {
+      int[] best = null;
+      int bestGain = 0;
+      for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+        int[] tuple = build(random, uncovered);
+        if (!permute) {
+          Arrays.sort(tuple);
+        }
+        if (!candidates.accepts(tuple)) {
+          continue;
+        }
+        int gain = countUncovered(tuple, allFactors, -1, uncovered);
+        if (gain > bestGain) {
+          best = tuple;
+          bestGain = gain;
+        }
+      }
+      if (best == null) {
+        // the tuples built were filtered out, take the first one of the matrix covering something new
+        TupleGenerator fallback = new TupleGenerator(clients, tupleSize, permute, skipSame);
+        while (best == null && fallback.hasNext()) {
+          int[] tuple = fallback.next();
+          if (countUncovered(tuple, allFactors, -1, uncovered) > 0) {
+            best = tuple;
+          }
+        }
+        if (best == null) {
+          // cannot happen, every interaction was found in a tuple of the matrix
+          break;
+        }
+      }
+      selection.add(best);
+      forEachInteraction(best, allFactors, -1, uncovered::remove);
+    }
+    return selection;
+  }
+
+  /**
+   * Gets the number of tuples of the full matrix, after the exclude and skipSame filters.
+   *
+   * @return the number of tuples, known once generated
+   */
+  public long getCandidateCount() {
+    return candidateCount;
+  }
+
+  /**
+   * Gets the number of interactions covered.
+   *
+   * @return the number of interactions, known once generated
+   */
+  public int getInteractionCount() {
+    return interactionCount;
+  }
+
+  /**
+   * Builds a tuple position by position, in a random order, choosing each time the client covering
+   * the most uncovered interactions with the positions already chosen.
+   */
+  private int[] build(Random random, Set<Long> uncovered) {
+    int[] tuple = new int[tupleSize];
+    boolean[] assigned = new boolean[tupleSize];
+    List<Integer> positions = new ArrayList<>();
+    for (int position = 0; position < tupleSize; position++) {
+      positions.add(position);
+    }
+    Collections.shuffle(positions, random);
+    for (int position : positions) {
+      assigned[position] = true;
+      int[] factors = getFactors(assigned);
+      int offset = random.nextInt(clients.size());
+      int bestClient = offset;
+      int bestGain = -1;
+      for (int count = 0; count < clients.size(); count++) {
+        tuple[position] = (offset + count) % clients.size();
+        int gain = countUncovered(tuple, factors, position, uncovered);
+        if (gain > bestGain) {
+          bestClient = tuple[position];
+          bestGain = gain;
+        }
+      }
+      tuple[position] = bestClient;
+    }
+    return tuple;
+  }
+
+  private int[] getFactors(boolean[] assigned) {
+    int count = 0;
+    for (boolean isAssigned : assigned) {
+      count += isAssigned ? ATTRIBUTES : 0;
+    }
+    int[] factors = new int[count];
+    int index = 0;
+    for (int position = 0; position < assigned.length; position++) {
+      if (assigned[position]) {
+        for (int attribute = 0; attribute < ATTRIBUTES; attribute++) {
+          factors[index++] = position * ATTRIBUTES + attribute;
+        }
+      }
+    }
+    return factors;
+  }
+
+  private int countUncovered(int[] tuple, int[] factors, int requiredPosition, Set<Long> uncovered) {
+    int[] count = {0};
+    forEachInteraction(tuple, factors, requiredPosition, interaction -> {
+      if (uncovered.contains(interaction)) {
+        count[0]++;
+      }
+    });
+    return count[0];
+  }
+
+  /**
+   * Calls the consumer with the code of each interaction of a tuple.
+   *
+   * @param tuple            the indexes of the clients of the tuple
+   * @param factors          the (position, attribute) to combine, ascending
+   * @param requiredPosition only the interactions including this position, -1 for all of them
+   * @param consumer         the consumer
+   */
+  private void forEachInteraction(int[] tuple, int[] factors, int requiredPosition, LongConsumer consumer) {
+    combine(tuple, factors, 0, 0, 0L, requiredPosition < 0, requiredPosition, consumer);
+  }
+
+  private void combine(int[] tuple, int[] factors, int start, int depth, long code, boolean hasRequired,
+      int requiredPosition, LongConsumer consumer) {
+    if (depth == strength) {
+      if (hasRequired) {
+        consumer.accept(code);
+      }
+      return;
+    }
+    for (int index = start; index <= factors.length - (strength - depth); index++) {
+      int position = factors[index] / ATTRIBUTES;
+      int attribute = factors[index] % ATTRIBUTES;
+      long element = (long) factors[index] * valueCount + values[tuple[position]][attribute];
+      combine(tuple, factors, index + 1, depth + 1, code * base + element,
+          hasRequired || position == requiredPosition, requiredPosition, consumer);
+    }
+  }
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.webrtc.kite.config;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import org.webrtc.kite.config.client.Client;
+import org.webrtc.kite.config.test.Tuple;
+
+/**
+ * A read-only list of tuples keeping only the indexes of their clients.
+ * Each call to get creates a new Tuple, with its own copies of the clients, so the tuples should
+ * only be got when they are about to be run.
+ */
+public class LazyTupleList extends AbstractList<Tuple> implements RandomAccess {
+
+  private final List<Client> clients;
+  private final int tupleSize;
+  private int[] indexes;
+  private int size = 0;
+  private Consumer<Tuple> initializer = null;
+
+  /**
+   * Constructs a new LazyTupleList with all the tuples of a generator.
+   *
+   * @param clients   the clients the indexes refer to
+   * @param tupleSize the size of the tuples
+   * @param generator the generator of the tuples
+   */
+  public LazyTupleList(List<Client> clients, int tupleSize, Iterator<int[]> generator) {
+    this.clients = clients;
+    this.tupleSize = tupleSize;
+    this.indexes = new int[16 * Math.max(1, tupleSize)];
+    while (generator.hasNext()) {
+      int[] tuple = generator.next();
+      if ((size + 1) * tupleSize > indexes.length) {
+        indexes = Arrays.copyOf(indexes, indexes.length * 2);
+      }
+      System.arraycopy(tuple, 0, indexes, size * tupleSize, tupleSize);
+      size++;
+    }
+  }
+
+  /**
+   * Sets what is done to each tuple when it is created, e.g. assigning its clients to a paas.
+   *
+   * @param initializer the initializer
+   */
+  public void setInitializer(Consumer<Tuple> initializer) {
+    this.initializer = initializer;
+  }
+
+  /**
+   * Creates the tuple at the given position.
+   *
+   * @param index the position of the tuple
+   *
+   * @return a new Tuple
+   */
+  @Override
+  public Tuple get(int index) {
+    Tuple tuple = getUninitialized(index);
+    if (initializer != null) {
+      initializer.accept(tuple);
+    }
+    return tuple;
+  }
+
+  /**
+   * Creates the tuple at the given position without calling the initializer, e.g. to assign its
+   * clients to a paas differently.
+   *
+   * @param index the position of the tuple
+   *
+   * @return a new Tuple
+   */
+  public Tuple getUninitialized(int index) {
+    Tuple tuple = new Tuple();
+    for (int clientIndex : getIndexes(index)) {
+      tuple.add(clients.get(clientIndex));
+    }
+    return tuple;
+  }
+
+  /**
+   * Gets the indexes of the clients of a tuple in the client list, without creating it.
+   *
+   * @param index the position of the tuple
+   *
+   * @return the indexes
+   */
+  public int[] getIndexes(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+    return Arrays.copyOfRange(indexes, index * tupleSize, (index + 1) * tupleSize);
+  }
+
+  /**
+   * Creates a list of the tuples passing a filter, without creating them.
+   *
+   * @param filter the filter, given the indexes of the clients of each tuple
+   *
+   * @return a new LazyTupleList, without initializer
+   */
+  public LazyTupleList filter(Predicate<int[]> filter) {
+    List<int[]> kept = new ArrayList<>();
+    for (int index = 0; index < size; index++) {
+      int[] tuple = getIndexes(index);
+      if (filter.test(tuple)) {
+        kept.add(tuple);
+      }
+    }
+    return new LazyTupleList(clients, tupleSize, kept.iterator());
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+}
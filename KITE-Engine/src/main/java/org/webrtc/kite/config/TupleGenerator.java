@@ -0,0 +1,146 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.webrtc.kite.config;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import org.webrtc.kite.config.client.Client;
+
+/**
+ * Generates the tuples of a test on demand, as the indexes of their clients in the client list,
+ * in the same order as Configurator.recursivelyBuildTuples: every ordered tuple if permute,
+ * otherwise the tuples with non-decreasing indexes.
+ * <p>
+ * The tuples made only of excluded clients, and with skipSame the tuples made of the same client,
+ * are skipped while generating, so no Client is copied until a tuple is actually used.
+ * </p>
+ */
+public class TupleGenerator implements Iterator<int[]> {
+
+  private final int clientCount;
+  private final boolean permute;
+  private final boolean skipSame;
+  /** Whether the client at each index is not excluded. */
+  private final boolean[] focused;
+  /** The first index of a client equal to the client at each index. */
+  private final int[] sameAs;
+  private final int[] current;
+  private boolean hasNext;
+
+  /**
+   * Constructs a new TupleGenerator.
+   *
+   * @param clients   the clients
+   * @param tupleSize the size of the tuples
+   * @param permute   true for all the ordered tuples, false for the combinations
+   * @param skipSame  true to skip the tuples made of the same client
+   */
+  public TupleGenerator(List<Client> clients, int tupleSize, boolean permute, boolean skipSame) {
+    this.clientCount = clients.size();
+    this.permute = permute;
+    this.skipSame = skipSame;
+    this.focused = new boolean[clientCount];
+    this.sameAs = new int[clientCount];
+    for (int index = 0; index < clientCount; index++) {
+      Client client = clients.get(index);
+      sameAs[index] = clients.indexOf(client);
+      for (Client other : clients) {
+        if (!other.isExclude() && other.equals(client)) {
+          focused[index] = true;
+          break;
+        }
+      }
+    }
+    this.current = new int[Math.max(0, tupleSize)];
+    this.hasNext = clientCount > 0 && tupleSize > 0;
+    if (hasNext && !accepts(current)) {
+      advance();
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    return hasNext;
+  }
+
+  /**
+   * Gets the next tuple.
+   *
+   * @return the indexes of its clients in the client list
+   */
+  @Override
+  public int[] next() {
+    if (!hasNext) {
+      throw new NoSuchElementException();
+    }
+    int[] tuple = current.clone();
+    advance();
+    return tuple;
+  }
+
+  /**
+   * Gets the remaining tuples as a sequential stream.
+   *
+   * @return the stream
+   */
+  public Stream<int[]> stream() {
+    return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this,
+        Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+  }
+
+  /**
+   * Moves to the next tuple that is kept.
+   */
+  private void advance() {
+    do {
+      int position = current.length - 1;
+      while (position >= 0 && current[position] == clientCount - 1) {
+        position--;
+      }
+      if (position < 0) {
+        hasNext = false;
+        return;
+      }
+      current[position]++;
+      for (int next = position + 1; next < current.length; next++) {
+        current[next] = permute ? 0 : current[position];
+      }
+    } while (!accepts(current));
+  }
+
+  /**
+   * Checks whether a tuple passes the exclude and skipSame filters.
+   *
+   * @param tuple the indexes of its clients in the client list
+   *
+   * @return true if the tuple is kept
+   */
+  public boolean accepts(int[] tuple) {
+    boolean anyFocused = false;
+    boolean allSame = true;
+    for (int index : tuple) {
+      anyFocused |= focused[index];
+      allSame &= sameAs[index] == sameAs[tuple[0]];
+    }
+    return anyFocused && !(skipSame && allSame);
+  }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.webrtc.kite.config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import javax.json.Json;
+import org.junit.Test;
+import org.webrtc.kite.config.client.BrowserSpecs;
+import org.webrtc.kite.config.client.Client;
+
+/**
+ * Checks that the tuples selected by CoveringTupleGenerator cover every t-wise interaction of the
+ * full matrix, computed independently here, and are all tuples of the matrix.
+ */
+public class CoveringTupleGeneratorTest {
+
+  @Test
+  public void pairwiseCoversAllInteractions() {
+    for (boolean permute : new boolean[] {false, true}) {
+      for (boolean skipSame : new boolean[] {false, true}) {
+        checkCoverage(getClients(), 2, permute, skipSame, 2);
+        checkCoverage(getClients(), 3, permute, skipSame, 2);
+      }
+    }
+  }
+
+  @Test
+  public void threeWiseCoversAllInteractions() {
+    for (boolean permute : new boolean[] {false, true}) {
+      for (boolean skipSame : new boolean[] {false, true}) {
+        checkCoverage(getClients(), 2, permute, skipSame, 3);
+        checkCoverage(getClients(), 3, permute, skipSame, 3);
+      }
+    }
+  }
+
+  @Test
+  public void mostlyExcludedClientsAreCovered() {
+    // most of the tuples built greedily are made only of excluded clients and are filtered out,
+    // so that the tuples are taken from the matrix by the fallback
+    List<Client> clients = getClients();
+    for (int index = 1; index < clients.size(); index++) {
+      clients.set(index, newClient(clients.get(index).getBrowserSpecs(), true));
+    }
+    for (boolean permute : new boolean[] {false, true}) {
+      for (boolean skipSame : new boolean[] {false, true}) {
+        checkCoverage(clients, 2, permute, skipSame, 2);
+        checkCoverage(clients, 3, permute, skipSame, 3);
+      }
+    }
+  }
+
+  @Test
+  public void sameClientsOnlyGiveNoTuple() {
+    List<Client> clients = new ArrayList<>();
+    clients.add(getClients().get(0));
+    CoveringTupleGenerator generator = new CoveringTupleGenerator(clients, 2, false, true, 2);
+    assertTrue(generator.generate().isEmpty());
+    assertEquals(0, generator.getCandidateCount());
+  }
+
+  private static void checkCoverage(List<Client> clients, int tupleSize, boolean permute, boolean skipSame,
+      int strength) {
+    String name = "tupleSize " + tupleSize + ", strength " + strength + ", permute " + permute
+        + ", skipSame " + skipSame;
+    Set<String> expected = new HashSet<>();
+    TupleGenerator matrix = new TupleGenerator(clients, tupleSize, permute, skipSame);
+    long candidateCount = 0;
+    while (matrix.hasNext()) {
+      expected.addAll(getInteractions(clients, matrix.next(), strength));
+      candidateCount++;
+    }
+
+    CoveringTupleGenerator generator = new CoveringTupleGenerator(clients, tupleSize, permute, skipSame, strength);
+    List<int[]> selection = generator.generate();
+    TupleGenerator filter = new TupleGenerator(clients, tupleSize, permute, skipSame);
+    Set<String> covered = new HashSet<>();
+    for (int[] tuple : selection) {
+      assertEquals(name, tupleSize, tuple.length);
+      assertTrue(name + ": " + Arrays.toString(tuple) + " is filtered out", filter.accepts(tuple));
+      if (!permute) {
+        int[] sorted = tuple.clone();
+        Arrays.sort(sorted);
+        assertTrue(name + ": " + Arrays.toString(tuple) + " is not a combination", Arrays.equals(sorted, tuple));
+      }
+      covered.addAll(getInteractions(clients, tuple, strength));
+    }
+    assertEquals(name, expected, covered);
+    assertEquals(name, candidateCount, generator.getCandidateCount());
+    assertEquals(name, expected.size(), generator.getInteractionCount());
+    assertFalse(name, selection.isEmpty());
+    assertTrue(name, selection.size() <= candidateCount);
+  }
+
+  /**
+   * Gets the interactions of a tuple, as the sorted (position, attribute, value) of each
+   * combination of strength attributes.
+   */
+  private static Set<String> getInteractions(List<Client> clients, int[] tuple, int strength) {
+    List<String> factors = new ArrayList<>();
+    for (int position = 0; position < tuple.length; position++) {
+      BrowserSpecs specs = clients.get(tuple[position]).getBrowserSpecs();
+      factors.add(position + ".browserName=" + specs.getBrowserName());
+      factors.add(position + ".version=" + specs.getVersion());
+      factors.add(position + ".platform=" + specs.getPlatform().name());
+      factors.add(position + ".networkProfile=null");
+    }
+    Set<String> interactions = new HashSet<>();
+    combine(factors, 0, strength, new ArrayList<>(), interactions);
+    return interactions;
+  }
+
+  private static void combine(List<String> factors, int start, int strength, List<String> chosen,
+      Set<String> interactions) {
+    if (chosen.size() == strength) {
+      interactions.add(String.join("|", chosen));
+      return;
+    }
+    for (int index = start; index < factors.size(); index++) {
+      chosen.add(factors.get(index));
+      combine(factors, index + 1, strength, chosen, interactions);
+      chosen.remove(chosen.size() - 1);
+    }
+  }
+
+  private static List<Client> getClients() {
+    List<Client> clients = new ArrayList<>();
+    clients.add(newClient("chrome", "80", "LINUX"));
+    clients.add(newClient("chrome", "81", "WINDOWS"));
+    clients.add(newClient("firefox", "72", "LINUX"));
+    clients.add(newClient("firefox", "73", "MAC"));
+    return clients;
+  }
+
+  private static Client newClient(String browserName, String version, String platform) {
+    return new Client(Json.createObjectBuilder()
+        .add("browserName", browserName)
+        .add("version", version)
+        .add("platform", platform)
+        .build());
+  }
+
+  private static Client newClient(BrowserSpecs specs, boolean exclude) {
+    return new Client(Json.createObjectBuilder()
+        .add("browserName", specs.getBrowserName())
+        .add("version", specs.getVersion())
+        .add("platform", specs.getPlatform().name())
+        .add("exclude", exclude)
+        .build());
+  }
+}
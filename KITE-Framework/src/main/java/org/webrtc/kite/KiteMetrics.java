@@ -0,0 +1,272 @@
+package org.webrtc.kite;
+
+import io.cosmosoftware.kite.steps.StepPhase;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import org.webrtc.kite.config.test.TestConfig;
+import org.webrtc.kite.stats.FleetStatsAggregator;
+import org.webrtc.kite.stats.rtc.RTCLogHistogram;
+
+/**
+ * Live counters of the engine, rendered in the Prometheus text format (version 0.0.4)
+ * by the metrics endpoint of the engine.
+ * Updating a metric is cheap and thread safe, so the counters are always kept up to date,
+ * whether the endpoint is enabled or not.
+ */
+public class KiteMetrics {
+
+  public static final String SESSIONS_REQUESTED = "kite_sessions_requested_total";
+  public static final String SESSIONS_CREATED = "kite_sessions_created_total";
+  public static final String SESSIONS_FAILED = "kite_sessions_failed_total";
+  public static final String SESSIONS_REUSED = "kite_sessions_reused_total";
+  public static final String RUNNERS = "kite_runners";
+  public static final String STEP_DURATION = "kite_step_duration_seconds";
+  public static final String GET_STATS_LATENCY = "kite_getstats_latency_seconds";
+  public static final String SCHEDULER_TASKS = "kite_scheduler_tasks";
+  public static final String SCHEDULER_THREADS = "kite_scheduler_threads";
+
+  private static final String FLEET_BITRATE = "kite_fleet_bitrate_kbps";
+  private static final String FLEET_PACKET_LOSS = "kite_fleet_packet_loss_percent";
+  private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+  private static final KiteMetrics instance = new KiteMetrics();
+
+  private final Map<String, Family> families = new LinkedHashMap<>();
+  /** The fleet stats of the tests running, by test config. Iterated while holding it. */
+  private final Map<TestConfig, FleetStats> fleetStats = Collections.synchronizedMap(new IdentityHashMap<>());
+
+  private KiteMetrics() {
+    register(SESSIONS_REQUESTED, "counter", "WebDriver sessions requested", "paas");
+    register(SESSIONS_CREATED, "counter", "WebDriver sessions created", "paas");
+    register(SESSIONS_FAILED, "counter", "WebDriver sessions that could not be created", "paas");
+    register(SESSIONS_REUSED, "counter", "WebDriver sessions reused from the session pool", "paas");
+    register(RUNNERS, "gauge", "Test runners currently executing their steps", "phase");
+    register(STEP_DURATION, "summary", "Duration of the test steps", "step");
+    register(GET_STATS_LATENCY, "summary", "Duration of the getStats calls to the browsers");
+    register(SCHEDULER_TASKS, "gauge", "Tuple tasks of the scheduler, running or waiting for the limits", "state");
+    register(SCHEDULER_THREADS, "gauge", "Threads of the scheduler");
+  }
+
+  public static KiteMetrics getInstance() {
+    return instance;
+  }
+
+  /**
+   * Increments a counter or a gauge by one.
+   *
+   * @param name        the name of the metric
+   * @param labelValues the values of its labels, in order
+   */
+  public void increment(String name, String... labelValues) {
+    add(name, 1, labelValues);
+  }
+
+  /**
+   * Decrements a gauge by one.
+   *
+   * @param name        the name of the metric
+   * @param labelValues the values of its labels, in order
+   */
+  public void decrement(String name, String... labelValues) {
+    add(name, -1, labelValues);
+  }
+
+  /**
+   * Records a value in a summary.
+   *
+   * @param name        the name of the metric
+   * @param value       the value
+   * @param labelValues the values of its labels, in order
+   */
+  public void observe(String name, double value, String... labelValues) {
+    add(name, value, labelValues);
+  }
+
+  /**
+   * Exposes the percentiles of the stats of a test, for its whole fleet, until removeFleetStats.
+   * The tests of different config files may have the same name, so the series are labelled with
+   * both names.
+   *
+   * @param configName the name of the config of the test
+   * @param testConfig the test, and its fleet stats
+   */
+  public void addFleetStats(String configName, TestConfig testConfig) {
+    fleetStats.put(testConfig, new FleetStats(configName, testConfig.getName(), testConfig.getFleetStats()));
+  }
+
+  /**
+   * Stops exposing the fleet stats of a test, once it is finished.
+   *
+   * @param testConfig the test
+   */
+  public void removeFleetStats(TestConfig testConfig) {
+    fleetStats.remove(testConfig);
+  }
+
+  /**
+   * Gets all the metrics in the Prometheus text format.
+   *
+   * @return the metrics
+   */
+  public String scrape() {
+    StringBuilder builder = new StringBuilder();
+    for (Map.Entry<String, Family> entry : families.entrySet()) {
+      entry.getValue().write(entry.getKey(), builder);
+    }
+    writeFleetStats(builder);
+    return builder.toString();
+  }
+
+  private void register(String name, String type, String help, String... labelNames) {
+    families.put(name, new Family(type, help, labelNames));
+  }
+
+  /**
+   * Adds a value to a counter or a gauge.
+   *
+   * @param name        the name of the metric
+   * @param value       the value to add, negative to decrease a gauge
+   * @param labelValues the values of its labels, in order
+   */
+  public void add(String name, double value, String... labelValues) {
+    Family family = families.get(name);
+    if (family == null) {
+      throw new IllegalArgumentException("Unknown metric " + name);
+    }
+    family.get(labelValues).add(value);
+  }
+
+  private void writeFleetStats(StringBuilder builder) {
+    StringBuilder bitrates = new StringBuilder();
+    StringBuilder losses = new StringBuilder();
+    List<FleetStats> tests;
+    synchronized (fleetStats) {
+      tests = new ArrayList<>(fleetStats.values());
+    }
+    for (FleetStats test : tests) {
+      for (StepPhase phase : test.aggregator.getPhases()) {
+        for (Map.Entry<String, RTCLogHistogram> histogram : test.aggregator.getTotalHistograms(phase).entrySet()) {
+          // "inbound/video/bitrate"
+          String[] path = histogram.getKey().split("/");
+          if (path.length != 3 || histogram.getValue().isEmpty()) {
+            continue;
+          }
+          String labels = "config=\"" + escape(test.configName) + "\",test=\"" + escape(test.testName)
+            + "\",phase=\"" + escape(phase.getName())
+            + "\",direction=\"" + path[0] + "\",kind=\"" + path[1] + "\"";
+          if (path[2].equals("bitrate")) {
+            writeQuantiles(bitrates, FLEET_BITRATE, labels, histogram.getValue());
+          } else if (path[2].equals("packetLoss")) {
+            writeQuantiles(losses, FLEET_PACKET_LOSS, labels, histogram.getValue());
+          }
+        }
+      }
+    }
+    builder.append("# HELP ").append(FLEET_BITRATE).append(" Bitrate of the streams of all the runners of a test\n");
+    builder.append("# TYPE ").append(FLEET_BITRATE).append(" gauge\n").append(bitrates);
+    builder.append("# HELP ").append(FLEET_PACKET_LOSS).append(" Packet loss of the received streams of all the runners of a test\n");
+    builder.append("# TYPE ").append(FLEET_PACKET_LOSS).append(" gauge\n").append(losses);
+  }
+
+  private static void writeQuantiles(StringBuilder builder, String name, String labels, RTCLogHistogram histogram) {
+    for (double quantile : QUANTILES) {
+      builder.append(name).append('{').append(labels).append(",quantile=\"").append(quantile).append("\"} ")
+        .append(histogram.getValueAtPercentile(quantile * 100)).append('\n');
+    }
+  }
+
+  private static String escape(String labelValue) {
+    return labelValue == null ? "" :
+      labelValue.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+  }
+
+  /**
+   * The fleet stats of a running test.
+   */
+  private static class FleetStats {
+    private final String configName;
+    private final String testName;
+    private final FleetStatsAggregator aggregator;
+
+    private FleetStats(String configName, String testName, FleetStatsAggregator aggregator) {
+      this.configName = configName;
+      this.testName = testName;
+      this.aggregator = aggregator;
+    }
+  }
+
+  /**
+   * A metric and all its series, one per combination of label values.
+   */
+  private static class Family {
+    private final String type;
+    private final String help;
+    private final String[] labelNames;
+    private final ConcurrentMap<List<String>, Series> series = new ConcurrentHashMap<>();
+
+    private Family(String type, String help, String[] labelNames) {
+      this.type = type;
+      this.help = help;
+      this.labelNames = labelNames;
+    }
+
+    private Series get(String[] labelValues) {
+      if (labelValues.length != labelNames.length) {
+        throw new IllegalArgumentException("Expected the labels " + Arrays.toString(labelNames)
+          + " but got " + Arrays.toString(labelValues));
+      }
+      return series.computeIfAbsent(Arrays.asList(labelValues), values -> new Series());
+    }
+
+    private void write(String name, StringBuilder builder) {
+      builder.append("# HELP ").append(name).append(' ').append(help).append('\n');
+      builder.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+      for (Map.Entry<List<String>, Series> entry : series.entrySet()) {
+        String labels = formatLabels(entry.getKey());
+        Series values = entry.getValue();
+        synchronized (values) {
+          if (type.equals("summary")) {
+            builder.append(name).append("_count").append(labels).append(' ').append(values.count).append('\n');
+            builder.append(name).append("_sum").append(labels).append(' ').append(values.sum).append('\n');
+          } else {
+            builder.append(name).append(labels).append(' ').append(values.sum).append('\n');
+          }
+        }
+      }
+    }
+
+    private String formatLabels(List<String> labelValues) {
+      if (labelNames.length == 0) {
+        return "";
+      }
+      StringBuilder builder = new StringBuilder("{");
+      for (int index = 0; index < labelNames.length; index++) {
+        if (index > 0) {
+          builder.append(',');
+        }
+        builder.append(labelNames[index]).append("=\"").append(escape(labelValues.get(index))).append('"');
+      }
+      return builder.append('}').toString();
+    }
+  }
+
+  /**
+   * The value of a counter or a gauge, or the count and sum of a summary.
+   */
+  private static class Series {
+    private long count = 0;
+    private double sum = 0;
+
+    private synchronized void add(double value) {
+      count++;
+      sum += value;
+    }
+  }
+}
@@ -0,0 +1,557 @@
+package org.webrtc.kite;
+
+import io.cosmosoftware.kite.report.KiteLogger;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import org.webrtc.kite.config.paas.Paas;
+
+/**
+ * The engine-wide scheduler every level of the engine submits its tasks to, instead of
+ * creating its own thread pool.
+ * <p>
+ * Two kinds of tasks are submitted:
+ * <ul>
+ *   <li>the tasks coordinating other tasks (test run threads, test managers), with invokeAll and
+ *   a parallelism limit for the level, as the fixed thread pools did;</li>
+ *   <li>the tasks of a tuple (test runner creation, test runners), with invokeAllTogether. They
+ *   wait for each other during the test, so they are only started once all of them can start,
+ *   within the global limit and the limit of the Paas of each of them.</li>
+ * </ul>
+ * Only the tasks of the tuples count against the limits, so the coordinating tasks waiting for
+ * them can never starve them, however the levels are nested. A tuple larger than a limit is run
+ * alone. The number of threads is therefore bounded by the limits plus the parallelism of the
+ * coordinating levels, and is exposed by KiteMetrics.
+ * </p>
+ * <p>
+ * As the tasks spend most of their time waiting for the browsers, they can be run on virtual
+ * threads instead (Java 21 or later), so that the number of sessions of a load test is not
+ * limited by the memory of the thread stacks.
+ * </p>
+ */
+public class KiteScheduler {
+
+  private static final KiteLogger logger = KiteLogger.getLogger(KiteScheduler.class.getName());
+  private static final KiteScheduler instance = new KiteScheduler();
+
+  private volatile ExecutorService executor;
+  private boolean virtualThreads = false;
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition released = lock.newCondition();
+  private final Map<String, Integer> runningPerPaas = new HashMap<>();
+  private int maxConcurrency = 0;
+  private int maxConcurrencyPerPaas = 0;
+  private int running = 0;
+  private int waiting = 0;
+
+  private KiteScheduler() {
+    this.executor = Executors.newCachedThreadPool(new SchedulerThreadFactory(new PlatformThreadFactory()));
+  }
+
+  public static KiteScheduler getInstance() {
+    return instance;
+  }
+
+  /**
+   * Sets the maximum number of tuple tasks running at the same time, across the engine.
+   *
+   * @param maxConcurrency the limit, 0 for no limit
+   */
+  public void setMaxConcurrency(int maxConcurrency) {
+    lock.lock();
+    try {
+      this.maxConcurrency = maxConcurrency;
+      released.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Sets the maximum number of tuple tasks running at the same time on a Paas,
+   * for the Paas without a maxConcurrency of their own.
+   *
+   * @param maxConcurrencyPerPaas the limit, 0 for no limit
+   */
+  public void setMaxConcurrencyPerPaas(int maxConcurrencyPerPaas) {
+    lock.lock();
+    try {
+      this.maxConcurrencyPerPaas = maxConcurrencyPerPaas;
+      released.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Runs the tasks submitted from now on on virtual threads, or back on platform threads.
+   * Virtual threads require Java 21 or later: on an older runtime, the tasks keep running on
+   * platform threads and a warning is logged. The tasks already running are not affected.
+   *
+   * @param virtualThreads true to use virtual threads
+   */
+  public synchronized void setVirtualThreads(boolean virtualThreads) {
+    if (virtualThreads == this.virtualThreads) {
+      return;
+    }
+    ExecutorService previous = this.executor;
+    if (virtualThreads) {
+      ThreadFactory virtualThreadFactory = createVirtualThreadFactory();
+      if (virtualThreadFactory == null) {
+        return;
+      }
+      this.executor = createThreadPerTaskExecutor(new SchedulerThreadFactory(virtualThreadFactory));
+      logger.info("Running the tests on virtual threads");
+    } else {
+      this.executor = Executors.newCachedThreadPool(new SchedulerThreadFactory(new PlatformThreadFactory()));
+    }
+    this.virtualThreads = virtualThreads;
+    previous.shutdown();
+  }
+
+  /**
+   * @return true if the tasks run on virtual threads
+   */
+  public synchronized boolean isVirtualThreads() {
+    return virtualThreads;
+  }
+
+  /**
+   * @return the number of tuple tasks running
+   */
+  public int getRunningTasks() {
+    lock.lock();
+    try {
+      return running;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * @return the number of tuple tasks waiting for the limits
+   */
+  public int getWaitingTasks() {
+    lock.lock();
+    try {
+      return waiting;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Checks whether more sessions can be opened on a Paas without exceeding the limits, counting
+   * the tuple tasks running and the sessions held outside of them.
+   *
+   * @param paas        the Paas
+   * @param heldOnPaas  the sessions to open or already held on the Paas, outside of the tuple tasks
+   * @param heldInTotal the sessions to open or already held on all the Paas, outside of the tuple tasks
+   *
+   * @return true if within the limits
+   */
+  public boolean hasFreeSlots(Paas paas, int heldOnPaas, int heldInTotal) {
+    lock.lock();
+    try {
+      if (maxConcurrency > 0 && running + heldInTotal > maxConcurrency) {
+        return false;
+      }
+      int limit = paas.getMaxConcurrency() > 0 ? paas.getMaxConcurrency() : maxConcurrencyPerPaas;
+      return limit <= 0 || runningPerPaas.getOrDefault(paas.retrieveHost(), 0) + heldOnPaas <= limit;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Starts a coordinating task without waiting for it.
+   *
+   * @param task the task
+   *
+   * @return the future of the task
+   */
+  public <T> Future<T> submit(Callable<T> task) {
+    return executor.submit(task);
+  }
+
+  /**
+   * Executes coordinating tasks, at most parallelism of them at the same time, and waits for them.
+   *
+   * @param tasks       the tasks
+   * @param parallelism the maximum number of tasks running at the same time, 0 for all of them
+   *
+   * @return the futures, in the same order as the tasks
+   * @throws InterruptedException if interrupted while waiting, the unfinished tasks are then cancelled
+   */
+  public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, int parallelism)
+    throws InterruptedException {
+    return invokeAll(tasks, parallelism, Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Executes coordinating tasks, at most parallelism of them at the same time, and waits for them
+   * until the timeout. The tasks still running or not started at the timeout are cancelled.
+   *
+   * @param tasks       the tasks
+   * @param parallelism the maximum number of tasks running at the same time, 0 for all of them
+   * @param timeout     the maximum time to wait
+   * @param unit        the unit of the timeout
+   *
+   * @return the futures, in the same order as the tasks
+   * @throws InterruptedException if interrupted while waiting, the unfinished tasks are then cancelled
+   */
+  public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, int parallelism,
+    long timeout, TimeUnit unit) throws InterruptedException {
+    long deadline = getDeadline(timeout, unit);
+    Semaphore permits = new Semaphore(parallelism > 0 ? parallelism : Math.max(1, tasks.size()));
+    List<Future<T>> futures = newFutures(tasks);
+    try {
+      for (Future<T> future : futures) {
+        if (!permits.tryAcquire(remaining(deadline), TimeUnit.NANOSECONDS)) {
+          break;
+        }
+        executor.execute(() -> {
+          try {
+            ((FutureTask<T>) future).run();
+          } finally {
+            permits.release();
+          }
+        });
+      }
+      await(futures, deadline);
+    } finally {
+      cancelUnfinished(futures);
+    }
+    return futures;
+  }
+
+  /**
+   * Executes the tasks of a tuple once all of them can start within the limits, and waits for them
+   * until the timeout. The tasks still running or not started at the timeout are cancelled.
+   *
+   * @param tasks    the tasks
+   * @param paasList the Paas each task runs on (null if unknown), in the same order as the tasks
+   * @param timeout  the maximum time to wait
+   * @param unit     the unit of the timeout
+   *
+   * @return the futures, in the same order as the tasks
+   * @throws InterruptedException if interrupted while waiting, the unfinished tasks are then cancelled
+   */
+  public <T> List<Future<T>> invokeAllTogether(List<? extends Callable<T>> tasks, List<Paas> paasList,
+    long timeout, TimeUnit unit) throws InterruptedException {
+    return invokeAllTogether(tasks, paasList, timeout, unit, null);
+  }
+
+  /**
+   * Executes the tasks of a tuple once all of them can start within the limits, and waits for them
+   * until the timeout, or until one of them fails: as soon as a task throws an exception or returns
+   * a result matching failed, the other tasks still running or not started are cancelled, so that
+   * the tuple does not hold its slots for nothing.
+   *
+   * @param tasks    the tasks
+   * @param paasList the Paas each task runs on (null if unknown), in the same order as the tasks
+   * @param timeout  the maximum time to wait
+   * @param unit     the unit of the timeout
+   * @param failed   whether the result of a task is a failure, null to wait for all the tasks
+   *
+   * @return the futures, in the same order as the tasks
+   * @throws InterruptedException if interrupted while waiting, the unfinished tasks are then cancelled
+   */
+  public <T> List<Future<T>> invokeAllTogether(List<? extends Callable<T>> tasks, List<Paas> paasList,
+    long timeout, TimeUnit unit, Predicate<T> failed) throws InterruptedException {
+    long deadline = getDeadline(timeout, unit);
+    List<Future<T>> futures = failed == null ? newFutures(tasks) : newFailFastFutures(tasks, failed);
+    Map<String, Integer> paasCounts = new HashMap<>();
+    Map<String, Integer> paasLimits = new HashMap<>();
+    List<String> paasKeys = new ArrayList<>();
+    for (int index = 0; index < tasks.size(); index++) {
+      Paas paas = index < paasList.size() ? paasList.get(index) : null;
+      String paasKey = paas == null ? null : paas.retrieveHost();
+      paasKeys.add(paasKey);
+      if (paasKey != null) {
+        paasCounts.merge(paasKey, 1, Integer::sum);
+        paasLimits.put(paasKey, paas.getMaxConcurrency());
+      }
+    }
+    try {
+      if (acquire(tasks.size(), paasCounts, paasLimits, deadline)) {
+        for (int index = 0; index < futures.size(); index++) {
+          FutureTask<T> future = (FutureTask<T>) futures.get(index);
+          String paasKey = paasKeys.get(index);
+          executor.execute(() -> {
+            try {
+              future.run();
+            } finally {
+              release(paasKey);
+            }
+          });
+        }
+        await(futures, deadline);
+      } else {
+        logger.warn("Timed out waiting to start " + tasks.size() + " tasks together, "
+          + getRunningTasks() + " tasks running");
+      }
+    } finally {
+      cancelUnfinished(futures);
+    }
+    return futures;
+  }
+
+  private boolean acquire(int count, Map<String, Integer> paasCounts, Map<String, Integer> paasLimits,
+    long deadline) throws InterruptedException {
+    lock.lock();
+    waiting += count;
+    KiteMetrics.getInstance().add(KiteMetrics.SCHEDULER_TASKS, count, "waiting");
+    try {
+      while (!canStart(count, paasCounts, paasLimits)) {
+        long remaining = remaining(deadline);
+        if (remaining <= 0) {
+          return false;
+        }
+        released.awaitNanos(remaining);
+      }
+      running += count;
+      for (Map.Entry<String, Integer> entry : paasCounts.entrySet()) {
+        runningPerPaas.merge(entry.getKey(), entry.getValue(), Integer::sum);
+      }
+      KiteMetrics.getInstance().add(KiteMetrics.SCHEDULER_TASKS, count, "running");
+      return true;
+    } finally {
+      waiting -= count;
+      KiteMetrics.getInstance().add(KiteMetrics.SCHEDULER_TASKS, -count, "waiting");
+      lock.unlock();
+    }
+  }
+
+  private boolean canStart(int count, Map<String, Integer> paasCounts, Map<String, Integer> paasLimits) {
+    if (!fits(running, count, maxConcurrency)) {
+      return false;
+    }
+    for (Map.Entry<String, Integer> entry : paasCounts.entrySet()) {
+      int limit = paasLimits.get(entry.getKey()) > 0 ? paasLimits.get(entry.getKey()) : maxConcurrencyPerPaas;
+      if (!fits(runningPerPaas.getOrDefault(entry.getKey(), 0), entry.getValue(), limit)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * A group larger than the limit can start when nothing else is running.
+   */
+  private static boolean fits(int running, int count, int limit) {
+    return limit <= 0 || running == 0 || running + count <= limit;
+  }
+
+  private void release(String paasKey) {
+    lock.lock();
+    try {
+      running--;
+      if (paasKey != null) {
+        runningPerPaas.computeIfPresent(paasKey, (key, value) -> value > 1 ? value - 1 : null);
+      }
+      KiteMetrics.getInstance().add(KiteMetrics.SCHEDULER_TASKS, -1, "running");
+      released.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static <T> List<Future<T>> newFutures(Collection<? extends Callable<T>> tasks) {
+    List<Future<T>> futures = new ArrayList<>(tasks.size());
+    for (Callable<T> task : tasks) {
+      futures.add(new FutureTask<>(task));
+    }
+    return futures;
+  }
+
+  private static <T> List<Future<T>> newFailFastFutures(Collection<? extends Callable<T>> tasks,
+    Predicate<T> failed) {
+    List<Future<T>> futures = new ArrayList<>(tasks.size());
+    for (Callable<T> task : tasks) {
+      futures.add(new FailFastTask<>(task, failed, futures));
+    }
+    return futures;
+  }
+
+  private static <T> void await(List<Future<T>> futures, long deadline) throws InterruptedException {
+    for (Future<T> future : futures) {
+      try {
+        future.get(remaining(deadline), TimeUnit.NANOSECONDS);
+      } catch (ExecutionException | CancellationException e) {
+        // reported by the future itself
+      } catch (TimeoutException e) {
+        return;
+      }
+    }
+  }
+
+  private static <T> void cancelUnfinished(List<Future<T>> futures) {
+    for (Future<T> future : futures) {
+      if (!future.isDone()) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  private static long getDeadline(long timeout, TimeUnit unit) {
+    long nanos = unit.toNanos(timeout);
+    long now = System.nanoTime();
+    return nanos >= Long.MAX_VALUE - now ? Long.MAX_VALUE : now + nanos;
+  }
+
+  private static long remaining(long deadline) {
+    return deadline == Long.MAX_VALUE ? Long.MAX_VALUE : deadline - System.nanoTime();
+  }
+
+  /**
+   * Gets the feature version of the Java runtime, e.g. 8 for 1.8 or 21.
+   *
+   * @return the version
+   */
+  private static int getJavaVersion() {
+    String version = System.getProperty("java.specification.version", "1.8");
+    try {
+      return version.startsWith("1.") ? Integer.parseInt(version.substring(2)) : Integer.parseInt(version);
+    } catch (NumberFormatException e) {
+      return 8;
+    }
+  }
+
+  /**
+   * Creates a factory of virtual threads named kite-virtual-N. Thread.ofVirtual() is looked up by
+   * reflection, so that the engine still builds and runs on Java 8.
+   *
+   * @return the factory, or null if the runtime does not support virtual threads
+   */
+  private static ThreadFactory createVirtualThreadFactory() {
+    if (getJavaVersion() < 21) {
+      logger.warn("Virtual threads require Java 21 or later, running on Java "
+        + System.getProperty("java.version") + " with platform threads");
+      return null;
+    }
+    try {
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "kite-virtual-", 1L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (Exception e) {
+      logger.warn("Could not create virtual threads, using platform threads: " + e.getLocalizedMessage());
+      return null;
+    }
+  }
+
+  /**
+   * Creates an executor starting a new thread per task, which is how virtual threads are meant to
+   * be used (they are not pooled).
+   *
+   * @param threadFactory the factory of the threads
+   *
+   * @return the executor
+   */
+  private static ExecutorService createThreadPerTaskExecutor(ThreadFactory threadFactory) {
+    try {
+      return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class)
+        .invoke(null, threadFactory);
+    } catch (Exception e) {
+      // only called once virtual threads are known to be supported
+      throw new IllegalStateException("Could not create the executor of the virtual threads", e);
+    }
+  }
+
+  /**
+   * A task of a tuple cancelling the other tasks of the tuple when it fails.
+   */
+  private static class FailFastTask<T> extends FutureTask<T> {
+    private final Predicate<T> failed;
+    private final List<Future<T>> group;
+
+    private FailFastTask(Callable<T> task, Predicate<T> failed, List<Future<T>> group) {
+      super(task);
+      this.failed = failed;
+      this.group = group;
+    }
+
+    @Override
+    protected void done() {
+      if (isCancelled()) {
+        return;
+      }
+      boolean failure;
+      try {
+        failure = failed.test(get());
+      } catch (ExecutionException e) {
+        failure = true;
+      } catch (InterruptedException e) {
+        // cannot happen, the task is done
+        Thread.currentThread().interrupt();
+        return;
+      }
+      if (failure) {
+        int cancelled = 0;
+        for (Future<T> future : group) {
+          if (!future.isDone() && future.cancel(true)) {
+            cancelled++;
+          }
+        }
+        if (cancelled > 0) {
+          logger.info("A task of the tuple failed, cancelled the " + cancelled + " other tasks");
+        }
+      }
+    }
+  }
+
+  /**
+   * Creates the platform threads of the scheduler, as daemons named kite-scheduler-N.
+   */
+  private static class PlatformThreadFactory implements ThreadFactory {
+    private final AtomicInteger count = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "kite-scheduler-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+  /**
+   * Counts the threads of the scheduler in KiteMetrics.
+   */
+  private static class SchedulerThreadFactory implements ThreadFactory {
+    private final ThreadFactory threadFactory;
+
+    private SchedulerThreadFactory(ThreadFactory threadFactory) {
+      this.threadFactory = threadFactory;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      return threadFactory.newThread(() -> {
+        KiteMetrics.getInstance().increment(KiteMetrics.SCHEDULER_THREADS);
+        try {
+          runnable.run();
+        } finally {
+          KiteMetrics.getInstance().decrement(KiteMetrics.SCHEDULER_THREADS);
+        }
+      });
+    }
+  }
+}
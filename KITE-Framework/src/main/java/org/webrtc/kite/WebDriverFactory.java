@@ -40,11 +40,17 @@ import org.webrtc.kite.config.client.Capability;
 import org.webrtc.kite.config.client.Client;
 
 import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
+import java.util.stream.Stream;
 
 /**
  * Factory object for creating a web driver.
@@ -55,6 +61,12 @@ public class WebDriverFactory {
   
   //this will be updated by Tomcat during context init according to the actual server settings.
   public static String kiteServerUrl = "http://localhost:8080/KITEServer";
+
+  /**
+   * The capabilities of the browsers, built once per client config, extension and profile, as
+   * encoding the extension or the profile of a session can take longer than creating it.
+   */
+  private static final Map<String, Capabilities> browserCapabilities = new ConcurrentHashMap<>();
   
   /**
    * Build capabilities for app appium driver
@@ -191,7 +203,8 @@ public class WebDriverFactory {
 
     MutableCapabilities capabilities;
     if (!client.isApp()) {
-      capabilities = buildBrowserCapabilities(client);
+      // copied, the capabilities of the session are added to it
+      capabilities = new MutableCapabilities(getBrowserCapabilities(client));
     } else {
       capabilities = buildAppCapabilities(client);
     }
@@ -210,6 +223,89 @@ public class WebDriverFactory {
     return capabilities;
   }
 
+  /**
+   * Gets the capabilities of a browser client, built once for all the clients with the same config,
+   * as long as their Chrome extension or Firefox profile is not modified.
+   *
+   * @param client the client
+   * @return the capabilities, not to be modified
+   */
+  private static Capabilities getBrowserCapabilities(Client client) {
+    String configKey = client.getConfigKey();
+    if (configKey == null) {
+      return buildBrowserCapabilities(client);
+    }
+    BrowserSpecs specs = client.getBrowserSpecs();
+    String key = configKey + "|" + specs.getBrowserName() + "|" + specs.getVersion() + "|" + specs.getPlatform()
+      + "|" + getStamp(getChromeExtension(specs)) + "|" + getStamp(getFirefoxProfile(specs));
+    return browserCapabilities.computeIfAbsent(key, k -> new ImmutableCapabilities(buildBrowserCapabilities(client)));
+  }
+
+  /**
+   * Gets a stamp of a file or a folder changing when it is modified: its path, the last
+   * modification of the file or of the files of the folder, and their size.
+   *
+   * @param path the path of the file or the folder, may be null
+   * @return the stamp
+   */
+  private static String getStamp(String path) {
+    if (path == null || path.isEmpty()) {
+      return "";
+    }
+    File file = new File(path);
+    if (!file.isDirectory()) {
+      return path + "@" + file.lastModified() + ":" + file.length();
+    }
+    long lastModified = 0;
+    long size = 0;
+    try (Stream<Path> files = Files.walk(file.toPath())) {
+      for (Path child : (Iterable<Path>) files::iterator) {
+        lastModified = Math.max(lastModified, child.toFile().lastModified());
+        size += child.toFile().length();
+      }
+    } catch (IOException e) {
+      // the profile will not be readable either
+    }
+    return path + "@" + lastModified + ":" + size;
+  }
+
+  /**
+   * Gets the path of the Chrome extension of a client, set by the system property
+   * kite.chrome.extension or its browser specs.
+   *
+   * @param specs the browser specs of the client
+   * @return the path, null or empty if none
+   */
+  private static String getChromeExtension(BrowserSpecs specs) {
+    String extension = System.getProperty("kite.chrome.extension");
+    return extension == null ? specs.getExtension() : extension;
+  }
+
+  /**
+   * Gets the path of the Firefox profile of a client, set by the system property
+   * kite.firefox.profile or its browser specs, for its platform.
+   *
+   * @param specs the browser specs of the client
+   * @return the path, null if none
+   */
+  private static String getFirefoxProfile(BrowserSpecs specs) {
+    String profile = System.getProperty("kite.firefox.profile");
+    profile = profile == null ? specs.getProfile() : profile;
+    if (profile == null || profile.isEmpty()) {
+      return null;
+    }
+    switch (specs.getPlatform().name().toUpperCase()) {
+      case "WINDOWS":
+        return profile + "windows";
+      case "MAC":
+        return profile + "mac";
+      case "LINUX":
+        return profile + "linux";
+      default:
+        return profile;
+    }
+  }
+
   /**
    * Creates a web driver based on the given Client object.
    *
@@ -338,10 +434,15 @@ public class WebDriverFactory {
     chromeOptions.addArguments("auto-select-desktop-capture-source=Entire screen");
     if (! "electron".equals(specs.getVersion())) {
       // CHROME ONLY
-      String extension = System.getProperty("kite.chrome.extension");
-      extension = extension == null ? specs.getExtension() : extension;
+      String extension = getChromeExtension(specs);
       if (extension != null && !extension.isEmpty()) {
-        chromeOptions.addExtensions(new File(extension));
+        // encoded now rather than each time the options are sent
+        try {
+          chromeOptions.addEncodedExtensions(
+            Base64.getEncoder().encodeToString(Files.readAllBytes(new File(extension).toPath())));
+        } catch (IOException e) {
+          chromeOptions.addExtensions(new File(extension));
+        }
       }
     }
     /*
@@ -375,20 +476,8 @@ public class WebDriverFactory {
    */
   private static FirefoxOptions setCommonFirefoxOptions(Capability capability, BrowserSpecs specs) {
     FirefoxProfile firefoxProfile = null;
-    String profile = System.getProperty("kite.firefox.profile")  ;
-    profile = profile == null ? specs.getProfile() : profile;
-    if (profile != null && !profile.isEmpty()) {
-      switch (specs.getPlatform().name().toUpperCase()) {
-        case "WINDOWS":
-          profile += "windows";
-          break;
-        case "MAC":
-          profile += "mac";
-          break;
-        case "LINUX":
-          profile += "linux";
-          break;
-      }
+    String profile = getFirefoxProfile(specs);
+    if (profile != null) {
       firefoxProfile = new FirefoxProfile(new File(profile));
     } else {
       logger.warn("FIREFOX: Some tests require specific profile for firefox to work properly.");
@@ -402,7 +491,13 @@ public class WebDriverFactory {
       }
     }
     FirefoxOptions firefoxOptions = new FirefoxOptions();
-    firefoxOptions.setProfile(firefoxProfile);
+    try {
+      // zipped now rather than each time the options are sent
+      firefoxOptions.setProfile(new EncodedFirefoxProfile(firefoxProfile.toJson()));
+    } catch (IOException e) {
+      logger.warn("FIREFOX: could not encode the profile " + profile + ": " + e.getLocalizedMessage());
+      firefoxOptions.setProfile(firefoxProfile);
+    }
     if (capability.isHeadless()) {
       firefoxOptions.addArguments("-headless");
     }
@@ -429,4 +524,20 @@ public class WebDriverFactory {
     }
     return command + "%20&";
   }
+
+  /**
+   * A Firefox profile already zipped and encoded, sent as is.
+   */
+  private static class EncodedFirefoxProfile extends FirefoxProfile {
+    private final String encoded;
+
+    private EncodedFirefoxProfile(String encoded) {
+      this.encoded = encoded;
+    }
+
+    @Override
+    public String toJson() {
+      return encoded;
+    }
+  }
 }
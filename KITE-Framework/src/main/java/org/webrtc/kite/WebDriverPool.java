@@ -0,0 +1,432 @@
+/*
+ * Copyright 2017 Google Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.webrtc.kite;
+
+import io.cosmosoftware.kite.report.KiteLogger;
+import io.cosmosoftware.kite.util.WebDriverUtils;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.webrtc.kite.config.client.Client;
+import org.webrtc.kite.config.paas.PaasPlacement;
+import org.webrtc.kite.config.test.Tuple;
+
+/**
+ * An opt-in pool of WebDriver sessions, so that the tuples of a test reuse the sessions of the
+ * previous tuples instead of creating new ones on the grid.
+ * <p>
+ * When a test finishes, the sessions of its clients are reset (extra windows closed, cookies and
+ * storage of the last page cleared, about:blank loaded) and given back to the pool. The next
+ * client with the same browser specs and capabilities on the same Paas gets one of them instead
+ * of a new session. A session is quit instead once it has been used maxUses times, when it could
+ * not be reset, or after idleTimeout seconds in the pool. When no session matches a client and its
+ * Paas has no free slot left, the oldest idle session of the Paas already used by a test is quit,
+ * so that the pool does not hold the slot the new session needs. The sessions created in advance
+ * are kept for the clients they were created for.
+ * </p>
+ * <p>
+ * Sessions can also be created in advance, while the previous tuples are running (see
+ * preCreate), so that the creation of the sessions overlaps with the tests. A client needing a
+ * session being created in advance for the same config waits for it instead of creating another.
+ * </p>
+ * The sessions of the apps are never pooled.
+ */
+public class WebDriverPool {
+
+  private static final KiteLogger logger = KiteLogger.getLogger(WebDriverPool.class.getName());
+  private static final WebDriverPool instance = new WebDriverPool();
+
+  private static final String CLEAR_STORAGE_SCRIPT =
+    "try { window.localStorage.clear(); window.sessionStorage.clear(); } catch (e) {}";
+  private static final int DEFAULT_IDLE_TIMEOUT = 60;
+  private static final long EVICTION_INTERVAL = 5;
+
+  /** The idle sessions of each key, the most recently given back last. Guarded by this. */
+  private final Map<String, Deque<Session>> idleSessions = new HashMap<>();
+  /** The number of sessions being created in advance for each key. Guarded by this. */
+  private final Map<String, Integer> pendingSessions = new HashMap<>();
+  /** The number of sessions being created in advance on each Paas. Guarded by this. */
+  private final Map<String, Integer> pendingPerPaas = new HashMap<>();
+  /**
+   * The number of tests each session was used for. A session created by its client is not in it
+   * until it is given back, after its first test; a session created in advance starts at 0.
+   */
+  private final Map<WebDriver, Integer> uses = Collections.synchronizedMap(new WeakHashMap<>());
+  private volatile int maxUses = 0;
+  private volatile int idleTimeout = DEFAULT_IDLE_TIMEOUT;
+  private volatile int lookAhead = 0;
+  private ScheduledExecutorService evictor;
+
+  private WebDriverPool() {
+  }
+
+  public static WebDriverPool getInstance() {
+    return instance;
+  }
+
+  /**
+   * Enables or disables the pool.
+   *
+   * @param maxUses     the number of tests a session is used for before being quit, 0 to disable the pool
+   * @param idleTimeout the number of seconds a session can stay in the pool, 0 for the default (60 s)
+   * @param lookAhead   the number of tuples the sessions are created in advance for, 0 for none
+   */
+  public synchronized void configure(int maxUses, int idleTimeout, int lookAhead) {
+    this.maxUses = Math.max(0, maxUses);
+    this.idleTimeout = idleTimeout > 0 ? idleTimeout : DEFAULT_IDLE_TIMEOUT;
+    this.lookAhead = Math.max(0, lookAhead);
+    if (isActive() && evictor == null) {
+      evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "kite-session-pool");
+        thread.setDaemon(true);
+        return thread;
+      });
+      evictor.scheduleWithFixedDelay(this::evictExpired, EVICTION_INTERVAL, EVICTION_INTERVAL, TimeUnit.SECONDS);
+      if (isEnabled()) {
+        logger.info("Reusing the WebDriver sessions up to " + this.maxUses + " times, for "
+          + this.idleTimeout + "s when idle");
+      }
+      if (this.lookAhead > 0) {
+        logger.info("Creating the sessions of the next " + this.lookAhead + " tuples in advance");
+      }
+    } else if (!isActive()) {
+      shutdown();
+    }
+  }
+
+  /**
+   * @return true if the sessions are pooled
+   */
+  public boolean isEnabled() {
+    return maxUses > 0;
+  }
+
+  /**
+   * @return the number of tuples the sessions are created in advance for, 0 for none
+   */
+  public int getLookAhead() {
+    return lookAhead;
+  }
+
+  private boolean isActive() {
+    return maxUses > 0 || lookAhead > 0;
+  }
+
+  /**
+   * Gets the number of sessions held by the pool, idle or being created in advance.
+   *
+   * @param paasUrl the url of a Paas, null for all of them
+   *
+   * @return the number of sessions
+   */
+  public synchronized int getHeldSessions(String paasUrl) {
+    int count = getIdleSessions(paasUrl);
+    for (Map.Entry<String, Integer> entry : pendingPerPaas.entrySet()) {
+      count += paasUrl == null || entry.getKey().equals(paasUrl) ? entry.getValue() : 0;
+    }
+    return count;
+  }
+
+  /**
+   * Gets the number of idle sessions kept by the pool.
+   *
+   * @param paasUrl the url of a Paas, null for all of them
+   *
+   * @return the number of sessions
+   */
+  public synchronized int getIdleSessions(String paasUrl) {
+    int count = 0;
+    for (Deque<Session> sessions : idleSessions.values()) {
+      for (Session session : sessions) {
+        count += paasUrl == null || session.paasUrl.equals(paasUrl) ? 1 : 0;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * Creates a session for a client in advance, and keeps it in the pool until a client with the
+   * same config needs one. Called from the thread creating the session.
+   *
+   * @param client the client, placed on its Paas
+   *
+   * @return true if the session was created
+   */
+  public boolean preCreate(Client client) {
+    String key = getKey(client);
+    if (key == null) {
+      return false;
+    }
+    String paasUrl = client.getPaas().getUrl();
+    String paasHost = client.getPaas().retrieveHost();
+    synchronized (this) {
+      pendingSessions.merge(key, 1, Integer::sum);
+      pendingPerPaas.merge(paasUrl, 1, Integer::sum);
+    }
+    KiteMetrics.getInstance().increment(KiteMetrics.SESSIONS_REQUESTED, paasHost);
+    PaasPlacement.getInstance().sessionRequested(client.getPaas());
+    long start = System.currentTimeMillis();
+    WebDriver webDriver = null;
+    try {
+      webDriver = WebDriverFactory.createWebDriver(client, null, null, client.getPaas().getGridId());
+      KiteMetrics.getInstance().increment(KiteMetrics.SESSIONS_CREATED, paasHost);
+    } catch (Exception e) {
+      KiteMetrics.getInstance().increment(KiteMetrics.SESSIONS_FAILED, paasHost);
+      logger.warn("Could not create a session in advance for " + client + ": " + e.getLocalizedMessage());
+    } finally {
+      PaasPlacement.getInstance().sessionDone(client.getPaas(), System.currentTimeMillis() - start);
+      synchronized (this) {
+        pendingSessions.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+        pendingPerPaas.computeIfPresent(paasUrl, (k, count) -> count > 1 ? count - 1 : null);
+        if (webDriver != null) {
+          uses.put(webDriver, 0);
+          idleSessions.computeIfAbsent(key, k -> new ArrayDeque<>()).addLast(new Session(paasUrl, webDriver));
+        }
+        notifyAll();
+      }
+    }
+    return webDriver != null;
+  }
+
+  /**
+   * Lends an idle session matching a client.
+   *
+   * @param client the client
+   *
+   * @return the session, or null if the client needs a new session
+   */
+  public WebDriver borrow(Client client) {
+    if (!isActive()) {
+      return null;
+    }
+    String key = getKey(client);
+    if (key == null) {
+      return null;
+    }
+    evictExpired();
+    while (true) {
+      Session session;
+      Session evicted = null;
+      synchronized (this) {
+        Deque<Session> sessions = idleSessions.get(key);
+        while ((sessions == null || sessions.isEmpty()) && pendingSessions.containsKey(key)) {
+          try {
+            wait();
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+          }
+          sessions = idleSessions.get(key);
+        }
+        session = sessions == null ? null : sessions.pollLast();
+        String paasUrl = client.getPaas().getUrl();
+        if (session == null
+          && !PaasPlacement.getInstance().hasFreeSlot(client.getPaas(), getHeldSessions(paasUrl))) {
+          evicted = pollOldest(paasUrl);
+        }
+      }
+      if (session == null) {
+        if (evicted != null) {
+          logger.debug("Quitting an idle session of " + evicted.paasUrl + " to make room for " + client);
+          quit(evicted.webDriver);
+        }
+        return null;
+      }
+      // the grid may have timed it out in the meantime
+      if (WebDriverUtils.isAlive(session.webDriver)) {
+        uses.merge(session.webDriver, 1, Integer::sum);
+        logger.debug("Reusing a session for " + client);
+        return session.webDriver;
+      }
+      quit(session.webDriver);
+    }
+  }
+
+  /**
+   * Gives the sessions of the clients of a tuple back to the pool, or quits them if the pool is
+   * disabled or they cannot be reused.
+   *
+   * @param tuple the tuple
+   */
+  public void release(Tuple tuple) {
+    if (!isEnabled()) {
+      WebDriverUtils.closeDrivers(tuple.getWebDrivers());
+      return;
+    }
+    for (Client client : tuple.getClients()) {
+      WebDriver webDriver = client.getWebDriver();
+      if (webDriver != null) {
+        client.removeWebdriver();
+        release(client, webDriver);
+      }
+    }
+  }
+
+  private void release(Client client, WebDriver webDriver) {
+    String key = getKey(client);
+    // a session not lent by the pool was created by its client for the test just finished
+    uses.putIfAbsent(webDriver, 1);
+    if (key == null || isQuit(webDriver) || uses.get(webDriver) >= maxUses || !reset(webDriver)) {
+      quit(webDriver);
+      return;
+    }
+    synchronized (this) {
+      idleSessions.computeIfAbsent(key, k -> new ArrayDeque<>())
+        .addLast(new Session(client.getPaas().getUrl(), webDriver));
+    }
+  }
+
+  /**
+   * Quits all the idle sessions, and stops evicting them.
+   */
+  public void shutdown() {
+    List<Session> sessions = new ArrayList<>();
+    synchronized (this) {
+      for (Deque<Session> deque : idleSessions.values()) {
+        sessions.addAll(deque);
+      }
+      idleSessions.clear();
+      if (evictor != null) {
+        evictor.shutdownNow();
+        evictor = null;
+      }
+    }
+    for (Session session : sessions) {
+      quit(session.webDriver);
+    }
+  }
+
+  private void evictExpired() {
+    long oldest = System.currentTimeMillis() - idleTimeout * 1000L;
+    List<Session> expired = new ArrayList<>();
+    synchronized (this) {
+      for (Iterator<Deque<Session>> deques = idleSessions.values().iterator(); deques.hasNext(); ) {
+        Deque<Session> deque = deques.next();
+        while (!deque.isEmpty() && deque.peekFirst().idleSince < oldest) {
+          expired.add(deque.pollFirst());
+        }
+        if (deque.isEmpty()) {
+          deques.remove();
+        }
+      }
+    }
+    for (Session session : expired) {
+      quit(session.webDriver);
+    }
+  }
+
+  /**
+   * Removes the session idle for the longest time on a Paas, among the sessions used by a test at
+   * least once. Must hold the lock.
+   */
+  private Session pollOldest(String paasUrl) {
+    Deque<Session> oldestDeque = null;
+    Session oldest = null;
+    for (Deque<Session> deque : idleSessions.values()) {
+      for (Session session : deque) {
+        if (session.paasUrl.equals(paasUrl) && uses.getOrDefault(session.webDriver, 0) > 0) {
+          if (oldest == null || session.idleSince < oldest.idleSince) {
+            oldestDeque = deque;
+            oldest = session;
+          }
+          // the deque is sorted by idleSince
+          break;
+        }
+      }
+    }
+    if (oldest == null) {
+      return null;
+    }
+    oldestDeque.remove(oldest);
+    if (oldestDeque.isEmpty()) {
+      idleSessions.values().remove(oldestDeque);
+    }
+    return oldest;
+  }
+
+  /**
+   * Gets the key of the sessions of a client: its Paas and its config, without its name.
+   *
+   * @return the key, null if the sessions of the client are not pooled
+   */
+  private static String getKey(Client client) {
+    String configKey = client.getConfigKey();
+    if (client.isApp() || client.getPaas() == null || configKey == null) {
+      return null;
+    }
+    return client.getPaas().getUrl() + "|" + configKey;
+  }
+
+  private static boolean reset(WebDriver webDriver) {
+    try {
+      List<String> handles = new ArrayList<>(webDriver.getWindowHandles());
+      for (int index = 1; index < handles.size(); index++) {
+        webDriver.switchTo().window(handles.get(index));
+        webDriver.close();
+      }
+      webDriver.switchTo().window(handles.get(0));
+      webDriver.manage().deleteAllCookies();
+      if (webDriver instanceof JavascriptExecutor) {
+        ((JavascriptExecutor) webDriver).executeScript(CLEAR_STORAGE_SCRIPT);
+      }
+      webDriver.get("about:blank");
+      return true;
+    } catch (Exception e) {
+      logger.debug("Could not reset the session, quitting it: " + e.getLocalizedMessage());
+      return false;
+    }
+  }
+
+  private static boolean isQuit(WebDriver webDriver) {
+    return webDriver instanceof RemoteWebDriver && ((RemoteWebDriver) webDriver).getSessionId() == null;
+  }
+
+  private void quit(WebDriver webDriver) {
+    uses.remove(webDriver);
+    try {
+      webDriver.quit();
+    } catch (Exception e) {
+      logger.debug("Could not quit the session: " + e.getLocalizedMessage());
+    }
+  }
+
+  /**
+   * An idle session.
+   */
+  private static class Session {
+    private final String paasUrl;
+    private final WebDriver webDriver;
+    private final long idleSince = System.currentTimeMillis();
+
+    private Session(String paasUrl, WebDriver webDriver) {
+      this.paasUrl = paasUrl;
+      this.webDriver = webDriver;
+    }
+  }
+}
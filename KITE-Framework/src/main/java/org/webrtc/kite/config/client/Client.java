@@ -30,6 +30,7 @@ import javax.json.Json;
 import javax.json.JsonArrayBuilder;
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
+import javax.json.JsonValue;
 import javax.persistence.CascadeType;
 import javax.persistence.Entity;
 import javax.persistence.FetchType;
@@ -41,8 +42,11 @@ import org.hibernate.annotations.GenericGenerator;
 import org.openqa.selenium.Platform;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.remote.RemoteWebDriver;
+import org.webrtc.kite.KiteMetrics;
 import org.webrtc.kite.WebDriverFactory;
+import org.webrtc.kite.WebDriverPool;
 import org.webrtc.kite.config.paas.Paas;
+import org.webrtc.kite.config.paas.PaasPlacement;
 import org.webrtc.kite.exception.KiteGridException;
 
 /**
@@ -68,6 +72,7 @@ public class Client extends KiteEntity implements CommandMaker, JsonBuilder, Sam
   protected String kind;
   private App app;
   private NetworkProfile networkProfile;
+  private boolean gridFailure = false;
 
 
 
@@ -186,6 +191,26 @@ public class Client extends KiteEntity implements CommandMaker, JsonBuilder, Sam
     return jsonConfig;
   }
 
+  /**
+   * Gets the config of this client that its WebDriver sessions depend on: its json config,
+   * without its name, count and exclude.
+   *
+   * @return the config as a string, null if this client was not read from a json config
+   */
+  @Transient
+  public String getConfigKey() {
+    if (jsonConfig == null) {
+      return null;
+    }
+    JsonObjectBuilder builder = Json.createObjectBuilder();
+    for (Map.Entry<String, JsonValue> entry : jsonConfig.entrySet()) {
+      if (!"name".equals(entry.getKey()) && !"count".equals(entry.getKey()) && !"exclude".equals(entry.getKey())) {
+        builder.add(entry.getKey(), entry.getValue());
+      }
+    }
+    return builder.build().toString();
+  }
+
   /**
    * Sets json config.
    *
@@ -516,13 +541,32 @@ public class Client extends KiteEntity implements CommandMaker, JsonBuilder, Sam
       logger.warn("createWebDriver() webdriver already exists, skipping.");
       return this.webDriver;
     }
+    String paasHost = this.getPaas() == null ? "NC" : this.getPaas().retrieveHost();
+    WebDriver pooled = WebDriverPool.getInstance().borrow(this);
+    if (pooled != null) {
+      this.webDriver = pooled;
+      if (sessionData != null) {
+        addToSessionMap(sessionData);
+      }
+      KiteMetrics.getInstance().increment(KiteMetrics.SESSIONS_REUSED, paasHost);
+      return this.webDriver;
+    }
+    KiteMetrics.getInstance().increment(KiteMetrics.SESSIONS_REQUESTED, paasHost);
+    PaasPlacement.getInstance().sessionRequested(this.getPaas());
+    long start = System.currentTimeMillis();
     try {
       this.webDriver = WebDriverFactory.createWebDriver(this, null, null, this.getPaas().getGridId());
+      PaasPlacement.getInstance().sessionDone(this.getPaas(), System.currentTimeMillis() - start);
       if (sessionData!= null) {
         addToSessionMap(sessionData);
       }
+      KiteMetrics.getInstance().increment(KiteMetrics.SESSIONS_CREATED, paasHost);
       return this.webDriver;
     } catch (Exception e) {
+      if (this.webDriver == null) {
+        PaasPlacement.getInstance().sessionDone(this.getPaas(), System.currentTimeMillis() - start);
+      }
+      KiteMetrics.getInstance().increment(KiteMetrics.SESSIONS_FAILED, paasHost);
       logger.error(ReportUtils.getStackTrace(e));
       throw new KiteGridException(
         e.getClass().getSimpleName()
@@ -542,6 +586,25 @@ public class Client extends KiteEntity implements CommandMaker, JsonBuilder, Sam
     return clientIndex;
   }
 
+  /**
+   * Sets whether the grid failed to create the WebDriver of this client.
+   *
+   * @param gridFailure true if the grid failed
+   */
+  public void setGridFailure(boolean gridFailure) {
+    this.gridFailure = gridFailure;
+  }
+
+  /**
+   * Checks whether the grid failed to create the WebDriver of this client, which may be transient.
+   *
+   * @return true if the grid failed
+   */
+  @Transient
+  public boolean isGridFailure() {
+    return gridFailure;
+  }
+
 
   @OneToOne(cascade = CascadeType.ALL, fetch = FetchType.EAGER)
   public BrowserSpecs getBrowserSpecs() {
@@ -8,6 +8,7 @@ import io.cosmosoftware.kite.config.KiteEntity;
 import io.cosmosoftware.kite.exception.BadEntityException;
 import io.cosmosoftware.kite.instrumentation.NetworkProfile;
 import io.cosmosoftware.kite.interfaces.SampleData;
+import java.net.URL;
 import java.util.ArrayList;
 import java.util.List;
 import org.hibernate.annotations.GenericGenerator;
@@ -34,6 +35,7 @@ public class Paas extends KiteEntity implements SampleData {
   private NetworkProfile networkProfile;
   private List<BrowserSpecs> specList = new ArrayList<>();
   private int availableSlots = 0;
+  private int maxConcurrency = 0;
 
   /**
    * Instantiates a new paas.
@@ -72,6 +74,7 @@ public class Paas extends KiteEntity implements SampleData {
     this.url = jsonObject.getString("url", this.url);
     this.gridId = jsonObject.getString("gridId", this.gridId);
     this.availableSlots = jsonObject.getInt("availableSlots", 5);
+    this.maxConcurrency = jsonObject.getInt("maxConcurrency", this.maxConcurrency);
 
     if (this.type == PaasType.local) {
       if (this.url == null)
@@ -246,6 +249,19 @@ public class Paas extends KiteEntity implements SampleData {
     return this.checkLocal() ? this.url : this.type.hubUrl(this.username, this.accesskey);
   }
 
+  /**
+   * Retrieve the host of the url, for reports and metrics.
+   *
+   * @return the host, or the url itself if it cannot be parsed
+   */
+  public String retrieveHost() {
+    try {
+      return new URL(this.url).getHost();
+    } catch (Exception e) {
+      return this.url == null ? "NC" : this.url;
+    }
+  }
+
   @Transient
   public String getRegion() {
     return region;
@@ -264,6 +280,20 @@ public class Paas extends KiteEntity implements SampleData {
     this.availableSlots = availableSlots;
   }
 
+  /**
+   * Gets the maximum number of test tasks running at the same time on this Paas.
+   *
+   * @return the limit, 0 to use the default maxConcurrencyPerPaas of the config
+   */
+  @Transient
+  public int getMaxConcurrency() {
+    return maxConcurrency;
+  }
+
+  public void setMaxConcurrency(int maxConcurrency) {
+    this.maxConcurrency = maxConcurrency;
+  }
+
   @Transient
   public void setNetworkProfile(NetworkProfile networkProfile) {
     this.networkProfile = networkProfile;
@@ -5,7 +5,6 @@
 package org.webrtc.kite.config.paas;
 
 import io.cosmosoftware.kite.report.KiteLogger;
-import io.cosmosoftware.kite.util.CircularLinkedList;
 import org.webrtc.kite.config.client.Client;
 
 import java.sql.SQLException;
@@ -62,15 +61,14 @@ public class PaasManager {
     
     if (paasHandlerList.size() <= 0) {
       logger.info("All Paas are appeared to be local");
-      CircularLinkedList<Paas> localPass = new CircularLinkedList(paasList);
       logger.info("localPass");
-      for (Paas p:localPass) {
+      for (Paas p:paasList) {
         logger.info("p = " + p);
       }
       for (Client client : clientList) {
         if (client.getPaas() == null) {
-          if (localPass.size() > 0) {
-            client.setPaas(localPass.get());
+          if (paasList.size() > 0) {
+            client.setPaas(PaasPlacement.getInstance().choose(paasList));
           } else {
             logger.error("localPass list is null");
             throw new NullPointerException();
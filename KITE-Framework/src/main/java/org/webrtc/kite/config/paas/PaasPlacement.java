@@ -0,0 +1,202 @@
+/*
+ * Copyright 2018 Cosmo Software
+ */
+
+package org.webrtc.kite.config.paas;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Chooses the Paas a client is assigned to, from the load of each Paas instead of in turn.
+ * <p>
+ * The load of a Paas is the number of clients assigned to it and not done yet, plus the WebDriver sessions
+ * it is creating, relative to its capacity (its availableSlots when it was first seen), weighted by
+ * how slowly it has been creating sessions compared to the other candidates. The Paas with free
+ * slots are preferred, so that heterogeneous grids fill up proportionally to their size and the
+ * small hubs are not overloaded.
+ * </p>
+ * Two strategies are available: least loaded (all the candidates are compared), and power of two
+ * choices (two random candidates are compared), for a large number of Paas.
+ */
+public class PaasPlacement {
+
+  public static final String LEAST_LOADED = "leastLoaded";
+  public static final String POWER_OF_TWO = "powerOfTwo";
+
+  /** Weight of the last session creation in the average latency. */
+  private static final double LATENCY_WEIGHT = 0.2;
+
+  private static final PaasPlacement instance = new PaasPlacement();
+
+  private final ConcurrentMap<String, Load> loads = new ConcurrentHashMap<>();
+  private volatile String strategy = LEAST_LOADED;
+
+  private PaasPlacement() {
+  }
+
+  public static PaasPlacement getInstance() {
+    return instance;
+  }
+
+  /**
+   * Sets the strategy used to compare the Paas.
+   *
+   * @param strategy leastLoaded or powerOfTwo
+   */
+  public void setStrategy(String strategy) {
+    if (!LEAST_LOADED.equals(strategy) && !POWER_OF_TWO.equals(strategy)) {
+      throw new IllegalArgumentException("Unknown placement strategy " + strategy);
+    }
+    this.strategy = strategy;
+  }
+
+  /**
+   * Chooses the least loaded Paas among the candidates, and counts a client as assigned to it.
+   *
+   * @param candidates the Paas the client can run on
+   *
+   * @return the Paas chosen, null if there is no candidate
+   */
+  public Paas choose(List<Paas> candidates) {
+    if (candidates == null || candidates.isEmpty()) {
+      return null;
+    }
+    Paas chosen;
+    synchronized (this) {
+      double meanLatency = getMeanLatency(candidates);
+      if (POWER_OF_TWO.equals(strategy) && candidates.size() > 2) {
+        int first = ThreadLocalRandom.current().nextInt(candidates.size());
+        int second = ThreadLocalRandom.current().nextInt(candidates.size() - 1);
+        if (second >= first) {
+          second++;
+        }
+        chosen = leastLoaded(candidates.get(first), candidates.get(second), meanLatency);
+      } else {
+        chosen = candidates.get(0);
+        for (Paas paas : candidates) {
+          chosen = leastLoaded(chosen, paas, meanLatency);
+        }
+      }
+      getLoad(chosen).assigned++;
+    }
+    return chosen;
+  }
+
+  /**
+   * Counts a client as no longer assigned to a Paas, once its test is done.
+   *
+   * @param paas the Paas the client was assigned to
+   */
+  public void release(Paas paas) {
+    if (paas != null) {
+      Load load = getLoad(paas);
+      synchronized (this) {
+        load.assigned = Math.max(0, load.assigned - 1);
+      }
+    }
+  }
+
+  /**
+   * Counts a WebDriver session being created on a Paas.
+   *
+   * @param paas the Paas
+   */
+  public void sessionRequested(Paas paas) {
+    if (paas != null) {
+      Load load = getLoad(paas);
+      synchronized (this) {
+        load.inFlight++;
+      }
+    }
+  }
+
+  /**
+   * Counts a WebDriver session creation finished on a Paas, and its latency.
+   *
+   * @param paas    the Paas
+   * @param latency the time taken to create the session (or to fail), in ms
+   */
+  public void sessionDone(Paas paas, long latency) {
+    if (paas != null) {
+      Load load = getLoad(paas);
+      synchronized (this) {
+        load.inFlight = Math.max(0, load.inFlight - 1);
+        load.latency = load.latency < 0 ? latency : LATENCY_WEIGHT * latency + (1 - LATENCY_WEIGHT) * load.latency;
+      }
+    }
+  }
+
+  /**
+   * Checks whether a Paas has a slot for a client already assigned to it, counting the clients
+   * assigned, the sessions being created and the sessions held outside of them against its
+   * availableSlots.
+   *
+   * @param paas the Paas
+   * @param held the sessions open on the Paas without a client assigned, e.g. kept idle by the pool
+   *
+   * @return true if the sessions fit in the slots of the Paas
+   */
+  public boolean hasFreeSlot(Paas paas, int held) {
+    Load load = getLoad(paas);
+    synchronized (this) {
+      return load.assigned + load.inFlight + held <= load.capacity;
+    }
+  }
+
+  private Paas leastLoaded(Paas first, Paas second, double meanLatency) {
+    Load firstLoad = getLoad(first);
+    Load secondLoad = getLoad(second);
+    boolean firstFree = firstLoad.assigned < firstLoad.capacity;
+    boolean secondFree = secondLoad.assigned < secondLoad.capacity;
+    if (firstFree != secondFree) {
+      return firstFree ? first : second;
+    }
+    return secondLoad.getCost(meanLatency) < firstLoad.getCost(meanLatency) ? second : first;
+  }
+
+  private double getMeanLatency(List<Paas> candidates) {
+    double total = 0;
+    int count = 0;
+    for (Paas paas : candidates) {
+      Load load = getLoad(paas);
+      if (load.latency >= 0) {
+        total += load.latency;
+        count++;
+      }
+    }
+    return count == 0 ? -1 : total / count;
+  }
+
+  private Load getLoad(Paas paas) {
+    String key = paas.getUrl() != null ? paas.getUrl() : paas.getType() + "|" + paas.getGridId();
+    return loads.computeIfAbsent(key, k -> new Load(paas.getAvailableSlots()));
+  }
+
+  /**
+   * The load of a Paas. Guarded by the PaasPlacement.
+   */
+  private static class Load {
+    private final int capacity;
+    private int assigned = 0;
+    private int inFlight = 0;
+    private double latency = -1;
+
+    private Load(int capacity) {
+      this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * @return the share of the Paas used once one more client is assigned, weighted by its latency
+     */
+    private double getCost(double meanLatency) {
+      double cost = (assigned + inFlight + 1.0) / capacity;
+      if (latency > 0 && meanLatency > 0) {
+        cost *= Math.min(4, Math.max(0.5, latency / meanLatency));
+      }
+      return cost;
+    }
+  }
+}
@@ -45,6 +45,7 @@ import javax.persistence.Transient;
 import org.hibernate.annotations.GenericGenerator;
 import org.hibernate.annotations.Parameter;
 import org.webrtc.kite.exception.KiteInsufficientValueException;
+import org.webrtc.kite.stats.FleetStatsAggregator;
 
 /**
  * The type TestConfig.
@@ -91,6 +92,10 @@ public class TestConfig extends KiteEntity implements JsonBuilder, SampleData {
   private Boolean csvReport = false;
   private boolean generateReport = true;
   private Integer rampUpDelay = 0;
+  private JsonObject rampUp = null;
+  private Integer phaseTimeout = 60;
+  private Integer weight = 1;
+  private final FleetStatsAggregator fleetStats = new FleetStatsAggregator();
 
 
   /**
@@ -145,6 +150,9 @@ public class TestConfig extends KiteEntity implements JsonBuilder, SampleData {
     this.callbackUsername = jsonObject.getString("callbackUsername", null);
     this.callbackPassword = jsonObject.getString("callbackPassword", null);
     this.rampUpDelay = jsonObject.getInt("rampUpDelay", 0);
+    this.rampUp = jsonObject.getJsonObject("rampUp");
+    this.phaseTimeout = getIntFromJsonObject(jsonObject, "phaseTimeout", phaseTimeout);
+    this.weight = Math.max(1, getIntFromJsonObject(jsonObject, "weight", weight));
     this.tagName = jsonObject.getString("tag", null);
     this.tupleSize = getIntFromJsonObject(jsonObject, "tupleSize", -1);
 
@@ -785,4 +793,54 @@ public class TestConfig extends KiteEntity implements JsonBuilder, SampleData {
   public void setRampUpDelay(Integer rampUpDelay) {
     this.rampUpDelay = rampUpDelay;
   }
+
+  /**
+   * Gets the arrival profile of the ramp up, e.g. {"profile": "rate", "rate": 2}.
+   *
+   * @return the profile, null if the ramp up is only paced by rampUpDelay
+   */
+  @Transient
+  public JsonObject getRampUp() {
+    return rampUp;
+  }
+
+  public void setRampUp(JsonObject rampUp) {
+    this.rampUp = rampUp;
+  }
+
+  /**
+   * Gets the maximum time the runners of a load test wait for each other at the end of a phase.
+   *
+   * @return the timeout in minutes
+   */
+  public Integer getPhaseTimeout() {
+    return phaseTimeout;
+  }
+
+  public void setPhaseTimeout(Integer phaseTimeout) {
+    this.phaseTimeout = phaseTimeout;
+  }
+
+  /**
+   * Gets the share of the Paas given to this test when it runs concurrently with others.
+   *
+   * @return the weight, 1 by default
+   */
+  public Integer getWeight() {
+    return weight;
+  }
+
+  public void setWeight(Integer weight) {
+    this.weight = weight;
+  }
+
+  /**
+   * Gets the aggregator combining the stats collected by every runner of this test.
+   *
+   * @return the fleet stats aggregator
+   */
+  @Transient
+  public FleetStatsAggregator getFleetStats() {
+    return fleetStats;
+  }
 }
@@ -0,0 +1,275 @@
+package org.webrtc.kite.stats;
+
+import static org.webrtc.kite.stats.StatsUtils.buildPercentiles;
+
+import io.cosmosoftware.kite.steps.StepPhase;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import org.webrtc.kite.config.client.BrowserSpecs;
+import org.webrtc.kite.config.client.Client;
+import org.webrtc.kite.stats.rtc.RTCLogHistogram;
+import org.webrtc.kite.stats.rtc.RTCStatList;
+import org.webrtc.kite.stats.rtc.RTCStatSummary;
+import org.webrtc.kite.stats.rtc.RTCStreamHistograms;
+import org.webrtc.kite.stats.rtc.RTCStreamSummary;
+
+/**
+ * Combines the stats of every runner of a test, so that the percentiles across the whole fleet
+ * (e.g. the p90 received video bitrate of all the clients on a given hub) are available without
+ * post-processing the attachments of each runner.
+ * The stats are grouped by phase, then by Paas host, region, network profile and browser.
+ * Only the histograms are merged, so the memory used does not depend on the number of runners.
+ * Every method can be called concurrently.
+ */
+public class FleetStatsAggregator {
+
+  private final ConcurrentMap<StepPhase, ConcurrentMap<String, Group>> phases = new ConcurrentHashMap<>();
+  private final List<StepPhase> phaseOrder = new CopyOnWriteArrayList<>();
+
+  /**
+   * Adds the stats of one peer connection of a runner.
+   *
+   * @param phase    the phase during which the stats were collected
+   * @param client   the client of the runner
+   * @param statList the stats of the peer connection
+   */
+  public void add(StepPhase phase, Client client, RTCStatList statList) {
+    String paasHost = "NC";
+    String region = "NC";
+    if (client.getPaas() != null) {
+      paasHost = client.getPaas().retrieveHost();
+      region = client.getPaas().getRegion();
+    }
+    String networkProfile = client.getNetworkProfile() == null ? "NC" : client.getNetworkProfile().getName();
+    add(phase, paasHost, region, networkProfile, getBrowser(client), statList);
+  }
+
+  /**
+   * Adds the stats of one peer connection to a group.
+   *
+   * @param phase          the phase during which the stats were collected
+   * @param paasHost       the host of the Paas of the client
+   * @param region         the region of the Paas of the client
+   * @param networkProfile the network profile of the client
+   * @param browser        the browser of the client
+   * @param statList       the stats of the peer connection
+   */
+  public void add(StepPhase phase, String paasHost, String region, String networkProfile, String browser,
+    RTCStatList statList) {
+    String key = paasHost + "|" + region + "|" + networkProfile + "|" + browser;
+    phases.computeIfAbsent(phase, p -> {
+      phaseOrder.add(p);
+      return new ConcurrentHashMap<>();
+    })
+      .computeIfAbsent(key, k -> new Group(paasHost, region, networkProfile, browser))
+      .add(statList.getSummary());
+  }
+
+  /**
+   * @return true if no stats have been added
+   */
+  public boolean isEmpty() {
+    return phases.isEmpty();
+  }
+
+  /**
+   * @return the phases for which stats have been added, in order of first addition
+   */
+  public List<StepPhase> getPhases() {
+    return phaseOrder;
+  }
+
+  /**
+   * Gets the histograms of all the groups of a phase merged together.
+   *
+   * @param phase the phase
+   *
+   * @return the histograms, keyed by metric path (e.g. currentRoundTripTime or inbound/video/bitrate)
+   */
+  public Map<String, RTCLogHistogram> getTotalHistograms(StepPhase phase) {
+    return getTotal(phase).histograms;
+  }
+
+  /**
+   * Gets the fleet summary of every phase: the percentiles of each group and of all the groups together.
+   *
+   * @return the summary, keyed by phase name
+   */
+  public JsonObject toJson() {
+    JsonObjectBuilder builder = Json.createObjectBuilder();
+    for (StepPhase phase : phaseOrder) {
+      builder.add(phase.getName(), toJson(phase));
+    }
+    return builder.build();
+  }
+
+  /**
+   * Gets the fleet summary of a phase.
+   *
+   * @param phase the phase
+   *
+   * @return the percentiles of each group and of all the groups together
+   */
+  public JsonObject toJson(StepPhase phase) {
+    JsonArrayBuilder groups = Json.createArrayBuilder();
+    Map<String, Group> phaseGroups = phases.get(phase);
+    if (phaseGroups != null) {
+      for (Group group : new TreeMap<>(phaseGroups).values()) {
+        groups.add(group.toJson());
+      }
+    }
+    return Json.createObjectBuilder()
+      .add("total", getTotal(phase).toJson())
+      .add("groups", groups)
+      .build();
+  }
+
+  private Group getTotal(StepPhase phase) {
+    Group total = new Group("ALL", "ALL", "ALL", "ALL");
+    Map<String, Group> phaseGroups = phases.get(phase);
+    if (phaseGroups != null) {
+      for (Group group : phaseGroups.values()) {
+        total.merge(group);
+      }
+    }
+    return total;
+  }
+
+  /**
+   * Writes the fleet summary of every phase to a file.
+   *
+   * @param file the file
+   *
+   * @throws IOException if the file cannot be written
+   */
+  public void writeTo(File file) throws IOException {
+    if (file.getParentFile() != null) {
+      file.getParentFile().mkdirs();
+    }
+    Files.write(file.toPath(), toJson().toString().getBytes(StandardCharsets.UTF_8));
+  }
+
+  private static String getBrowser(Client client) {
+    BrowserSpecs specs = client.getBrowserSpecs();
+    if (specs == null) {
+      return "NC";
+    }
+    String name = client.isApp() ? specs.getDeviceName() : specs.getBrowserName();
+    return specs.getVersion() == null || specs.getVersion().isEmpty() ? name : name + " " + specs.getVersion();
+  }
+
+  /**
+   * The merged histograms of the peer connections of a group.
+   */
+  private static class Group {
+    private final String paasHost;
+    private final String region;
+    private final String networkProfile;
+    private final String browser;
+    private final Map<String, RTCLogHistogram> histograms = new ConcurrentHashMap<>();
+    private int peerConnections = 0;
+    private int connected = 0;
+
+    private Group(String paasHost, String region, String networkProfile, String browser) {
+      this.paasHost = paasHost;
+      this.region = region;
+      this.networkProfile = networkProfile;
+      this.browser = browser;
+    }
+
+    private void add(RTCStatSummary summary) {
+      synchronized (this) {
+        peerConnections++;
+        if (!summary.hasNoData()) {
+          connected++;
+        }
+      }
+      histogram("currentRoundTripTime").merge(summary.getCurrentRoundTripTimeHistogram());
+      for (String direction : new String[] {"inbound", "outbound"}) {
+        for (RTCStreamSummary stream : summary.getStreams(direction)) {
+          String prefix = direction + "/" + (stream.isAudio() ? "audio" : "video") + "/";
+          RTCStreamHistograms streamHistograms = stream.getHistograms();
+          histogram(prefix + "bitrate").merge(streamHistograms.getBitrate());
+          if (!stream.isAudio()) {
+            histogram(prefix + "frameRate").merge(streamHistograms.getFrameRate());
+          }
+          if (stream.isReceived()) {
+            histogram(prefix + "jitter").merge(streamHistograms.getJitter());
+            double packetsLost = stream.getSummary(StatEnum.PACKETS_LOST).getDiffEndToStart();
+            double packetsReceived = stream.getSummary(StatEnum.PACKETS).getDiffEndToStart();
+            if (packetsLost >= 0 && packetsReceived >= 0 && packetsLost + packetsReceived > 0) {
+              histogram(prefix + "packetLoss").record(100 * packetsLost / (packetsLost + packetsReceived));
+            }
+          }
+        }
+      }
+    }
+
+    private void merge(Group other) {
+      int otherPeerConnections;
+      int otherConnected;
+      synchronized (other) {
+        otherPeerConnections = other.peerConnections;
+        otherConnected = other.connected;
+      }
+      synchronized (this) {
+        peerConnections += otherPeerConnections;
+        connected += otherConnected;
+      }
+      for (Map.Entry<String, RTCLogHistogram> entry : other.histograms.entrySet()) {
+        histogram(entry.getKey()).merge(entry.getValue());
+      }
+    }
+
+    private RTCLogHistogram histogram(String name) {
+      return histograms.computeIfAbsent(name, n -> new RTCLogHistogram());
+    }
+
+    private JsonObject toJson() {
+      JsonObjectBuilder builder = Json.createObjectBuilder()
+        .add("paasHost", paasHost)
+        .add("region", region)
+        .add("networkProfile", networkProfile)
+        .add("browser", browser);
+      synchronized (this) {
+        builder.add("peerConnections", peerConnections)
+          .add("connected", connected);
+      }
+      // "inbound/video/bitrate" -> {"inbound": {"video": {"bitrate": {...}}}}
+      Map<String, Map<String, JsonObjectBuilder>> streams = new TreeMap<>();
+      for (Map.Entry<String, RTCLogHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+        if (entry.getValue().isEmpty()) {
+          continue;
+        }
+        String[] path = entry.getKey().split("/");
+        if (path.length == 1) {
+          builder.add(path[0], buildPercentiles(entry.getValue()));
+        } else {
+          streams.computeIfAbsent(path[0], d -> new TreeMap<>())
+            .computeIfAbsent(path[1], k -> Json.createObjectBuilder())
+            .add(path[2], buildPercentiles(entry.getValue()));
+        }
+      }
+      for (Map.Entry<String, Map<String, JsonObjectBuilder>> direction : streams.entrySet()) {
+        JsonObjectBuilder directionBuilder = Json.createObjectBuilder();
+        for (Map.Entry<String, JsonObjectBuilder> kind : direction.getValue().entrySet()) {
+          directionBuilder.add(kind.getKey(), kind.getValue());
+        }
+        builder.add(direction.getKey(), directionBuilder);
+      }
+      return builder.build();
+    }
+  }
+}
@@ -24,15 +24,21 @@ import io.cosmosoftware.kite.exception.KiteTestException;
 import io.cosmosoftware.kite.interfaces.Runner;
 import io.cosmosoftware.kite.report.Status;
 import io.cosmosoftware.kite.steps.TestStep;
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.UUID;
 import javax.json.JsonObject;
 import org.webrtc.kite.stats.rtc.RTCStatList;
 import org.webrtc.kite.stats.rtc.RTCStatMap;
+import org.webrtc.kite.tests.TestRunner;
 
 public class GetStatsStep extends TestStep {
   private final JsonObject getStatsConfig;
   private final Runner runner;
   private String customName = "";
   private boolean getRaw = true;
+  private String rawFormat = "json";
   private boolean keepStats = false;
   private RTCStatMap statMap;
   private int batchId = 0;
@@ -42,6 +48,7 @@ public class GetStatsStep extends TestStep {
     this.runner = runner;
     this.getStatsConfig = getStatsConfig;
     this.keepStats = getStatsConfig.getBoolean("keepStats", this.keepStats);
+    this.rawFormat = getStatsConfig.getString("rawFormat", this.rawFormat);
   }
 
   @Override
@@ -52,15 +59,37 @@ public class GetStatsStep extends TestStep {
   @Override
   protected void step() throws KiteTestException {
     try {
-      RTCStatMap results = getPCStatOvertime(webDriver, getStatsConfig, batchId, runner.getPlatform());
+      File rawStatsFolder = null;
+      if (getRaw && "binary".equals(rawFormat)) {
+        String folderName = (customName + runner.getClientName()).replaceAll("[^A-Za-z0-9._-]", "_")
+            + "_" + UUID.randomUUID().toString().substring(0, 8);
+        rawStatsFolder = new File(reporter.getReportPath(), "rawStats" + File.separator + folderName);
+      }
+      RTCStatMap results = getPCStatOvertime(webDriver, getStatsConfig, batchId, runner.getPlatform(), rawStatsFolder,
+          getRaw && rawStatsFolder == null);
       results.setRegionId(this.runner.getClientRegion());
       results.setNetworkProfile(this.runner.getNetworkProfile());
       if (keepStats) {
         this.statMap = results;
       }
+      if (runner instanceof TestRunner && ((TestRunner) runner).getClient() != null) {
+        TestRunner testRunner = (TestRunner) runner;
+        for (String pc : results.keySet()) {
+          testRunner.getTestConfig().getFleetStats().add(runner.getStepPhase(), testRunner.getClient(), results.get(pc));
+        }
+      }
       if (!results.isEmpty()) {
         for (String pc : results.keySet()) {
-          if (getRaw) {
+          if (rawStatsFolder != null) {
+            // the binary file has been written while sampling into the report folder, only its path in
+            // the report folder is attached, so that the report can be moved with it
+            File rawStatsFile = results.get(pc).closeRawStatsWriter();
+            reporter.textAttachment(
+                this.report,
+                customName + "Stats(Raw)_" + pc.replaceAll("\"", ""),
+                getReportRelativePath(rawStatsFile),
+                "plain");
+          } else if (results.get(pc).isRetainingRawSamples()) {
             reporter.jsonAttachment(
                 this.report,
                 customName + "Stats(Raw)_" + pc.replaceAll("\"", ""),
@@ -75,6 +104,17 @@ public class GetStatsStep extends TestStep {
     }
   }
 
+  /**
+   * Gets the path of a file of the report folder, relative to it, with / as separator.
+   */
+  private String getReportRelativePath(File file) {
+    Path reportPath = Paths.get(reporter.getReportPath()).toAbsolutePath().normalize();
+    Path path = file.toPath().toAbsolutePath().normalize();
+    if (!path.startsWith(reportPath)) {
+      return path.toString();
+    }
+    return reportPath.relativize(path).toString().replace(File.separatorChar, '/');
+  }
 
   public RTCStatMap getResults() {
     return statMap;
@@ -3,6 +3,7 @@ package org.webrtc.kite.stats;
 public enum StatEnum {
   JITTER("audio_jitter(ms)"),
   AVG_JITTER("avg_audio_jitter(ms)"),
+  JITTER_PERCENTILES("audio_jitter_percentiles(ms)"),
   
   AUDIO_LEVEL("audio_level(dB)"),
   AVG_AUDIO_LEVEL("avg_audio_level(dB)"),
@@ -16,6 +17,7 @@ public enum StatEnum {
   FRAME_RATE("frame_rate(fps)"),
   AVG_FRAME_RATE("avg_frame_rate(fps)"),
   AVG_FRAME_RATE_DECODED("avg_frame_decoded_rate(fps)"),
+  FRAME_RATE_PERCENTILES("frame_rate_percentiles(fps)"),
   
   BYTES("bytes"),
   TOTAL_BYTES_SENT("total_bytes_sent(bytes)"),
@@ -29,6 +31,8 @@ public enum StatEnum {
   
   SENT_BITRATE("avg_sent_bitrate(kbps)"),
   RECEIVED_BITRATE("avg_rcv_bitrate(kbps)"),
+  SENT_BITRATE_PERCENTILES("sent_bitrate_percentiles(kbps)"),
+  RECEIVED_BITRATE_PERCENTILES("rcv_bitrate_percentiles(kbps)"),
   
   PACKETS("packets"),
   PACKETS_LOST("packets_Lost"),
@@ -46,6 +50,7 @@ public enum StatEnum {
   
   CURRENT_RTT("current_rtt(ms)"),
   AVG_CURRENT_RTT("avg_current_rtt(ms)"),
+  CURRENT_RTT_PERCENTILES("current_rtt_percentiles(ms)"),
   TOTAL_RTT("total_rtt(ms)"),
   
   REMOTE_IP("remote_IP")
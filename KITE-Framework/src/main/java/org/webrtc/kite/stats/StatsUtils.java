@@ -28,19 +28,22 @@ import io.cosmosoftware.kite.report.Status;
 import io.cosmosoftware.kite.util.WebDriverUtils;
 import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.WebDriver;
+import org.webrtc.kite.KiteMetrics;
 
 import javax.json.*;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
-import org.webrtc.kite.stats.rtc.RTCIceCandidatePairStats;
+import org.webrtc.kite.stats.rtc.RTCLogHistogram;
+import org.webrtc.kite.stats.rtc.RTCRunningStat;
 import org.webrtc.kite.stats.rtc.RTCStatList;
 import org.webrtc.kite.stats.rtc.RTCStatMap;
+import org.webrtc.kite.stats.rtc.RTCStatSummary;
 import org.webrtc.kite.stats.rtc.RTCStats;
-import org.webrtc.kite.stats.rtc.rtpstream.RTCInboundRtpStreamStats;
-import org.webrtc.kite.stats.rtc.rtpstream.RTCOutboundRtpStreamStats;
-import org.webrtc.kite.stats.rtc.rtpstream.RTCReceivedRtpStreamStats;
-import org.webrtc.kite.stats.rtc.rtpstream.RTCRemoteInboundRtpStreamStats;
-import org.webrtc.kite.stats.rtc.rtpstream.RTCRtpStreamStats;
-import org.webrtc.kite.stats.rtc.rtpstream.RTCSentRtpStreamStats;
+import org.webrtc.kite.stats.rtc.RTCStatsBinaryWriter;
+import org.webrtc.kite.stats.rtc.RTCStreamSummary;
 
 import static io.cosmosoftware.kite.entities.Timeouts.ONE_SECOND_INTERVAL;
 import static io.cosmosoftware.kite.util.ReportUtils.timestamp;
@@ -147,10 +150,12 @@ public class StatsUtils {
           }
           break;
         default:
-          String stashStatsScript = "const getStatsValues = () =>" +
+          Set<String> selectedTypes = RTCStats.compileSelectedStats(selectedStats);
+          String stashStatsScript = getStatsFilterScript(selectedTypes) +
+                  "const getStatsValues = () =>" +
                   peerConnection + "  .getStats()" +
                   "    .then(data => {" +
-                  "      return [...data.values()];" +
+                  "      return [...data.values()].filter(isSelected);" +
                   "    });" +
                   "const stashStats = async () => {" +
                   "  window.KITEStats = await getStatsValues();" +
@@ -161,7 +166,7 @@ public class StatsUtils {
           executeJsScript(webDriver, stashStatsScript);
           waitAround(Timeouts.ONE_SECOND_INTERVAL);
           rtn = new RTCStats(peerConnection,
-                  (List<Map>) executeJsScript(webDriver, getStashedStatsScript), selectedStats);
+                  (List<Map>) executeJsScript(webDriver, getStashedStatsScript), selectedTypes);
           rtn.setRoomUrl(webDriver.getCurrentUrl());
           break;
       }
@@ -187,28 +192,102 @@ public class StatsUtils {
    */
   public static RTCStatMap getPCStatOvertime(WebDriver webDriver, JsonObject getStatsConfig, String platform)
           throws KiteTestException {
-    RTCStatMap result = new RTCStatMap();
-    for (JsonString pc : getStatsConfig.getJsonArray("peerConnections").getValuesAs(JsonString.class)) {
-      result.put(pc.toString(), getPCStatOvertime(
-              webDriver,
-              pc.getString(),
-              getStatsConfig.getInt("statsCollectionTime"),
-              getStatsConfig.getInt("statsCollectionInterval"),
-              getStatsConfig.getJsonArray("selectedStats"), 0, platform));
-    }
-    return result;
+    return getPCStatOvertime(webDriver, getStatsConfig, 0, platform);
   }
 
   public static RTCStatMap getPCStatOvertime(WebDriver webDriver, JsonObject getStatsConfig, int batchId, String platform)
     throws KiteTestException {
+    return getPCStatOvertime(webDriver, getStatsConfig, batchId, platform, null);
+  }
+
+  /**
+   * Collects the stats of the peer connections of the getStatsConfig over time, and keeps the JSON
+   * of the samples for transformToJson unless their raw stats are written to a binary file.
+   *
+   * @param webDriver      used to execute command.
+   * @param getStatsConfig the getStatsConfig
+   * @param batchId        the batch id
+   * @param platform       the platform of the client
+   * @param rawStatsFolder the folder of the binary raw stats files, null to not write any
+   *
+   * @return the stats of each peer connection
+   * @throws KiteTestException the kite test exception
+   */
+  public static RTCStatMap getPCStatOvertime(WebDriver webDriver, JsonObject getStatsConfig, int batchId, String platform,
+    File rawStatsFolder) throws KiteTestException {
+    return getPCStatOvertime(webDriver, getStatsConfig, batchId, platform, rawStatsFolder, rawStatsFolder == null);
+  }
+
+  /**
+   * Collects the stats of the peer connections of the getStatsConfig over time and also writes
+   * the raw stats of each peer connection to a binary file (see RTCStatsBinaryWriter) as they are
+   * collected. The files are named after the peer connections and closed by
+   * RTCStatList.closeRawStatsWriter().
+   *
+   * @param webDriver      used to execute command.
+   * @param getStatsConfig the getStatsConfig
+   * @param batchId        the batch id
+   * @param platform       the platform of the client
+   * @param rawStatsFolder the folder of the binary raw stats files, null to not write any
+   * @param rawJson        true to keep the JSON of the samples for transformToJson
+   *
+   * @return the stats of each peer connection
+   * @throws KiteTestException the kite test exception
+   */
+  public static RTCStatMap getPCStatOvertime(WebDriver webDriver, JsonObject getStatsConfig, int batchId, String platform,
+    File rawStatsFolder, boolean rawJson) throws KiteTestException {
     RTCStatMap result = new RTCStatMap();
-    for (JsonString pc : getStatsConfig.getJsonArray("peerConnections").getValuesAs(JsonString.class)) {
-      result.put(pc.toString(), getPCStatOvertime(
-        webDriver,
-        pc.getString(),
-        getStatsConfig.getInt("statsCollectionTime"),
-        getStatsConfig.getInt("statsCollectionInterval"),
-        getStatsConfig.getJsonArray("selectedStats"), batchId, platform));
+    List<JsonString> pcs = getStatsConfig.getJsonArray("peerConnections").getValuesAs(JsonString.class);
+    List<String> peerConnections = new ArrayList<>();
+    for (JsonString pc : pcs) {
+      peerConnections.add(pc.getString());
+    }
+    List<RTCStatList> statLists = newStatLists(peerConnections, !getStatsConfig.getBoolean("streamingSummary", false));
+    for (RTCStatList statList : statLists) {
+      statList.setRetainRawSamples(rawJson && statList.isRetainingSamples());
+    }
+    try {
+      if (rawStatsFolder != null) {
+        for (int index = 0; index < peerConnections.size(); index++) {
+          writeRawStats(statLists.get(index), rawStatsFolder, peerConnections.get(index));
+        }
+      }
+      if (isMobile(platform)) {
+        for (int index = 0; index < peerConnections.size(); index++) {
+          getPCStatOvertime(
+            webDriver,
+            peerConnections.get(index),
+            getStatsConfig.getInt("statsCollectionTime"),
+            getStatsConfig.getInt("statsCollectionInterval"),
+            getStatsConfig.getJsonArray("selectedStats"), batchId, platform, statLists.get(index));
+        }
+      } else if (getStatsConfig.getBoolean("inPageSampling", false)) {
+        getPCStatOvertimeInPage(
+          webDriver,
+          peerConnections,
+          getStatsConfig.getInt("statsCollectionTime"),
+          getStatsConfig.getInt("statsCollectionInterval"),
+          getStatsConfig.getInt("drainInterval", 0),
+          RTCStats.compileSelectedStats(getStatsConfig.getJsonArray("selectedStats")), batchId, statLists);
+      } else {
+        getPCStatOvertime(
+          webDriver,
+          peerConnections,
+          getStatsConfig.getInt("statsCollectionTime"),
+          getStatsConfig.getInt("statsCollectionInterval"),
+          RTCStats.compileSelectedStats(getStatsConfig.getJsonArray("selectedStats")), batchId, statLists);
+      }
+    } catch (KiteTestException | UncheckedIOException e) {
+      for (RTCStatList statList : statLists) {
+        closeQuietly(statList.getRawStatsWriter());
+      }
+      if (e instanceof UncheckedIOException) {
+        throw new KiteTestException("Could not write the raw stats: " + e.getLocalizedMessage(), Status.BROKEN);
+      }
+      throw e;
+    }
+    for (int index = 0; index < pcs.size(); index++) {
+      result.put(pcs.get(index).toString(), statLists.get(index));
     }
     return result;
   }
@@ -216,17 +295,14 @@ public class StatsUtils {
   /**
    * Transform list of RTCStats to list of Json Object
    *
-   * @param stats list of RTCStats object.
+   * @param stats list of RTCStats, retaining the JSON of its samples (see RTCStatList.setRetainRawSamples).
    *
    * @return list of Json Object
    */
   public static JsonObject transformToJson(RTCStatList stats) {
     JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
-    for (RTCStats stat: stats) {
-      JsonObject temp = stat.toJson();
-      if (!temp.isEmpty()) {
-        arrayBuilder.add(stat.toJson());
-      }
+    for (JsonObject sample : stats.getRawSamples()) {
+      arrayBuilder.add(sample);
     }
     JsonObjectBuilder rtn =  Json.createObjectBuilder()
         .add("Connected", !stats.hasNoData())
@@ -269,7 +345,13 @@ public class StatsUtils {
    */
   public static RTCStatList getPCStatOvertime(WebDriver webDriver, String peerConnection, int durationInMilliSeconds, int intervalInMilliSeconds, JsonArray selectedStats, int batchId, String platform)
     throws KiteTestException {
-    RTCStatList statsOverTime = new RTCStatList();
+    return getPCStatOvertime(webDriver, peerConnection, durationInMilliSeconds, intervalInMilliSeconds, selectedStats,
+      batchId, platform, new RTCStatList());
+  }
+
+  private static RTCStatList getPCStatOvertime(WebDriver webDriver, String peerConnection, int durationInMilliSeconds,
+    int intervalInMilliSeconds, JsonArray selectedStats, int batchId, String platform, RTCStatList statsOverTime)
+    throws KiteTestException {
     switch(platform.toLowerCase()){
       case "android":
       case "ios":
@@ -296,7 +378,366 @@ public class StatsUtils {
 
     return statsOverTime;
   }
-  
+
+  /**
+   * Collects the stats of several peer connections over one sampling window.
+   * At each tick, getStats() is called on every peer connection at once and
+   * the resulting samples share the same timestamp.
+   *
+   * @param webDriver              used to execute command.
+   * @param peerConnections        the peer connections
+   * @param durationInMilliSeconds during which the stats will be collected.
+   * @param intervalInMilliSeconds between each time getStats gets called.
+   * @param selectedStats          list of selected stats.
+   * @param batchId                the batch id
+   * @param retainSamples          false to only keep a running summary of the samples
+   *
+   * @return one list of stats per peer connection, in the same order as peerConnections
+   * @throws KiteTestException the kite test exception
+   */
+  public static List<RTCStatList> getPCStatOvertime(WebDriver webDriver, List<String> peerConnections, int durationInMilliSeconds,
+    int intervalInMilliSeconds, JsonArray selectedStats, int batchId, boolean retainSamples)
+    throws KiteTestException {
+    return getPCStatOvertime(webDriver, peerConnections, durationInMilliSeconds, intervalInMilliSeconds,
+      RTCStats.compileSelectedStats(selectedStats), batchId, newStatLists(peerConnections, retainSamples));
+  }
+
+  private static List<RTCStatList> getPCStatOvertime(WebDriver webDriver, List<String> peerConnections, int durationInMilliSeconds,
+    int intervalInMilliSeconds, Set<String> selectedTypes, int batchId, List<RTCStatList> statsOverTime)
+    throws KiteTestException {
+    for (int timer = 0; timer <= durationInMilliSeconds; timer += intervalInMilliSeconds) {
+      List<RTCStats> tick = getPCStatOnce(webDriver, peerConnections, selectedTypes, batchId);
+      for (int index = 0; index < tick.size(); index++) {
+        statsOverTime.get(index).add(tick.get(index));
+      }
+      if (timer <= durationInMilliSeconds - intervalInMilliSeconds) {
+        waitAround(Math.abs(intervalInMilliSeconds - ONE_SECOND_INTERVAL));
+      }
+    }
+    return statsOverTime;
+  }
+
+  /**
+   * Stashes the stats of several peer connections into a global variable in one call
+   * and collects them 1s after.
+   *
+   * @param webDriver       used to execute command.
+   * @param peerConnections the peer connections
+   * @param selectedStats   array of chosen stats
+   * @param batchId         the batch id
+   *
+   * @return one RTCStats per peer connection, all with the same timestamp
+   * @throws KiteTestException the KITE test exception
+   */
+  public static List<RTCStats> getPCStatOnce(WebDriver webDriver, List<String> peerConnections, JsonArray selectedStats, int batchId)
+    throws KiteTestException {
+    return getPCStatOnce(webDriver, peerConnections, RTCStats.compileSelectedStats(selectedStats), batchId);
+  }
+
+  private static List<RTCStats> getPCStatOnce(WebDriver webDriver, List<String> peerConnections, Set<String> selectedTypes, int batchId)
+    throws KiteTestException {
+    try {
+      long timestamp = System.currentTimeMillis();
+      long start = System.nanoTime();
+      executeJsScript(webDriver, getStashAllStatsScript(peerConnections, selectedTypes));
+      long latency = System.nanoTime() - start;
+      waitAround(Timeouts.ONE_SECOND_INTERVAL);
+      start = System.nanoTime();
+      List<List<Map>> stashed = (List<List<Map>>) executeJsScript(webDriver, "return window.KITEStats;");
+      latency += System.nanoTime() - start;
+      KiteMetrics.getInstance().observe(KiteMetrics.GET_STATS_LATENCY, latency / 1e9);
+      String roomUrl = webDriver.getCurrentUrl();
+      List<RTCStats> result = new ArrayList<>();
+      for (int index = 0; index < peerConnections.size(); index++) {
+        RTCStats stats = new RTCStats(peerConnections.get(index),
+          stashed == null || index >= stashed.size() ? null : stashed.get(index), selectedTypes);
+        stats.setTimestamp(timestamp);
+        stats.setRoomUrl(roomUrl);
+        stats.setBatch(batchId);
+        result.add(stats);
+      }
+      return result;
+    } catch (Exception e) {
+      throw new KiteTestException("Could not get stats from peer connections: " + e.getLocalizedMessage(), Status.BROKEN);
+    }
+  }
+
+  /**
+   * Collects the stats of a peer connection over time with a sampler running inside the page.
+   *
+   * @param webDriver                   used to execute command.
+   * @param peerConnection              the peer connection
+   * @param durationInMilliSeconds      during which the stats will be collected.
+   * @param intervalInMilliSeconds      between each time getStats gets called.
+   * @param drainIntervalInMilliSeconds between each time the buffered samples are fetched, 0 to fetch only at the end.
+   * @param selectedStats               list of selected stats.
+   * @param batchId                     the batch id
+   *
+   * @return the list of stats collected
+   * @throws KiteTestException the kite test exception
+   */
+  public static RTCStatList getPCStatOvertimeInPage(WebDriver webDriver, String peerConnection, int durationInMilliSeconds,
+    int intervalInMilliSeconds, int drainIntervalInMilliSeconds, JsonArray selectedStats, int batchId)
+    throws KiteTestException {
+    return getPCStatOvertimeInPage(webDriver, Collections.singletonList(peerConnection), durationInMilliSeconds,
+      intervalInMilliSeconds, drainIntervalInMilliSeconds, selectedStats, batchId, true).get(0);
+  }
+
+  /**
+   * Collects the stats of several peer connections over time with a sampler running inside the page.
+   * getStats() is called by the browser itself on every peer connection every intervalInMilliSeconds and
+   * the samples are buffered in the page, then drained in one call at the end (or every drainIntervalInMilliSeconds).
+   * Samples taken at the same tick share the same timestamp.
+   *
+   * @param webDriver                   used to execute command.
+   * @param peerConnections             the peer connections
+   * @param durationInMilliSeconds      during which the stats will be collected.
+   * @param intervalInMilliSeconds      between each time getStats gets called.
+   * @param drainIntervalInMilliSeconds between each time the buffered samples are fetched, 0 to fetch only at the end.
+   * @param selectedStats               list of selected stats.
+   * @param batchId                     the batch id
+   * @param retainSamples               false to only keep a running summary of the samples
+   *
+   * @return one list of stats per peer connection, in the same order as peerConnections
+   * @throws KiteTestException the kite test exception
+   */
+  public static List<RTCStatList> getPCStatOvertimeInPage(WebDriver webDriver, List<String> peerConnections, int durationInMilliSeconds,
+    int intervalInMilliSeconds, int drainIntervalInMilliSeconds, JsonArray selectedStats, int batchId, boolean retainSamples)
+    throws KiteTestException {
+    return getPCStatOvertimeInPage(webDriver, peerConnections, durationInMilliSeconds, intervalInMilliSeconds,
+      drainIntervalInMilliSeconds, RTCStats.compileSelectedStats(selectedStats), batchId,
+      newStatLists(peerConnections, retainSamples));
+  }
+
+  private static List<RTCStatList> getPCStatOvertimeInPage(WebDriver webDriver, List<String> peerConnections, int durationInMilliSeconds,
+    int intervalInMilliSeconds, int drainIntervalInMilliSeconds, Set<String> selectedTypes, int batchId,
+    List<RTCStatList> statsOverTime) throws KiteTestException {
+    String roomUrl = webDriver.getCurrentUrl();
+    startStatsSampler(webDriver, peerConnections, intervalInMilliSeconds, selectedTypes);
+    long deadline = System.currentTimeMillis() + durationInMilliSeconds;
+    long remaining;
+    while ((remaining = deadline - System.currentTimeMillis()) > 0) {
+      waitAround((int) (drainIntervalInMilliSeconds > 0 ? Math.min(drainIntervalInMilliSeconds, remaining) : remaining));
+      if (drainIntervalInMilliSeconds > 0 && System.currentTimeMillis() < deadline) {
+        addSamples(statsOverTime, drainStatsSampler(webDriver, peerConnections, false), peerConnections, selectedTypes, batchId, roomUrl);
+      }
+    }
+    addSamples(statsOverTime, drainStatsSampler(webDriver, peerConnections, true), peerConnections, selectedTypes, batchId, roomUrl);
+    return statsOverTime;
+  }
+
+  /**
+   * Installs a timer in the page that calls getStats() on all the peer connections every
+   * intervalInMilliSeconds and buffers the results in window.KITEStatsSampler.
+   * An existing sampler for the same peer connections is replaced.
+   *
+   * @param webDriver              used to execute command.
+   * @param peerConnections        the peer connections
+   * @param intervalInMilliSeconds between each time getStats gets called.
+   *
+   * @throws KiteTestException the kite test exception
+   */
+  public static void startStatsSampler(WebDriver webDriver, List<String> peerConnections, int intervalInMilliSeconds)
+    throws KiteTestException {
+    startStatsSampler(webDriver, peerConnections, intervalInMilliSeconds, Collections.<String>emptySet());
+  }
+
+  /**
+   * Installs a timer in the page that calls getStats() on all the peer connections every
+   * intervalInMilliSeconds and buffers the results of the selected types in window.KITEStatsSampler.
+   * An existing sampler for the same peer connections is replaced.
+   *
+   * @param webDriver              used to execute command.
+   * @param peerConnections        the peer connections
+   * @param intervalInMilliSeconds between each time getStats gets called.
+   * @param selectedTypes          the stat types to keep, all if empty.
+   *
+   * @throws KiteTestException the kite test exception
+   */
+  public static void startStatsSampler(WebDriver webDriver, List<String> peerConnections, int intervalInMilliSeconds,
+    Set<String> selectedTypes) throws KiteTestException {
+    try {
+      ((JavascriptExecutor) webDriver).executeScript(getStartSamplerScript(peerConnections, selectedTypes),
+        getSamplerKey(peerConnections), intervalInMilliSeconds);
+    } catch (Exception e) {
+      throw new KiteTestException("Could not start the stats sampler on " + peerConnections + ": " + e.getLocalizedMessage(), Status.BROKEN);
+    }
+  }
+
+  /**
+   * Fetches and clears the samples buffered by the in-page sampler.
+   *
+   * @param webDriver       used to execute command.
+   * @param peerConnections the peer connections the sampler was started with
+   * @param stop            true to also remove the sampler from the page
+   *
+   * @return the list of buffered samples, each with a timestamp and one stats array per peer connection
+   * @throws KiteTestException the kite test exception
+   */
+  public static List<Map> drainStatsSampler(WebDriver webDriver, List<String> peerConnections, boolean stop)
+    throws KiteTestException {
+    try {
+      long start = System.nanoTime();
+      Object samples = ((JavascriptExecutor) webDriver).executeScript(getDrainSamplerScript(),
+        getSamplerKey(peerConnections), stop);
+      KiteMetrics.getInstance().observe(KiteMetrics.GET_STATS_LATENCY, (System.nanoTime() - start) / 1e9);
+      return samples == null ? new ArrayList<>() : (List<Map>) samples;
+    } catch (Exception e) {
+      throw new KiteTestException("Could not get stats from the stats sampler on " + peerConnections + ": " + e.getLocalizedMessage(), Status.BROKEN);
+    }
+  }
+
+  private static void addSamples(List<RTCStatList> statsOverTime, List<Map> samples, List<String> peerConnections,
+    Set<String> selectedTypes, int batchId, String roomUrl) {
+    for (Map sample : samples) {
+      List<List<Map>> statsPerPc = (List<List<Map>>) sample.get("stats");
+      for (int index = 0; index < peerConnections.size(); index++) {
+        RTCStats stats = new RTCStats(peerConnections.get(index),
+          statsPerPc == null || index >= statsPerPc.size() ? null : statsPerPc.get(index), selectedTypes);
+        if (sample.get("timestamp") != null) {
+          stats.setTimestamp(((Number) sample.get("timestamp")).longValue());
+        }
+        stats.setRoomUrl(roomUrl);
+        stats.setBatch(batchId);
+        statsOverTime.get(index).add(stats);
+      }
+    }
+  }
+
+  private static List<RTCStatList> newStatLists(List<String> peerConnections, boolean retainSamples) {
+    List<RTCStatList> statLists = new ArrayList<>();
+    for (int index = 0; index < peerConnections.size(); index++) {
+      RTCStatList statList = new RTCStatList();
+      statList.setRetainSamples(retainSamples);
+      statLists.add(statList);
+    }
+    return statLists;
+  }
+
+  /**
+   * Opens the binary raw stats file of a peer connection, to which the samples added to the list are written.
+   */
+  private static void writeRawStats(RTCStatList statList, File rawStatsFolder, String peerConnection)
+    throws KiteTestException {
+    String fileName = peerConnection.replaceAll("[^A-Za-z0-9._-]", "_") + ".kstats";
+    try {
+      statList.setRawStatsWriter(new RTCStatsBinaryWriter(new File(rawStatsFolder, fileName)));
+    } catch (IOException e) {
+      throw new KiteTestException("Could not write the raw stats of " + peerConnection + ": " + e.getLocalizedMessage(), Status.BROKEN);
+    }
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    if (closeable != null) {
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        logger.warn("Could not close " + closeable + ": " + e.getLocalizedMessage());
+      }
+    }
+  }
+
+  private static String getSamplerKey(List<String> peerConnections) {
+    return String.join(",", peerConnections);
+  }
+
+  /**
+   * Returns a javascript array of functions, each returning one of the peer connections,
+   * so that a missing peer connection does not break the whole script.
+   *
+   * @return the array as string.
+   */
+  private static String getPeerConnectionGetters(List<String> peerConnections) {
+    StringBuilder getters = new StringBuilder("[");
+    for (int index = 0; index < peerConnections.size(); index++) {
+      getters.append(index > 0 ? "," : "").append("() => ").append(peerConnections.get(index));
+    }
+    return getters.append("]").toString();
+  }
+
+  /**
+   * Returns the script declaring isSelected(stat), which filters the stats by type in the page,
+   * so that the stats not selected are not sent back to the driver.
+   *
+   * @return the script as string.
+   */
+  private static String getStatsFilterScript(Set<String> selectedTypes) {
+    JsonArrayBuilder types = Json.createArrayBuilder();
+    for (String type : selectedTypes) {
+      types.add(type);
+    }
+    return "const selectedTypes = " + types.build().toString() + ";"
+      + "const isSelected = (stat) => selectedTypes.length === 0 || selectedTypes.indexOf(stat.type) >= 0;";
+  }
+
+  /**
+   * Returns the script calling getStats() on all the peer connections at once and
+   * stashing the results, one array per peer connection, into window.KITEStats.
+   *
+   * @return the script as string.
+   */
+  private static String getStashAllStatsScript(List<String> peerConnections, Set<String> selectedTypes) {
+    return "const pcs = " + getPeerConnectionGetters(peerConnections) + ";"
+      + getStatsFilterScript(selectedTypes)
+      + "const getStatsValues = (pc) => Promise.resolve()"
+      + "    .then(() => pc().getStats())"
+      + "    .then(data => [...data.values()].filter(isSelected))"
+      + "    .catch(() => null);"
+      + "window.KITEStats = null;"
+      + "Promise.all(pcs.map(getStatsValues)).then(stats => { window.KITEStats = stats; });"
+      + "return 0;";
+  }
+
+  /**
+   * Returns the script installing the in-page sampler.
+   * arguments[0] is the key of the sampler and arguments[1] the interval in ms.
+   * A tick is skipped if the previous getStats() calls have not returned yet.
+   *
+   * @return the script as string.
+   */
+  private static String getStartSamplerScript(List<String> peerConnections, Set<String> selectedTypes) {
+    return "const pcs = " + getPeerConnectionGetters(peerConnections) + ";"
+      + getStatsFilterScript(selectedTypes)
+      + "const getStatsValues = (pc) => Promise.resolve()"
+      + "    .then(() => pc().getStats())"
+      + "    .then(data => [...data.values()].filter(isSelected))"
+      + "    .catch(() => null);"
+      + "var samplers = window.KITEStatsSampler = window.KITEStatsSampler || {};"
+      + "if (samplers[arguments[0]]) { clearInterval(samplers[arguments[0]].timer); }"
+      + "var sampler = samplers[arguments[0]] = {buffer: [], busy: false};"
+      + "var sample = function() {"
+      + "  if (sampler.busy) { return; }"
+      + "  sampler.busy = true;"
+      + "  var timestamp = Date.now();"
+      + "  Promise.all(pcs.map(getStatsValues))"
+      + "    .then(stats => { sampler.buffer.push({timestamp: timestamp, stats: stats}); })"
+      + "    .then(() => { sampler.busy = false; });"
+      + "};"
+      + "sampler.timer = setInterval(sample, arguments[1]);"
+      + "sample();"
+      + "return 0;";
+  }
+
+  /**
+   * Returns the script draining the in-page sampler.
+   * arguments[0] is the key of the sampler and arguments[1] is true to stop the sampler.
+   *
+   * @return the script as string.
+   */
+  private static String getDrainSamplerScript() {
+    return "var samplers = window.KITEStatsSampler || {};"
+      + "var sampler = samplers[arguments[0]];"
+      + "if (!sampler) { return []; }"
+      + "var samples = sampler.buffer;"
+      + "sampler.buffer = [];"
+      + "if (arguments[1]) { clearInterval(sampler.timer); delete samplers[arguments[0]]; }"
+      + "return samples;";
+  }
+
+  private static boolean isMobile(String platform) {
+    return "android".equalsIgnoreCase(platform) || "ios".equalsIgnoreCase(platform);
+  }
+
   /**
    * Execute and return the requested SDP message
    *
@@ -405,13 +846,10 @@ public class StatsUtils {
   public static JsonObject buildStatSummary(RTCStatList statArray, boolean fullyDetailed) {
   
     JsonObjectBuilder builder = Json.createObjectBuilder();
-    double totalRTT = 0;
-    double agvRTT = 0;
-    List<List<RTCRtpStreamStats>> inboundStreamStatsList = new ArrayList<>();
-    List<List<RTCRtpStreamStats>> outboundStreamStatsList = new ArrayList<>();
-    builder.add("Starting Timestamp", timestamp(statArray.get(0).getTimestamp()));
-    builder.add("Ending Timestamp", timestamp(statArray.get(statArray.size() - 1).getTimestamp()));
-    builder.add("Connected", !statArray.hasNoData());
+    RTCStatSummary summary = statArray.getSummary();
+    builder.add("Starting Timestamp", timestamp(summary.getFirstTimestamp()));
+    builder.add("Ending Timestamp", timestamp(summary.getLastTimestamp()));
+    builder.add("Connected", !summary.hasNoData());
     builder.add("Room", statArray.getRoomUrl());
     builder.add("Batch", statArray.getBatchId());
 
@@ -419,155 +857,97 @@ public class StatsUtils {
       builder.add(key, statArray.getAdditionalData().get(key));
     }
 
-    RTCStats lastRtcStats = statArray.get(statArray.size() -1);
-    if (lastRtcStats.get("remote-candidate") != null) {
-      builder.add(StatEnum.REMOTE_IP.toString(), lastRtcStats.getRemoteIP());
-    }
-    if (lastRtcStats.get("inbound-rtp") != null) {
-//      builder
-//        .add(StatEnum.TOTAL_INBOUND_BYTES_RECEIVED.toString(), lastRtcStats.getTotalBytesByMedia("inbound"))
-//        .add(StatEnum.TOTAL_INBOUND_AUDIO_BYTES_RECEIVED.toString(), lastRtcStats.getTotalBytesByMedia("inbound", "audio"))
-//        .add(StatEnum.TOTAL_INBOUND_VIDEO_BYTES_RECEIVED.toString(), lastRtcStats.getTotalBytesByMedia("inbound", "video"));
-    }
-    if (lastRtcStats.get("outbound-rtp") != null) {
-//      builder
-//        .add(StatEnum.TOTAL_OUTBOUND_BYTES_SENT.toString(), lastRtcStats.getTotalBytesByMedia("outbound"))
-//        .add(StatEnum.TOTAL_OUTBOUND_AUDIO_BYTES_SENT.toString(), lastRtcStats.getTotalBytesByMedia("outbound", "audio"))
-//        .add(StatEnum.TOTAL_OUTBOUND_VIDEO_BYTES_SENT.toString(), lastRtcStats.getTotalBytesByMedia("outbound", "video"));
-    }
-    
-    for (int index = 0; index < statArray.size(); index++) {
-      RTCStats rtcStats = statArray.get(index);
-      if (!rtcStats.getSuccessfulCandidate().isEmpty()) {
-        RTCIceCandidatePairStats candidatePairStats = (RTCIceCandidatePairStats) rtcStats.getSuccessfulCandidate();
-        totalRTT += candidatePairStats.getTotalRoundTripTime();
-        agvRTT = (agvRTT + candidatePairStats.getCurrentRoundTripTime()) / (index + 1);
-      }
-      
-      inboundStreamStatsList.add(rtcStats.getStreamsStats("inbound"));
-      outboundStreamStatsList.add(rtcStats.getStreamsStats("outbound"));
+    if (summary.getLastRemoteIP() != null) {
+      builder.add(StatEnum.REMOTE_IP.toString(), summary.getLastRemoteIP());
     }
     
-    builder
-//      .add(StatEnum.TOTAL_RTT.toString(), totalRTT)
-      .add(StatEnum.AVG_CURRENT_RTT.toString(), agvRTT);
-    if (lastRtcStats.get("inbound-rtp") != null) {
-      builder.add("inbound", processStreamStats(inboundStreamStatsList, fullyDetailed));
+    builder.add(StatEnum.AVG_CURRENT_RTT.toString(), summary.getAverageCurrentRoundTripTime());
+    addPercentiles(builder, StatEnum.CURRENT_RTT_PERCENTILES, summary.getCurrentRoundTripTimeHistogram());
+    if (summary.lastHasInbound()) {
+      builder.add("inbound", processStreamStats(summary.getStreams("inbound"), fullyDetailed));
     }
-    if (lastRtcStats.get("outbound-rtp") != null) {
-      builder
-        .add("outbound", processStreamStats(outboundStreamStatsList, fullyDetailed));
+    if (summary.lastHasOutbound()) {
+      builder.add("outbound", processStreamStats(summary.getStreams("outbound"), fullyDetailed));
     }
     
     return builder.build();
   }
   
   
-  private static JsonObject processStreamStats(List<List<RTCRtpStreamStats>> streamStatsList, boolean fullyDetailed) {
+  private static JsonObject processStreamStats(Collection<? extends RTCStreamSummary> streams, boolean fullyDetailed) {
     JsonObjectBuilder builder = Json.createObjectBuilder();
-    Map<String, List<RTCRtpStreamStats>> audioStreamMap = new HashMap<>();
-    Map<String, List<RTCRtpStreamStats>> videoStreamMap = new HashMap<>();
+    List<RTCStreamSummary> audioStreams = new ArrayList<>();
+    List<RTCStreamSummary> videoStreams = new ArrayList<>();
     
-    for (List<RTCRtpStreamStats> streamStatsArray : streamStatsList) {
-      for (RTCRtpStreamStats streamStats : streamStatsArray) {
-        String streamId = streamStats.getId();
-        if (streamStats.getKind().equals("audio")) {
-          if (!audioStreamMap.keySet().contains(streamId)) {
-            audioStreamMap.put(streamId, new ArrayList<>());
-          }
-          audioStreamMap.get(streamId).add(streamStats);
-        } else {
-          if (!videoStreamMap.keySet().contains(streamId)) {
-            videoStreamMap.put(streamId, new ArrayList<>());
-          }
-          videoStreamMap.get(streamId).add(streamStats);
-        }
+    for (RTCStreamSummary stream : streams) {
+      if (stream.isAudio()) {
+        audioStreams.add(stream);
+      } else {
+        videoStreams.add(stream);
       }
     }
     
-    builder.add("audio", transformStreamStatToJson(audioStreamMap, fullyDetailed));
-    builder.add("video", transformStreamStatToJson(videoStreamMap, fullyDetailed));
+    builder.add("audio", transformStreamStatToJson(audioStreams, fullyDetailed));
+    builder.add("video", transformStreamStatToJson(videoStreams, fullyDetailed));
     return builder.build();
   }
   
-  private static JsonArray transformStreamStatToJson(Map<String, List<RTCRtpStreamStats>> streamStatMap, boolean fullyDetailed) {
+  private static JsonArray transformStreamStatToJson(List<RTCStreamSummary> streams, boolean fullyDetailed) {
     JsonArrayBuilder arrayBuilder = Json.createArrayBuilder();
     
-    for (String streamId : streamStatMap.keySet()) {
-      List<RTCRtpStreamStats> streamStatsList = streamStatMap.get(streamId);
-      
-      boolean inbound = streamStatsList.get(0) instanceof RTCReceivedRtpStreamStats;
-      boolean audio = streamStatsList.get(0).getKind().equals("audio");
+    for (RTCStreamSummary stream : streams) {
+      boolean inbound = stream.isReceived();
+      boolean audio = stream.isAudio();
       boolean video = !audio;
-      int size = streamStatsList.size();
-      int last = size -1;
-      long duration = streamStatsList.get(last).getTimestamp() - streamStatsList.get(0).getTimestamp();
+      long duration = stream.getDuration();
      
       JsonObjectBuilder objectBuilder = Json.createObjectBuilder();
-      objectBuilder.add("streamId", streamId);
+      objectBuilder.add("streamId", stream.getStreamId());
       
-      List<Double> bytes = addStatToJsonBuilder(objectBuilder, streamStatsList, StatEnum.BYTES, fullyDetailed);
-//      objectBuilder.add(inbound
-//          ? StatEnum.TOTAL_BYTES_RECEIVED.toString()
-//          : StatEnum.TOTAL_BYTES_SENT.toString()
-//        , checkNegativeValue(bytes.get(last)));
-
+      RTCRunningStat bytes = addStatToJsonBuilder(objectBuilder, stream, StatEnum.BYTES, fullyDetailed);
       objectBuilder.add(inbound
           ? StatEnum.RECEIVED_BITRATE.toString()
           : StatEnum.SENT_BITRATE.toString()
-        , checkNegativeValue(8 * getDiffEndToStart(bytes)/duration));
+        , checkNegativeValue(8 * bytes.getDiffEndToStart()/duration));
+      addPercentiles(objectBuilder, inbound
+          ? StatEnum.RECEIVED_BITRATE_PERCENTILES
+          : StatEnum.SENT_BITRATE_PERCENTILES
+        , stream.getHistograms().getBitrate());
   
-      List<Double> packets = addStatToJsonBuilder(objectBuilder, streamStatsList, StatEnum.PACKETS, fullyDetailed);
-      
-      Double packetsReceivedDiff = getDiffEndToStart(packets);
+      RTCRunningStat packets = addStatToJsonBuilder(objectBuilder, stream, StatEnum.PACKETS, fullyDetailed);
       
+      double packetsReceivedDiff = packets.getDiffEndToStart();
 
       if (video) {
-        List<Double> frames = addStatToJsonBuilder(objectBuilder, streamStatsList, StatEnum.FRAME, fullyDetailed);
+        RTCRunningStat frames = addStatToJsonBuilder(objectBuilder, stream, StatEnum.FRAME, fullyDetailed);
         objectBuilder.add(inbound
           ? StatEnum.TOTAL_FRAME_RECEIVED.toString()
-          : StatEnum.TOTAL_FRAME_SENT.toString(), checkNegativeValue(frames.get(last)));
-//        System.out.println((inbound ? "inbound" : "outbound") + "\n" + frames );
-        List<Double> framerate = addStatToJsonBuilder(objectBuilder, streamStatsList, StatEnum.FRAME_RATE, fullyDetailed);
+          : StatEnum.TOTAL_FRAME_SENT.toString(), checkNegativeValue(frames.getLast()));
+        addStatToJsonBuilder(objectBuilder, stream, StatEnum.FRAME_RATE, fullyDetailed);
 
-        objectBuilder.add(StatEnum.AVG_FRAME_RATE.toString(),  checkNegativeValue(1000 * getDiffEndToStart(frames)/duration));
+        objectBuilder.add(StatEnum.AVG_FRAME_RATE.toString(),  checkNegativeValue(1000 * frames.getDiffEndToStart()/duration));
+        addPercentiles(objectBuilder, StatEnum.FRAME_RATE_PERCENTILES, stream.getHistograms().getFrameRate());
       }
       
       if (inbound) {
         if (audio) {
-          List<Double> audioLvl = addStatToJsonBuilder(objectBuilder, streamStatsList, StatEnum.AUDIO_LEVEL, fullyDetailed);
-          objectBuilder.add(StatEnum.AVG_AUDIO_LEVEL.toString(), checkNegativeValue(getAverage(audioLvl)));
+          RTCRunningStat audioLvl = addStatToJsonBuilder(objectBuilder, stream, StatEnum.AUDIO_LEVEL, fullyDetailed);
+          objectBuilder.add(StatEnum.AVG_AUDIO_LEVEL.toString(), checkNegativeValue(audioLvl.getAverage()));
         }
-        List<Double> packetsLost = addStatToJsonBuilder(objectBuilder, streamStatsList, StatEnum.PACKETS_LOST, fullyDetailed);
-        objectBuilder.add(StatEnum.TOTAL_PACKETS_LOST.toString(), "" + packetsLost.get(last).intValue());
-        Double packetsLostDiff = getDiffEndToStart(packetsLost);
+        RTCRunningStat packetsLost = addStatToJsonBuilder(objectBuilder, stream, StatEnum.PACKETS_LOST, fullyDetailed);
+        objectBuilder.add(StatEnum.TOTAL_PACKETS_LOST.toString(), "" + (int) packetsLost.getLast());
+        double packetsLostDiff = packetsLost.getDiffEndToStart();
         objectBuilder.add(StatEnum.PACKETS_LOST_PERCENTAGE.toString(), 
           checkNegativeValue((100 * packetsLostDiff/ (packetsLostDiff + packetsReceivedDiff))) + "%");
-//        objectBuilder.add(StatEnum.PACKETS_LOST_CUMULATIVE_PERCENTAGE.toString(),
-//          checkNegativeValue(100 * packetsLost.get(last)/ (packetsLost.get(last) + packets.get(last))));
-        
-        
-        
-//        List<Double> packetsDiscarded = addStatToJsonBuilder(objectBuilder, streamStatsList, StatEnum.PACKETS_DISCARDED, fullyDetailed);
-//        Double packetsDiscardedDiff = getDiffEndToStart(packets);
-//        objectBuilder.add(StatEnum.TOTAL_PACKETS_DISCARDED.toString(), packetsDiscarded.get(last).intValue());
-//        objectBuilder.add(StatEnum.PACKETS_DISCARDED_PERCENTAGE.toString(),
-//          checkNegativeValue(100 * packetsDiscardedDiff/ (packetsDiscardedDiff + packetsReceivedDiff)));
-  
   
         if (audio) {
-          List<Double> jitter = addStatToJsonBuilder(objectBuilder, streamStatsList, StatEnum.JITTER, fullyDetailed);
-          objectBuilder.add(StatEnum.AVG_JITTER.toString(), checkNegativeValue(getAverage(jitter)/1000));
-//          objectBuilder.add(StatEnum.AVG_JITTER.toString(), checkNegativeValue(jitter.get(last)));
-
+          RTCRunningStat jitter = addStatToJsonBuilder(objectBuilder, stream, StatEnum.JITTER, fullyDetailed);
+          objectBuilder.add(StatEnum.AVG_JITTER.toString(), checkNegativeValue(jitter.getAverage()/1000));
+          addPercentiles(objectBuilder, StatEnum.JITTER_PERCENTILES, stream.getHistograms().getJitter());
         } else {
-          List<Double> framerate = addStatToJsonBuilder(objectBuilder, streamStatsList, StatEnum.FRAME_RATE, fullyDetailed);
-//          objectBuilder.add(StatEnum.AVG_FRAME_RATE.toString(),  checkNegativeValue(1000 * getDiffEndToStart(framerate)/duration));
-//          objectBuilder.add(StatEnum.AVG_FRAME_RATE_DECODED.toString(),  checkNegativeValue(1000 * getDiffEndToStart(framerate)/duration));
-
+          addStatToJsonBuilder(objectBuilder, stream, StatEnum.FRAME_RATE, fullyDetailed);
           // could be useful someday
-          List<Double> framedropped = addStatToJsonBuilder(objectBuilder, streamStatsList, StatEnum.FRAME_DROPPED, fullyDetailed);
-          
+          addStatToJsonBuilder(objectBuilder, stream, StatEnum.FRAME_DROPPED, fullyDetailed);
         }
       }
       arrayBuilder.add(objectBuilder);
@@ -575,15 +955,52 @@ public class StatsUtils {
     return arrayBuilder.build();
   }
   
-  private static List<Double> addStatToJsonBuilder(JsonObjectBuilder objectBuilder, List<RTCRtpStreamStats> streams, StatEnum stat, boolean fullyDetailed) {
-    List<Double> temp = extractStreamTrackStat(streams, stat);
+  private static RTCRunningStat addStatToJsonBuilder(JsonObjectBuilder objectBuilder, RTCStreamSummary stream, StatEnum stat, boolean fullyDetailed) {
+    RTCRunningStat summary = stream.getSummary(stat);
+    if (summary.isEmpty()) {
+      logger.debug("There seems to be no values available for " + stat + ". " +
+        "Please verify that you're trying to extract from the right streams/tracks (inbound/outbound and/or audio/video)");
+    } else if (summary.containsOnly(-1.0)) {
+      logger.debug("There seems to be no track available for " + stat + ". " +
+        "Please verify that the media track stats are included in the provided stats.");
+    }
     if (fullyDetailed) {
-      objectBuilder.add(stat.toString(), toJsonArray(temp));
+      double[] values = stream.getValues(stat);
+      if (values != null) {
+        objectBuilder.add(stat.toString(), toJsonArray(values));
+      }
     }
-    return temp;
+    return summary;
   }
   
-  private static JsonArray toJsonArray(List<Double> values) {
+  private static void addPercentiles(JsonObjectBuilder objectBuilder, StatEnum stat, RTCLogHistogram histogram) {
+    if (!histogram.isEmpty()) {
+      objectBuilder.add(stat.toString(), buildPercentiles(histogram));
+    }
+  }
+
+  /**
+   * Builds the p50/p90/p99/max of a histogram.
+   *
+   * @param histogram the histogram
+   *
+   * @return the percentiles, rounded to 2 decimals
+   */
+  public static JsonObject buildPercentiles(RTCLogHistogram histogram) {
+    return Json.createObjectBuilder()
+      .add("p50", round(histogram.getValueAtPercentile(50)))
+      .add("p90", round(histogram.getValueAtPercentile(90)))
+      .add("p99", round(histogram.getValueAtPercentile(99)))
+      .add("max", round(histogram.getMax()))
+      .add("count", histogram.getTotalCount())
+      .build();
+  }
+
+  private static double round(double value) {
+    return Math.round(value * 100) / 100.0;
+  }
+  
+  private static JsonArray toJsonArray(double[] values) {
     JsonArrayBuilder builder = Json.createArrayBuilder();
     for (double value: values) {
       if (value < 0) {
@@ -599,136 +1016,6 @@ public class StatsUtils {
     return builder.build();
   }
   
-  private static List<Double> extractStreamTrackStat(List<RTCRtpStreamStats> streams, StatEnum stat) {
-    List<Double> result = new ArrayList<>();
-    for (RTCRtpStreamStats stream : streams) {
-      switch (stat) {
-        case RECEIVED_BITRATE:
-        case SENT_BITRATE:
-        case BYTES:
-          if (stream instanceof RTCReceivedRtpStreamStats) {
-            result.add(((RTCReceivedRtpStreamStats)stream).getBytesReceived());
-          } else {
-            if (stream instanceof RTCSentRtpStreamStats) {
-              result.add(((RTCSentRtpStreamStats) stream).getBytesSent());
-            }
-          }
-          break;
-        case PACKETS:
-          if (stream instanceof RTCInboundRtpStreamStats) {
-            result.add(((RTCInboundRtpStreamStats)stream).getPacketsReceived());
-          } else {
-            result.add(((RTCSentRtpStreamStats)stream).getPacketsSent());
-          }
-          break;
-        case PACKETS_LOST:
-        case AVG_PACKETS_LOST:
-          result.add(((RTCReceivedRtpStreamStats)stream).getPacketsLost());
-          break;
-        case PACKETS_DISCARDED:
-          result.add(((RTCReceivedRtpStreamStats)stream).getPacketsDiscarded());
-          break;
-        case JITTER:
-        case AVG_JITTER:
-          if (stream.getKind().equals("audio") && stream instanceof RTCInboundRtpStreamStats) {
-            result.add(((RTCReceivedRtpStreamStats)stream).getJitter());
-          }
-          break;
-        case AUDIO_LEVEL:
-        case AVG_AUDIO_LEVEL:
-          if (stream.getKind().equals("audio")) {
-            if (stream instanceof RTCInboundRtpStreamStats) {
-              result.add(((RTCInboundRtpStreamStats)stream).getAudioLevel());
-            }
-          }
-          break;
-        case FRAME:
-        case TOTAL_FRAME_RECEIVED:
-        case TOTAL_FRAME_SENT:
-          if (stream.getKind().equals("video")) {
-            if (stream instanceof RTCInboundRtpStreamStats) {
-              result.add(((RTCInboundRtpStreamStats)stream).getFramesReceived() == -1
-                  ? ((RTCInboundRtpStreamStats)stream).getFramesDecoded()
-                  : ((RTCInboundRtpStreamStats)stream).getFramesReceived());
-            } else {
-              result.add(((RTCOutboundRtpStreamStats)stream).getFramesSent() == -1
-                  ? ((RTCOutboundRtpStreamStats)stream).getFramesEncoded()
-                  : ((RTCOutboundRtpStreamStats)stream).getFramesSent());
-            }
-          }
-          break;
-        case FRAME_RATE:
-          if (stream.getKind().equals("video")) {
-            //            todo
-            if (stream instanceof RTCOutboundRtpStreamStats) {
-              result.add(((RTCOutboundRtpStreamStats) stream).getFramesPerSecond());
-            }
-          }
-          break;
-//        case AVG_FRAME_RATE_DECODED:
-        case FRAME_DECODED:
-          if (stream.getKind().equals("video")) {
-            //            todo
-            if (stream instanceof RTCInboundRtpStreamStats) {
-              result.add(((RTCInboundRtpStreamStats)stream).getFramesDecoded());
-            }
-          }
-          break;
-        case FRAME_DROPPED:
-          if (stream.getKind().equals("video")) {
-            result.add(((RTCInboundRtpStreamStats)stream).getFramesDropped());
-          }
-          break;
-          // not applicable
-//        case FRAME_CORRUPTED:
-//          if (stream.isVideo()) {
-//            result.add(stream.getTrack() == null ? -1.0 : stream.getTrack().getFramesCorrupted());
-//          }
-//          break;
-        default:
-          logger.error("Wrong place to look for :" + stat.toString());
-          break;
-      }
-    }
-    if (result.isEmpty()) {
-      logger.debug("There seems to be no values available for " + stat + ". " +
-        "Please verify that you're trying to extract from the right streams/tracks (inbound/outbound and/or audio/video)");
-    }
-    if (containOnly(result, -1.0)) {
-      logger.debug("There seems to be no track available for " + stat + ". " +
-        "Please verify that the media track stats are included in the provided stats.");
-    }
-
-    return result;
-  }
-  
-  private static double getDiffEndToStart(List<Double> values) {
-    if (values.isEmpty()) {
-      return 0;
-    }
-    if (values.size() > 1) {
-      return values.get(values.size() - 1) - values.get(0);
-    } else {
-      return values.get(0);
-    }
-  }
-  
-  private static double getAverage(List<Double> values) {
-    double sum = 0;
-    for (Double value: values) {
-      sum += value;
-    }
-    return sum/values.size();
-  }
-  
-  private static boolean containOnly(List objectList, Object object) {
-    Set objectSet = new HashSet(objectList);
-    if (objectSet.size() == 1 && objectSet.contains(object)) {
-      return true;
-    }
-    return false;
-  }
-  
   private static String checkNegativeValue(double value) {
     if (value < 0) {
       return "NA (" + value + ")";
@@ -46,7 +46,6 @@ public class RTCDataChannelStats extends RTCSingleStatObject {
     this.bytesSent = getStatByName( "bytesSent");
     this.messagesReceived = getStatByName( "messagesReceived");
     this.bytesReceived = getStatByName( "bytesReceived");
-    this.timestamp = getStatByName( "timestamp");
   }
   
   public double getBytesReceived() {
@@ -0,0 +1,40 @@
+package org.webrtc.kite.stats.rtc;
+
+/**
+ * The state of an ICE candidate pair, parsed once from the "state" stat.
+ */
+public enum RTCIceCandidatePairState {
+  FROZEN("frozen"),
+  WAITING("waiting"),
+  IN_PROGRESS("in-progress"),
+  FAILED("failed"),
+  SUCCEEDED("succeeded"),
+  UNKNOWN("NA");
+
+  private final String state;
+
+  RTCIceCandidatePairState(String state) {
+    this.state = state;
+  }
+
+  /**
+   * Gets the RTCIceCandidatePairState from the value reported by getStats().
+   *
+   * @param state the reported state
+   *
+   * @return the RTCIceCandidatePairState, UNKNOWN if not a valid state
+   */
+  public static RTCIceCandidatePairState fromString(String state) {
+    for (RTCIceCandidatePairState pairState : values()) {
+      if (pairState.state.equalsIgnoreCase(state)) {
+        return pairState;
+      }
+    }
+    return UNKNOWN;
+  }
+
+  @Override
+  public String toString() {
+    return state;
+  }
+}
@@ -28,37 +28,37 @@ public class RTCIceCandidatePairStats extends RTCSingleStatObject {
 
   private final String localCandidateId;
   private final String remoteCandidateId;
-  private final String state;
+  private final RTCIceCandidatePairState state;
   private final String priority;
   private final String nominated;
-  private final String bytesSent;
-  private final String bytesReceived;
-  private final String currentRoundTripTime;
-  private final String totalRoundTripTime;
+  private final double bytesSent;
+  private final double bytesReceived;
+  private final double currentRoundTripTime;
+  private final double totalRoundTripTime;
 
   public RTCIceCandidatePairStats(Map statObject) {
     super(statObject);
-    this.localCandidateId = getStatByName( "localCandidateId");
-    this.remoteCandidateId = getStatByName( "remoteCandidateId");
-    this.state = getStatByName( "state");
+    this.localCandidateId = getStatByName( "localCandidateId").intern();
+    this.remoteCandidateId = getStatByName( "remoteCandidateId").intern();
+    this.state = RTCIceCandidatePairState.fromString(getStatByName( "state"));
     this.priority = getStatByName( "priority");
     this.nominated = getStatByName( "nominated");
-    this.bytesSent = getStatByName( "bytesSent");
-    this.bytesReceived = getStatByName( "bytesReceived");
-    this.totalRoundTripTime = getStatByName( "totalRoundTripTime");
-    this.currentRoundTripTime = getStatByName( "currentRoundTripTime");
+    this.bytesSent = getStatValue( "bytesSent");
+    this.bytesReceived = getStatValue( "bytesReceived");
+    this.totalRoundTripTime = getStatValue( "totalRoundTripTime");
+    this.currentRoundTripTime = getStatValue( "currentRoundTripTime");
   }
   
   public double getBytesReceived() {
-    return parseDouble(bytesReceived);
+    return valueOf(bytesReceived);
   }
   
   public double getBytesSent() {
-    return parseDouble(bytesSent);
+    return valueOf(bytesSent);
   }
   
   public double getCurrentRoundTripTime() {
-    return 1000*parseDouble(currentRoundTripTime);
+    return 1000*valueOf(currentRoundTripTime);
   }
   
   public String getLocalCandidateId() {
@@ -78,11 +78,15 @@ public class RTCIceCandidatePairStats extends RTCSingleStatObject {
   }
   
   public String getState() {
+    return state.toString();
+  }
+
+  public RTCIceCandidatePairState getPairState() {
     return state;
   }
   
   public double getTotalRoundTripTime() {
-    return 1000*parseDouble(totalRoundTripTime);
+    return 1000*valueOf(totalRoundTripTime);
   }
   
 
@@ -91,12 +95,12 @@ public class RTCIceCandidatePairStats extends RTCSingleStatObject {
     return super.getJsonObjectBuilder()
       .add("localCandidateId", this.localCandidateId)
       .add("remoteCandidateId", this.remoteCandidateId)
-      .add("state", this.state)
+      .add("state", this.state.toString())
       .add("priority", this.priority)
       .add("nominated", this.nominated)
-      .add("bytesSent", this.bytesSent)
-      .add("currentRoundTripTime", this.currentRoundTripTime)
-      .add("totalRoundTripTime", this.totalRoundTripTime)
-      .add("bytesReceived", this.bytesReceived);
+      .add("bytesSent", format(this.bytesSent))
+      .add("currentRoundTripTime", format(this.currentRoundTripTime))
+      .add("totalRoundTripTime", format(this.totalRoundTripTime))
+      .add("bytesReceived", format(this.bytesReceived));
   }
 }
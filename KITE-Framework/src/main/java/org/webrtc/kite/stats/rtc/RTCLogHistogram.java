@@ -0,0 +1,133 @@
+package org.webrtc.kite.stats.rtc;
+
+/**
+ * Fixed-memory histogram with logarithmic buckets, in the spirit of HdrHistogram.
+ * Every bucket is about 3% wider than the previous one, so any recorded value between
+ * MIN_VALUE and MAX_VALUE is reported with a relative error below 3%, whatever the number
+ * of values recorded. All the histograms share the same buckets and can therefore be merged,
+ * e.g. to compute percentiles across every runner of a load test.
+ */
+public class RTCLogHistogram {
+
+  /**
+   * Values below are counted in the first bucket.
+   */
+  public static final double MIN_VALUE = 0.01;
+
+  /**
+   * Values above are counted in the last bucket.
+   */
+  public static final double MAX_VALUE = 1e7;
+
+  private static final double BUCKET_RATIO = 1.03;
+  private static final double LOG_BUCKET_RATIO = Math.log(BUCKET_RATIO);
+  private static final int BUCKET_COUNT = 2 + (int) Math.ceil(Math.log(MAX_VALUE / MIN_VALUE) / LOG_BUCKET_RATIO);
+
+  private final long[] counts = new long[BUCKET_COUNT];
+  private long totalCount = 0;
+  private double min = Double.NaN;
+  private double max = Double.NaN;
+
+  /**
+   * Records a value. Negative and NaN values are ignored.
+   *
+   * @param value the value
+   */
+  public synchronized void record(double value) {
+    if (Double.isNaN(value) || value < 0) {
+      return;
+    }
+    counts[bucketIndex(value)]++;
+    min = totalCount == 0 ? value : Math.min(min, value);
+    max = totalCount == 0 ? value : Math.max(max, value);
+    totalCount++;
+  }
+
+  /**
+   * Adds all the values recorded by another histogram to this one.
+   *
+   * @param other the other histogram
+   */
+  public void merge(RTCLogHistogram other) {
+    if (other == null || other == this) {
+      return;
+    }
+    long[] otherCounts;
+    long otherTotalCount;
+    double otherMin;
+    double otherMax;
+    synchronized (other) {
+      otherCounts = other.counts.clone();
+      otherTotalCount = other.totalCount;
+      otherMin = other.min;
+      otherMax = other.max;
+    }
+    if (otherTotalCount == 0) {
+      return;
+    }
+    synchronized (this) {
+      for (int index = 0; index < BUCKET_COUNT; index++) {
+        counts[index] += otherCounts[index];
+      }
+      min = totalCount == 0 ? otherMin : Math.min(min, otherMin);
+      max = totalCount == 0 ? otherMax : Math.max(max, otherMax);
+      totalCount += otherTotalCount;
+    }
+  }
+
+  /**
+   * Gets the value at a given percentile.
+   *
+   * @param percentile between 0 and 100
+   *
+   * @return the value, NaN if nothing was recorded
+   */
+  public synchronized double getValueAtPercentile(double percentile) {
+    if (totalCount == 0) {
+      return Double.NaN;
+    }
+    long rank = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * totalCount));
+    long seen = 0;
+    for (int index = 0; index < BUCKET_COUNT; index++) {
+      seen += counts[index];
+      if (seen >= rank) {
+        return Math.min(max, Math.max(min, bucketValue(index)));
+      }
+    }
+    return max;
+  }
+
+  public synchronized long getTotalCount() {
+    return totalCount;
+  }
+
+  public synchronized boolean isEmpty() {
+    return totalCount == 0;
+  }
+
+  public synchronized double getMin() {
+    return min;
+  }
+
+  public synchronized double getMax() {
+    return max;
+  }
+
+  private static int bucketIndex(double value) {
+    if (value < MIN_VALUE) {
+      return 0;
+    }
+    int index = 1 + (int) (Math.log(value / MIN_VALUE) / LOG_BUCKET_RATIO);
+    return Math.min(index, BUCKET_COUNT - 1);
+  }
+
+  /**
+   * Gets the value representing a bucket: the geometric middle of its bounds.
+   */
+  private static double bucketValue(int index) {
+    if (index == 0) {
+      return 0;
+    }
+    return MIN_VALUE * Math.pow(BUCKET_RATIO, index - 0.5);
+  }
+}
@@ -0,0 +1,37 @@
+package org.webrtc.kite.stats.rtc;
+
+/**
+ * The kind of media of an rtp stream, parsed once from the "kind" stat.
+ */
+public enum RTCMediaKind {
+  AUDIO("audio"),
+  VIDEO("video"),
+  UNKNOWN("NA");
+
+  private final String kind;
+
+  RTCMediaKind(String kind) {
+    this.kind = kind;
+  }
+
+  /**
+   * Gets the RTCMediaKind from the value reported by getStats().
+   *
+   * @param kind the reported kind
+   *
+   * @return the RTCMediaKind, UNKNOWN if not audio or video
+   */
+  public static RTCMediaKind fromString(String kind) {
+    for (RTCMediaKind mediaKind : values()) {
+      if (mediaKind.kind.equalsIgnoreCase(kind)) {
+        return mediaKind;
+      }
+    }
+    return UNKNOWN;
+  }
+
+  @Override
+  public String toString() {
+    return kind;
+  }
+}
@@ -0,0 +1,90 @@
+package org.webrtc.kite.stats.rtc;
+
+/**
+ * Running first/last/sum/min/max of a series of values, updated in O(1) as each value arrives.
+ */
+public class RTCRunningStat {
+  private double first = Double.NaN;
+  private double last = Double.NaN;
+  private double sum = 0;
+  private double min = Double.NaN;
+  private double max = Double.NaN;
+  private int count = 0;
+
+  /**
+   * Adds a value to the series.
+   *
+   * @param value the value
+   */
+  public void add(double value) {
+    if (count == 0) {
+      first = value;
+      min = value;
+      max = value;
+    } else {
+      min = Math.min(min, value);
+      max = Math.max(max, value);
+    }
+    last = value;
+    sum += value;
+    count++;
+  }
+
+  public double getFirst() {
+    return first;
+  }
+
+  public double getLast() {
+    return last;
+  }
+
+  public double getSum() {
+    return sum;
+  }
+
+  public double getMin() {
+    return min;
+  }
+
+  public double getMax() {
+    return max;
+  }
+
+  public int getCount() {
+    return count;
+  }
+
+  public boolean isEmpty() {
+    return count == 0;
+  }
+
+  /**
+   * Gets the average of the series.
+   *
+   * @return the average, NaN if empty
+   */
+  public double getAverage() {
+    return sum / count;
+  }
+
+  /**
+   * Gets the difference between the last and the first value, or the only value if there is just one.
+   *
+   * @return the difference, 0 if empty
+   */
+  public double getDiffEndToStart() {
+    if (count == 0) {
+      return 0;
+    }
+    return count > 1 ? last - first : first;
+  }
+
+  /**
+   * @param value the value
+   *
+   * @return true if the series is not empty and every value equals the given value
+   */
+  public boolean containsOnly(double value) {
+    return count > 0 && min == value && max == value;
+  }
+}
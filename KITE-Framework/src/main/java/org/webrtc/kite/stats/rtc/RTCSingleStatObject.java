@@ -14,17 +14,34 @@ import java.util.Map;
  */
 public class RTCSingleStatObject {
   protected String id;
-  protected String timestamp;
-  protected final Map statObject;
+  protected long timestamp;
+  private Map statObject;
 
   public RTCSingleStatObject(Map statObject) {
     this.statObject = statObject;
     if (statObject != null) {
-      this.setId(getStatByName("id"));
-      this.timestamp = getStatByName("timestamp");
+      this.setId(getStatByName("id").intern());
+      this.timestamp = parseTimestamp(statObject.get("timestamp"));
     }
   }
 
+  /**
+   * Releases the raw map decoded from getStats(). All the fields are parsed in the constructors,
+   * so the map is not needed anymore once the object is built.
+   */
+  public void releaseSource() {
+    this.statObject = null;
+  }
+
+  /**
+   * Gets the raw map decoded from getStats().
+   *
+   * @return the raw map, or null if it has been released
+   */
+  protected Map getSource() {
+    return statObject;
+  }
+
   /**
    * Gets id.
    *
@@ -35,7 +52,7 @@ public class RTCSingleStatObject {
   }
 
   public long getTimestamp() {
-    return timestamp == null ? 0 : Long.parseLong(this.timestamp);
+    return timestamp;
   }
 
   /**
@@ -64,7 +81,7 @@ public class RTCSingleStatObject {
   public JsonObjectBuilder getJsonObjectBuilder() {
     return Json.createObjectBuilder()
         .add("id", this.id)
-        .add("timestamp", this.timestamp);
+        .add("timestamp", formatTimestamp());
   }
 
 
@@ -73,33 +90,85 @@ public class RTCSingleStatObject {
    *
    * @param statName   name of the key
    *
-   * @return true if both the provided objects are not null.
+   * @return the value as String, or "NA" if absent.
    */
   protected String getStatByName( String statName) {
-    String str = this.statObject.get(statName) != null ? statObject.get(statName).toString() : "NA";
-    if ("timestamp".equals(statName)) {
-      str = formatTimestamp(str);
+    return this.statObject.get(statName) != null ? statObject.get(statName).toString() : "NA";
+  }
+
+  /**
+   * Obtain the numeric value of a key in the data map, parsed once.
+   *
+   * @param statName   name of the key
+   *
+   * @return the value, or NaN if absent or not a number.
+   */
+  protected double getStatValue(String statName) {
+    Object value = this.statObject.get(statName);
+    if (value instanceof Number) {
+      return ((Number) value).doubleValue();
+    }
+    return value == null ? Double.NaN : parseDouble(value.toString(), Double.NaN);
+  }
+
+  /**
+   * Returns the value of a numeric stat, -1 if it was absent.
+   *
+   * @param value the parsed value
+   *
+   * @return the value or -1
+   */
+  protected static double valueOf(double value) {
+    return Double.isNaN(value) ? -1.0 : value;
+  }
+
+  /**
+   * Formats a numeric stat the way getStats() reported it, "NA" if it was absent.
+   *
+   * @param value the parsed value
+   *
+   * @return the formatted value
+   */
+  protected static String format(double value) {
+    if (Double.isNaN(value)) {
+      return "NA";
+    }
+    if (value == Math.rint(value) && Math.abs(value) < Long.MAX_VALUE) {
+      return Long.toString((long) value);
     }
-    return str;
+    return Double.toString(value);
   }
 
   /**
-   * format 1.536834943435905E12 (nano seconds) to 1536834943435 (ms)
-   * and convert timestamp to milliseconds
+   * Convert the raw timestamp obtained from getStats to milliseconds,
+   * e.g. 1.536834943435905E12 to 1536834943435.
    *
-   * @param s raw String obtained from getStats.
+   * @param raw raw value obtained from getStats.
    *
-   * @return the formatted timestamp
+   * @return the timestamp in ms, 0 if absent.
    */
-  private String formatTimestamp(String s) {
-    String str = s;
-    if (str.contains("E")) {
-      str = "1" + str.substring(str.indexOf(".") + 1, str.indexOf("E"));
+  private static long parseTimestamp(Object raw) {
+    double value = raw instanceof Number
+      ? ((Number) raw).doubleValue()
+      : raw == null ? 0 : parseDouble(raw.toString(), 0);
+    long timestamp = (long) value;
+    // values with more than 13 digits are in micro/nano seconds
+    while (timestamp >= 10000000000000L) {
+      timestamp /= 10;
     }
-    if (str.length() > 13) {
-      str = str.substring(0, 13);
+    return timestamp;
+  }
+
+  protected String formatTimestamp() {
+    return timestamp == 0 ? "NA" : Long.toString(timestamp);
+  }
+
+  private static double parseDouble(String string, double defaultValue) {
+    try {
+      return Double.parseDouble(string);
+    } catch (NumberFormatException e) {
+      return defaultValue;
     }
-    return str;
   }
 
   protected double parseDouble(String string) {
@@ -0,0 +1,194 @@
+package org.webrtc.kite.stats.rtc;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.webrtc.kite.stats.StatEnum;
+import org.webrtc.kite.stats.rtc.rtpstream.RTCReceivedRtpStreamStats;
+import org.webrtc.kite.stats.rtc.rtpstream.RTCRtpStreamStats;
+
+/**
+ * Online aggregator of a series of RTCStats.
+ * Each sample updates running first/last/sum/min/max values per stream and metric and is then
+ * discarded, so the memory used does not grow with the duration of the collection.
+ */
+public class RTCStatAggregator implements RTCStatSummary {
+
+  private final Map<String, StreamAggregate> inboundStreams = new LinkedHashMap<>();
+  private final Map<String, StreamAggregate> outboundStreams = new LinkedHashMap<>();
+  private long firstTimestamp = 0;
+  private long lastTimestamp = 0;
+  private int size = 0;
+  private boolean noData = true;
+  private double averageCurrentRoundTripTime = 0;
+  private final RTCLogHistogram currentRoundTripTimeHistogram = new RTCLogHistogram();
+  private boolean lastHasInbound = false;
+  private boolean lastHasOutbound = false;
+  private String lastRemoteIP = null;
+
+  /**
+   * Aggregates one sample.
+   *
+   * @param stats the sample
+   */
+  public synchronized void add(RTCStats stats) {
+    if (size == 0) {
+      firstTimestamp = stats.getTimestamp();
+    }
+    lastTimestamp = stats.getTimestamp();
+    noData &= stats.hasNoData();
+    RTCSingleStatObject candidate = stats.getSuccessfulCandidate();
+    if (!candidate.isEmpty()) {
+      double currentRoundTripTime = ((RTCIceCandidatePairStats) candidate).getCurrentRoundTripTime();
+      averageCurrentRoundTripTime = (averageCurrentRoundTripTime + currentRoundTripTime) / (size + 1);
+      currentRoundTripTimeHistogram.record(currentRoundTripTime);
+    }
+    addStreams(inboundStreams, stats.getStreamsStats("inbound"));
+    addStreams(outboundStreams, stats.getStreamsStats("outbound"));
+    lastHasInbound = stats.get("inbound-rtp") != null;
+    lastHasOutbound = stats.get("outbound-rtp") != null;
+    lastRemoteIP = stats.get("remote-candidate") != null ? stats.getRemoteIP() : null;
+    size++;
+  }
+
+  private void addStreams(Map<String, StreamAggregate> streams, Iterable<RTCRtpStreamStats> streamStatsList) {
+    for (RTCRtpStreamStats streamStats : streamStatsList) {
+      StreamAggregate aggregate = streams.get(streamStats.getId());
+      if (aggregate == null) {
+        aggregate = new StreamAggregate(streamStats.getId(), streamStats.getMediaKind() == RTCMediaKind.AUDIO,
+          streamStats instanceof RTCReceivedRtpStreamStats);
+        streams.put(streamStats.getId(), aggregate);
+      }
+      aggregate.add(streamStats);
+    }
+  }
+
+  /**
+   * Gets the number of samples aggregated.
+   *
+   * @return the number of samples
+   */
+  public synchronized int size() {
+    return size;
+  }
+
+  @Override
+  public synchronized long getFirstTimestamp() {
+    return firstTimestamp;
+  }
+
+  @Override
+  public synchronized long getLastTimestamp() {
+    return lastTimestamp;
+  }
+
+  @Override
+  public synchronized boolean hasNoData() {
+    return noData;
+  }
+
+  @Override
+  public synchronized double getAverageCurrentRoundTripTime() {
+    return averageCurrentRoundTripTime;
+  }
+
+  @Override
+  public RTCLogHistogram getCurrentRoundTripTimeHistogram() {
+    return currentRoundTripTimeHistogram;
+  }
+
+  @Override
+  public synchronized String getLastRemoteIP() {
+    return lastRemoteIP;
+  }
+
+  @Override
+  public synchronized boolean lastHasInbound() {
+    return lastHasInbound;
+  }
+
+  @Override
+  public synchronized boolean lastHasOutbound() {
+    return lastHasOutbound;
+  }
+
+  @Override
+  public synchronized Collection<StreamAggregate> getStreams(String boundDirection) {
+    return "inbound".equals(boundDirection) ? inboundStreams.values() : outboundStreams.values();
+  }
+
+  /**
+   * The running summary of one rtp stream.
+   */
+  public static class StreamAggregate implements RTCStreamSummary {
+    private final String streamId;
+    private final boolean audio;
+    private final boolean received;
+    private final Map<StatEnum, RTCRunningStat> metrics = new EnumMap<>(StatEnum.class);
+    private final RTCStreamHistograms histograms = new RTCStreamHistograms();
+    private long firstTimestamp = -1;
+    private long lastTimestamp = -1;
+
+    StreamAggregate(String streamId, boolean audio, boolean received) {
+      this.streamId = streamId;
+      this.audio = audio;
+      this.received = received;
+    }
+
+    void add(RTCRtpStreamStats streamStats) {
+      if (firstTimestamp == -1) {
+        firstTimestamp = streamStats.getTimestamp();
+      }
+      lastTimestamp = streamStats.getTimestamp();
+      histograms.add(streamStats);
+      for (StatEnum stat : RTCStatColumns.STREAM_METRICS) {
+        Double value = RTCStatColumns.extract(streamStats, stat);
+        if (value != null) {
+          RTCRunningStat runningStat = metrics.get(stat);
+          if (runningStat == null) {
+            runningStat = new RTCRunningStat();
+            metrics.put(stat, runningStat);
+          }
+          runningStat.add(value);
+        }
+      }
+    }
+
+    @Override
+    public String getStreamId() {
+      return streamId;
+    }
+
+    @Override
+    public boolean isAudio() {
+      return audio;
+    }
+
+    @Override
+    public boolean isReceived() {
+      return received;
+    }
+
+    @Override
+    public long getDuration() {
+      return lastTimestamp - firstTimestamp;
+    }
+
+    @Override
+    public RTCRunningStat getSummary(StatEnum stat) {
+      RTCRunningStat runningStat = metrics.get(stat);
+      return runningStat == null ? new RTCRunningStat() : runningStat;
+    }
+
+    @Override
+    public double[] getValues(StatEnum stat) {
+      return null;
+    }
+
+    @Override
+    public RTCStreamHistograms getHistograms() {
+      return histograms;
+    }
+  }
+}
@@ -0,0 +1,417 @@
+package org.webrtc.kite.stats.rtc;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.webrtc.kite.stats.StatEnum;
+import org.webrtc.kite.stats.rtc.rtpstream.RTCInboundRtpStreamStats;
+import org.webrtc.kite.stats.rtc.rtpstream.RTCOutboundRtpStreamStats;
+import org.webrtc.kite.stats.rtc.rtpstream.RTCReceivedRtpStreamStats;
+import org.webrtc.kite.stats.rtc.rtpstream.RTCRtpStreamStats;
+import org.webrtc.kite.stats.rtc.rtpstream.RTCSentRtpStreamStats;
+
+/**
+ * Columnar representation of a series of RTCStats.
+ * Each stream keeps one primitive array per metric instead of one stat object per sample,
+ * and the stream ids and kinds are interned so that every sample shares the same strings.
+ */
+public class RTCStatColumns implements RTCStatSummary {
+
+  /**
+   * The metrics kept for each rtp stream.
+   */
+  public static final StatEnum[] STREAM_METRICS = {
+    StatEnum.BYTES,
+    StatEnum.PACKETS,
+    StatEnum.PACKETS_LOST,
+    StatEnum.PACKETS_DISCARDED,
+    StatEnum.JITTER,
+    StatEnum.AUDIO_LEVEL,
+    StatEnum.FRAME,
+    StatEnum.FRAME_RATE,
+    StatEnum.FRAME_DECODED,
+    StatEnum.FRAME_DROPPED
+  };
+
+  private final Map<String, String> dictionary = new HashMap<>();
+  private final LongColumn timestamps = new LongColumn();
+  private final DoubleColumn currentRoundTripTimes = new DoubleColumn();
+  private final RTCLogHistogram currentRoundTripTimeHistogram = new RTCLogHistogram();
+  private final Map<String, StreamColumns> inboundStreams = new LinkedHashMap<>();
+  private final Map<String, StreamColumns> outboundStreams = new LinkedHashMap<>();
+  private boolean noData = true;
+  private boolean lastHasInbound = false;
+  private boolean lastHasOutbound = false;
+  private String lastRemoteIP = null;
+
+  /**
+   * Appends one sample to the columns.
+   *
+   * @param stats the sample
+   */
+  public void add(RTCStats stats) {
+    timestamps.add(stats.getTimestamp());
+    noData &= stats.hasNoData();
+    RTCSingleStatObject candidate = stats.getSuccessfulCandidate();
+    currentRoundTripTimes.add(candidate.isEmpty()
+      ? Double.NaN
+      : ((RTCIceCandidatePairStats) candidate).getCurrentRoundTripTime());
+    currentRoundTripTimeHistogram.record(currentRoundTripTimes.last());
+    addStreams(inboundStreams, stats.getStreamsStats("inbound"));
+    addStreams(outboundStreams, stats.getStreamsStats("outbound"));
+    lastHasInbound = stats.get("inbound-rtp") != null;
+    lastHasOutbound = stats.get("outbound-rtp") != null;
+    lastRemoteIP = stats.get("remote-candidate") != null ? stats.getRemoteIP() : null;
+  }
+
+  private void addStreams(Map<String, StreamColumns> streams, Iterable<RTCRtpStreamStats> streamStatsList) {
+    for (RTCRtpStreamStats streamStats : streamStatsList) {
+      String streamId = intern(streamStats.getId());
+      StreamColumns columns = streams.get(streamId);
+      if (columns == null) {
+        columns = new StreamColumns(streamId, intern(streamStats.getKind()),
+          streamStats instanceof RTCReceivedRtpStreamStats);
+        streams.put(streamId, columns);
+      }
+      columns.add(streamStats);
+    }
+  }
+
+  private String intern(String value) {
+    if (value == null) {
+      return null;
+    }
+    String interned = dictionary.get(value);
+    if (interned == null) {
+      dictionary.put(value, value);
+      interned = value;
+    }
+    return interned;
+  }
+
+  /**
+   * Gets the number of samples.
+   *
+   * @return the number of samples
+   */
+  public int size() {
+    return timestamps.size();
+  }
+
+  /**
+   * Gets the timestamps of the samples.
+   *
+   * @return the timestamps
+   */
+  public LongColumn getTimestamps() {
+    return timestamps;
+  }
+
+  /**
+   * Gets the current round trip time (ms) of the successful candidate pair of each sample,
+   * NaN for the samples without one.
+   *
+   * @return the current round trip times
+   */
+  public DoubleColumn getCurrentRoundTripTimes() {
+    return currentRoundTripTimes;
+  }
+
+  /**
+   * Gets the streams of a direction.
+   *
+   * @param boundDirection inbound or outbound
+   *
+   * @return the streams, in order of first appearance
+   */
+  @Override
+  public Collection<StreamColumns> getStreams(String boundDirection) {
+    return "inbound".equals(boundDirection) ? inboundStreams.values() : outboundStreams.values();
+  }
+
+  @Override
+  public long getFirstTimestamp() {
+    return timestamps.size() == 0 ? 0 : timestamps.first();
+  }
+
+  @Override
+  public long getLastTimestamp() {
+    return timestamps.size() == 0 ? 0 : timestamps.last();
+  }
+
+  @Override
+  public boolean hasNoData() {
+    return noData;
+  }
+
+  @Override
+  public double getAverageCurrentRoundTripTime() {
+    double average = 0;
+    for (int index = 0; index < currentRoundTripTimes.size(); index++) {
+      if (!Double.isNaN(currentRoundTripTimes.get(index))) {
+        average = (average + currentRoundTripTimes.get(index)) / (index + 1);
+      }
+    }
+    return average;
+  }
+
+  @Override
+  public RTCLogHistogram getCurrentRoundTripTimeHistogram() {
+    return currentRoundTripTimeHistogram;
+  }
+
+  @Override
+  public boolean lastHasInbound() {
+    return lastHasInbound;
+  }
+
+  @Override
+  public boolean lastHasOutbound() {
+    return lastHasOutbound;
+  }
+
+  @Override
+  public String getLastRemoteIP() {
+    return lastRemoteIP;
+  }
+
+  /**
+   * Extracts the value of a metric from an rtp stream stats object.
+   *
+   * @param stream the rtp stream stats
+   * @param stat   the metric
+   *
+   * @return the value, or null if the metric does not apply to this stream
+   */
+  public static Double extract(RTCRtpStreamStats stream, StatEnum stat) {
+    boolean audio = stream.getMediaKind() == RTCMediaKind.AUDIO;
+    boolean video = stream.getMediaKind() == RTCMediaKind.VIDEO;
+    switch (stat) {
+      case RECEIVED_BITRATE:
+      case SENT_BITRATE:
+      case BYTES:
+        if (stream instanceof RTCReceivedRtpStreamStats) {
+          return ((RTCReceivedRtpStreamStats) stream).getBytesReceived();
+        }
+        if (stream instanceof RTCSentRtpStreamStats) {
+          return ((RTCSentRtpStreamStats) stream).getBytesSent();
+        }
+        return null;
+      case PACKETS:
+        if (stream instanceof RTCInboundRtpStreamStats) {
+          return ((RTCInboundRtpStreamStats) stream).getPacketsReceived();
+        }
+        if (stream instanceof RTCSentRtpStreamStats) {
+          return ((RTCSentRtpStreamStats) stream).getPacketsSent();
+        }
+        return null;
+      case PACKETS_LOST:
+      case AVG_PACKETS_LOST:
+        return stream instanceof RTCReceivedRtpStreamStats
+          ? ((RTCReceivedRtpStreamStats) stream).getPacketsLost() : null;
+      case PACKETS_DISCARDED:
+        return stream instanceof RTCReceivedRtpStreamStats
+          ? ((RTCReceivedRtpStreamStats) stream).getPacketsDiscarded() : null;
+      case JITTER:
+      case AVG_JITTER:
+        return audio && stream instanceof RTCInboundRtpStreamStats
+          ? ((RTCReceivedRtpStreamStats) stream).getJitter() : null;
+      case AUDIO_LEVEL:
+      case AVG_AUDIO_LEVEL:
+        return audio && stream instanceof RTCInboundRtpStreamStats
+          ? ((RTCInboundRtpStreamStats) stream).getAudioLevel() : null;
+      case FRAME:
+      case TOTAL_FRAME_RECEIVED:
+      case TOTAL_FRAME_SENT:
+        if (video && stream instanceof RTCInboundRtpStreamStats) {
+          RTCInboundRtpStreamStats inbound = (RTCInboundRtpStreamStats) stream;
+          return inbound.getFramesReceived() == -1 ? inbound.getFramesDecoded() : inbound.getFramesReceived();
+        }
+        if (video && stream instanceof RTCOutboundRtpStreamStats) {
+          RTCOutboundRtpStreamStats outbound = (RTCOutboundRtpStreamStats) stream;
+          return outbound.getFramesSent() == -1 ? outbound.getFramesEncoded() : outbound.getFramesSent();
+        }
+        return null;
+      case FRAME_RATE:
+        return video && stream instanceof RTCOutboundRtpStreamStats
+          ? ((RTCOutboundRtpStreamStats) stream).getFramesPerSecond() : null;
+      case FRAME_DECODED:
+        return video && stream instanceof RTCInboundRtpStreamStats
+          ? ((RTCInboundRtpStreamStats) stream).getFramesDecoded() : null;
+      case FRAME_DROPPED:
+        return video && stream instanceof RTCInboundRtpStreamStats
+          ? ((RTCInboundRtpStreamStats) stream).getFramesDropped() : null;
+      default:
+        return null;
+    }
+  }
+
+  /**
+   * The columns of one rtp stream.
+   */
+  public static class StreamColumns implements RTCStreamSummary {
+    private final String streamId;
+    private final String kind;
+    private final boolean received;
+    private final LongColumn timestamps = new LongColumn();
+    private final Map<StatEnum, DoubleColumn> metrics = new EnumMap<>(StatEnum.class);
+    private final RTCStreamHistograms histograms = new RTCStreamHistograms();
+
+    StreamColumns(String streamId, String kind, boolean received) {
+      this.streamId = streamId;
+      this.kind = kind;
+      this.received = received;
+    }
+
+    void add(RTCRtpStreamStats streamStats) {
+      timestamps.add(streamStats.getTimestamp());
+      histograms.add(streamStats);
+      for (StatEnum stat : STREAM_METRICS) {
+        Double value = extract(streamStats, stat);
+        if (value != null) {
+          DoubleColumn column = metrics.get(stat);
+          if (column == null) {
+            column = new DoubleColumn();
+            metrics.put(stat, column);
+          }
+          column.add(value);
+        }
+      }
+    }
+
+    @Override
+    public String getStreamId() {
+      return streamId;
+    }
+
+    public String getKind() {
+      return kind;
+    }
+
+    @Override
+    public boolean isAudio() {
+      return "audio".equals(kind);
+    }
+
+    @Override
+    public boolean isReceived() {
+      return received;
+    }
+
+    public LongColumn getTimestamps() {
+      return timestamps;
+    }
+
+    @Override
+    public long getDuration() {
+      return timestamps.last() - timestamps.first();
+    }
+
+    @Override
+    public RTCRunningStat getSummary(StatEnum stat) {
+      RTCRunningStat runningStat = new RTCRunningStat();
+      DoubleColumn column = get(stat);
+      for (int index = 0; index < column.size(); index++) {
+        runningStat.add(column.get(index));
+      }
+      return runningStat;
+    }
+
+    @Override
+    public double[] getValues(StatEnum stat) {
+      return get(stat).toArray();
+    }
+
+    @Override
+    public RTCStreamHistograms getHistograms() {
+      return histograms;
+    }
+
+    /**
+     * Gets the values of a metric.
+     *
+     * @param stat the metric
+     *
+     * @return the values, empty if the metric does not apply to this stream
+     */
+    public DoubleColumn get(StatEnum stat) {
+      DoubleColumn column = metrics.get(stat);
+      return column == null ? new DoubleColumn() : column;
+    }
+  }
+
+  /**
+   * Growable array of primitive doubles.
+   */
+  public static class DoubleColumn {
+    private double[] values = new double[16];
+    private int size = 0;
+
+    void add(double value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    public double get(int index) {
+      if (index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      return values[index];
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public boolean isEmpty() {
+      return size == 0;
+    }
+
+    public double last() {
+      return get(size - 1);
+    }
+
+    public double[] toArray() {
+      return Arrays.copyOf(values, size);
+    }
+  }
+
+  /**
+   * Growable array of primitive longs.
+   */
+  public static class LongColumn {
+    private long[] values = new long[16];
+    private int size = 0;
+
+    void add(long value) {
+      if (size == values.length) {
+        values = Arrays.copyOf(values, size * 2);
+      }
+      values[size++] = value;
+    }
+
+    public long get(int index) {
+      if (index >= size) {
+        throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+      }
+      return values[index];
+    }
+
+    public int size() {
+      return size;
+    }
+
+    public long first() {
+      return get(0);
+    }
+
+    public long last() {
+      return get(size - 1);
+    }
+  }
+}
@@ -1,31 +1,257 @@
 package org.webrtc.kite.stats.rtc;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
+import javax.json.Json;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
 
-public class RTCStatList extends LinkedList<RTCStats> {
+/**
+ * The stats of a peer connection collected over time.
+ * The samples are not kept as RTCStats objects: each sample added is appended to the columns
+ * (or only to a running summary), to the raw stats writer if any, and to the raw JSON samples
+ * only if they are retained for the raw JSON attachment.
+ * <p>
+ * This class used to extend LinkedList&lt;RTCStats&gt;. It is still a read-only List of the
+ * samples added, for the code written against it, but this view is deprecated: the samples are
+ * only kept for it after setRetainStats(true), and reading them otherwise throws an
+ * UnsupportedOperationException. Use getColumns() or getSummary() instead.
+ * </p>
+ */
+public class RTCStatList extends AbstractList<RTCStats> {
 
   private String pcName = "peerconnection";
   private String regionId = "NC";
   private String networkProfile = "NC";
   private HashMap<String, String> addtionalData = new HashMap<>();
+  private RTCStatColumns columns = new RTCStatColumns();
+  private RTCStatAggregator aggregator = null;
+  private RTCStatsBinaryWriter rawStatsWriter = null;
+  private List<JsonObject> rawSamples = null;
+  private List<RTCStats> retainedStats = null;
+  private int size = 0;
+  private String roomUrl = null;
+  private int batchId = -1;
 
   public RTCStatList() {
-    super();
   }
 
   public RTCStatList(RTCStatList otherList) {
-    super(otherList);
+    this.columns = otherList.columns;
+    this.aggregator = otherList.aggregator;
+    this.rawStatsWriter = otherList.rawStatsWriter;
+    this.rawSamples = otherList.rawSamples;
+    this.retainedStats = otherList.retainedStats;
+    this.size = otherList.size;
+    this.roomUrl = otherList.roomUrl;
+    this.batchId = otherList.batchId;
   }
 
   public RTCStatList(String pcName, RTCStatList otherList) {
-    super(otherList);
+    this(otherList);
     this.pcName = pcName;
   }
 
   public RTCStatList(List<RTCStats> otherList) {
-    super(otherList);
+    for (RTCStats stats : otherList) {
+      add(stats);
+    }
+  }
+
+  /**
+   * Adds a sample. The sample itself is not kept, unless setRetainStats(true) was called.
+   *
+   * @param stats the sample
+   *
+   * @return true
+   */
+  @Override
+  public boolean add(RTCStats stats) {
+    if (rawStatsWriter != null) {
+      try {
+        rawStatsWriter.write(stats);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    if (size++ == 0) {
+      roomUrl = stats.getRoomUrl();
+      batchId = stats.getBatchId();
+    }
+    if (rawSamples != null) {
+      JsonObject json = stats.toJson();
+      if (!json.isEmpty()) {
+        rawSamples.add(json);
+      }
+    }
+    if (retainedStats != null) {
+      retainedStats.add(stats);
+    }
+    if (aggregator != null) {
+      aggregator.add(stats);
+    } else {
+      columns.add(stats);
+    }
+    return true;
+  }
+
+  /**
+   * Gets a sample added, only kept after setRetainStats(true).
+   *
+   * @param index the index of the sample
+   *
+   * @return the sample
+   * @throws UnsupportedOperationException if the samples are not kept
+   * @deprecated use getColumns() or getSummary(), the samples are not kept by default
+   */
+  @Deprecated
+  @Override
+  public RTCStats get(int index) {
+    if (retainedStats == null) {
+      throw new UnsupportedOperationException(
+          "The samples of " + pcName + " are not kept, see RTCStatList.setRetainStats");
+    }
+    return retainedStats.get(index);
+  }
+
+  /**
+   * Gets the number of samples added.
+   *
+   * @return the number of samples
+   */
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Sets whether the RTCStats objects added are kept, for the deprecated List view of this list.
+   * Must be called before any sample is added.
+   *
+   * @param retainStats true to keep the samples
+   * @deprecated the samples use much more memory than their columns, use getColumns() instead
+   */
+  @Deprecated
+  public void setRetainStats(boolean retainStats) {
+    this.retainedStats = retainStats ? new ArrayList<>() : null;
+  }
+
+  // a list of samples that cannot be read is only equal to itself
+  @Override
+  public boolean equals(Object other) {
+    return this == other;
+  }
+
+  @Override
+  public int hashCode() {
+    return System.identityHashCode(this);
+  }
+
+  @Override
+  public String toString() {
+    return "RTCStatList(" + pcName + ", " + size + " samples)";
+  }
+
+  /**
+   * Gets the columnar representation of the samples added, empty if the samples are not kept.
+   *
+   * @return the columns
+   */
+  public RTCStatColumns getColumns() {
+    return columns;
+  }
+
+  /**
+   * Sets whether every sample is kept. When not kept, each sample added only updates a running
+   * summary, so that the memory used does not grow with the collection time.
+   * Must be called before any sample is added.
+   *
+   * @param retainSamples false to only keep the running summary
+   */
+  public void setRetainSamples(boolean retainSamples) {
+    this.aggregator = retainSamples ? null : new RTCStatAggregator();
+  }
+
+  public boolean isRetainingSamples() {
+    return aggregator == null;
+  }
+
+  /**
+   * Sets whether the JSON of every sample is kept, for the raw stats JSON attachment.
+   * Must be called before any sample is added.
+   *
+   * @param retainRawSamples true to keep the JSON of the samples
+   */
+  public void setRetainRawSamples(boolean retainRawSamples) {
+    this.rawSamples = retainRawSamples ? new ArrayList<>() : null;
+  }
+
+  public boolean isRetainingRawSamples() {
+    return rawSamples != null;
+  }
+
+  /**
+   * Gets the JSON of the samples added, without the empty ones.
+   *
+   * @return the JSON of the samples, empty if they are not kept
+   */
+  public List<JsonObject> getRawSamples() {
+    return rawSamples == null ? Collections.<JsonObject>emptyList() : rawSamples;
+  }
+
+  /**
+   * Gets the summary of the samples added to this list: the running summary if the samples
+   * are not kept, the columns otherwise.
+   *
+   * @return the summary
+   */
+  public RTCStatSummary getSummary() {
+    return aggregator != null ? aggregator : columns;
+  }
+
+  /**
+   * Sets the writer to which every sample added from now on is also written.
+   *
+   * @param rawStatsWriter the binary writer of the raw stats
+   */
+  public void setRawStatsWriter(RTCStatsBinaryWriter rawStatsWriter) {
+    this.rawStatsWriter = rawStatsWriter;
+  }
+
+  public RTCStatsBinaryWriter getRawStatsWriter() {
+    return rawStatsWriter;
+  }
+
+  /**
+   * Writes Connected, Room and the additional data of this list at the end of the raw stats file
+   * and closes it.
+   *
+   * @return the raw stats file, null if there is no writer
+   * @throws IOException if the file cannot be written
+   */
+  public File closeRawStatsWriter() throws IOException {
+    if (rawStatsWriter == null) {
+      return null;
+    }
+    JsonObjectBuilder footer = Json.createObjectBuilder()
+        .add("Connected", !hasNoData())
+        .add("Room", getRoomUrl());
+    for (String key : addtionalData.keySet()) {
+      footer.add(key, addtionalData.get(key));
+    }
+    rawStatsWriter.close(footer.build());
+    return rawStatsWriter.getFile();
   }
 
   public String getPcName() {
@@ -33,26 +259,15 @@ public class RTCStatList extends LinkedList<RTCStats> {
   }
 
   public boolean hasNoData() {
-    for (RTCStats stats: this) {
-      if (!stats.hasNoData()) {
-        return false;
-      }
-    }
-    return true;
+    return getSummary().hasNoData();
   }
 
   public String getRoomUrl() {
-    if (!this.isEmpty()) {
-      return this.get(0).getRoomUrl();
-    }
-    return "unknown";
+    return roomUrl != null ? roomUrl : "unknown";
   }
 
   public String getBatchId() {
-    if(!this.isEmpty()) {
-      return Integer.toString(this.get(0).getBatchId());
-    }
-    return "unknown";
+    return size > 0 ? Integer.toString(batchId) : "unknown";
   }
 
   public void addNewData(String key, String value) {
@@ -0,0 +1,55 @@
+package org.webrtc.kite.stats.rtc;
+
+import java.util.Collection;
+
+/**
+ * What StatsUtils needs to know about a series of RTCStats to build its stat summary.
+ */
+public interface RTCStatSummary {
+
+  long getFirstTimestamp();
+
+  long getLastTimestamp();
+
+  boolean hasNoData();
+
+  /**
+   * Gets the average current round trip time of the successful candidate pairs.
+   *
+   * @return the average in ms
+   */
+  double getAverageCurrentRoundTripTime();
+
+  /**
+   * Gets the histogram of the current round trip time of the successful candidate pairs.
+   *
+   * @return the histogram (ms)
+   */
+  RTCLogHistogram getCurrentRoundTripTimeHistogram();
+
+  /**
+   * Gets the remote IP of the last sample.
+   *
+   * @return the remote IP, or null if the last sample has no remote-candidate
+   */
+  String getLastRemoteIP();
+
+  /**
+   * @return true if the last sample contains inbound-rtp stats
+   */
+  boolean lastHasInbound();
+
+  /**
+   * @return true if the last sample contains outbound-rtp stats
+   */
+  boolean lastHasOutbound();
+
+  /**
+   * Gets the streams of a direction.
+   *
+   * @param boundDirection inbound or outbound
+   *
+   * @return the streams, in order of first appearance
+   */
+  Collection<? extends RTCStreamSummary> getStreams(String boundDirection);
+}
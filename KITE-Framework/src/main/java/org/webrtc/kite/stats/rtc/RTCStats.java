@@ -6,9 +6,13 @@ import javax.json.Json;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
+import javax.json.JsonString;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.TreeMap;
 import org.webrtc.kite.stats.rtc.msource.RTCAudioSourceStats;
 import org.webrtc.kite.stats.rtc.msource.RTCMediaSourceStats;
@@ -36,6 +40,17 @@ public class RTCStats extends TreeMap<String, List<RTCSingleStatObject>> impleme
   }
   
   public RTCStats (String pcName, List<Map> statArray, JsonArray selectedStats) {
+    this(pcName, statArray, compileSelectedStats(selectedStats));
+  }
+
+  /**
+   * Builds the stats of a peer connection from the raw output of getStats().
+   *
+   * @param pcName        the peer connection
+   * @param statArray     the raw output of getStats()
+   * @param selectedTypes the stat types to keep, as returned by compileSelectedStats, all if empty
+   */
+  public RTCStats (String pcName, List<Map> statArray, Set<String> selectedTypes) {
     super();
     this.pcName = pcName;
     if (statArray != null) {
@@ -43,7 +58,7 @@ public class RTCStats extends TreeMap<String, List<RTCSingleStatObject>> impleme
       for (Map statMap : statArray) {
         if (statMap != null) {
           String type = (String) statMap.get("type");
-          if (selectedStats == null || selectedStats.size() == 0 || selectedStats.toString().contains(type)) {
+          if (selectedTypes.isEmpty() || selectedTypes.contains(type)) {
             RTCSingleStatObject statObject = null;
             switch (type) {
               case "codec": {
@@ -105,6 +120,7 @@ public class RTCStats extends TreeMap<String, List<RTCSingleStatObject>> impleme
               }
             }
             if (statObject != null) {
+              statObject.releaseSource();
               if (this.timestamp == 0) {
                 this.timestamp = statObject.getTimestamp();
               }
@@ -120,12 +136,34 @@ public class RTCStats extends TreeMap<String, List<RTCSingleStatObject>> impleme
   }
   
   public RTCStats (String pcName, List<Map> rawInputFromGetStats) {
-    this(pcName, rawInputFromGetStats, null);
+    this(pcName, rawInputFromGetStats, Collections.<String>emptySet());
+  }
+
+  /**
+   * Compiles the selectedStats of the getStats config into a set of stat types to match exactly.
+   *
+   * @param selectedStats the selectedStats array, can be null
+   *
+   * @return the stat types, empty to keep all of them
+   */
+  public static Set<String> compileSelectedStats(JsonArray selectedStats) {
+    if (selectedStats == null || selectedStats.isEmpty()) {
+      return Collections.emptySet();
+    }
+    Set<String> selectedTypes = new HashSet<>();
+    for (JsonString type : selectedStats.getValuesAs(JsonString.class)) {
+      selectedTypes.add(type.getString());
+    }
+    return Collections.unmodifiableSet(selectedTypes);
   }
   
   public long getTimestamp() {
     return timestamp;
   }
+
+  public void setTimestamp(long timestamp) {
+    this.timestamp = timestamp;
+  }
   
   public JsonObject toJson() {
     try {
@@ -150,7 +188,7 @@ public class RTCStats extends TreeMap<String, List<RTCSingleStatObject>> impleme
     if (this.get("candidate-pair") != null) {
       for (RTCSingleStatObject statObject : this.get("candidate-pair")) {
         RTCIceCandidatePairStats candidatePairStats = (RTCIceCandidatePairStats) statObject;
-        if (candidatePairStats.getState().equals("succeeded")) {
+        if (candidatePairStats.getPairState() == RTCIceCandidatePairState.SUCCEEDED) {
           //sometimes there are multiple successful candidates but only one carries non zero stats
           if (candidatePairStats.getBytesReceived() > 0 || candidatePairStats.getBytesSent() > 0) {
             return candidatePairStats;
@@ -158,7 +196,7 @@ public class RTCStats extends TreeMap<String, List<RTCSingleStatObject>> impleme
         }
         //sometimes there are no "succeeded" pair, but the "in-progress" with
         //a valid currentRoundTripTime value looks just fine.
-        if (candidatePairStats.getState().equals("in-progress")) {
+        if (candidatePairStats.getPairState() == RTCIceCandidatePairState.IN_PROGRESS) {
           if (candidatePairStats.getCurrentRoundTripTime() > 0) {
             return candidatePairStats;
           }
@@ -0,0 +1,247 @@
+package org.webrtc.kite.stats.rtc;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.json.Json;
+import javax.json.JsonArrayBuilder;
+import javax.json.JsonObject;
+import javax.json.JsonObjectBuilder;
+import javax.json.JsonReader;
+import javax.json.JsonValue;
+
+import static org.webrtc.kite.stats.rtc.RTCStatsBinaryWriter.*;
+
+/**
+ * Reads the files written by RTCStatsBinaryWriter, sample by sample,
+ * or converts them back to the JSON of StatsUtils.transformToJson.
+ */
+public class RTCStatsBinaryReader implements Closeable {
+
+  private final DataInputStream in;
+  private final List<String> dictionary = new ArrayList<>();
+  private final Map<String, Long> previousValues = new HashMap<>();
+  private long timestamp = 0;
+  private JsonObject stats;
+  private JsonObject footer;
+
+  /**
+   * Reads and checks the header of the file.
+   *
+   * @param inputStream the content of the file
+   *
+   * @throws IOException if the stream is not a binary stats file
+   */
+  public RTCStatsBinaryReader(InputStream inputStream) throws IOException {
+    this.in = new DataInputStream(new BufferedInputStream(inputStream));
+    if (in.readInt() != MAGIC) {
+      throw new IOException("Not a binary stats file");
+    }
+    int version = in.readUnsignedByte();
+    if (version != VERSION) {
+      throw new IOException("Unsupported binary stats version " + version);
+    }
+  }
+
+  /**
+   * Reads the next sample.
+   *
+   * @return false when there is no sample left
+   *
+   * @throws IOException if the file is corrupted
+   */
+  public boolean next() throws IOException {
+    int record;
+    while ((record = in.read()) != -1) {
+      switch (record) {
+        case RECORD_SAMPLE:
+          timestamp += unzigzag(readVarLong());
+          stats = (JsonObject) readValue("");
+          return true;
+        case RECORD_FOOTER:
+          footer = (JsonObject) readValue("");
+          break;
+        default:
+          throw new IOException("Unknown record " + record);
+      }
+    }
+    stats = null;
+    return false;
+  }
+
+  /**
+   * Gets the timestamp of the current sample.
+   *
+   * @return the timestamp
+   */
+  public long getTimestamp() {
+    return timestamp;
+  }
+
+  /**
+   * Gets the current sample, as in RTCStats.toJson().
+   *
+   * @return the stats
+   */
+  public JsonObject getStats() {
+    return stats;
+  }
+
+  /**
+   * Gets the footer, once all the samples have been read.
+   *
+   * @return Connected, Room and the additional data, null if the file was not closed properly
+   */
+  public JsonObject getFooter() {
+    return footer;
+  }
+
+  @Override
+  public void close() throws IOException {
+    in.close();
+  }
+
+  /**
+   * Converts a binary stats file to the JSON attached by GetStatsStep for the json raw format.
+   *
+   * @param file the binary stats file
+   *
+   * @return the JSON object
+   * @throws IOException if the file cannot be read
+   */
+  public static JsonObject toJson(File file) throws IOException {
+    try (RTCStatsBinaryReader reader = new RTCStatsBinaryReader(new FileInputStream(file))) {
+      JsonArrayBuilder statsArray = Json.createArrayBuilder();
+      while (reader.next()) {
+        statsArray.add(reader.getStats());
+      }
+      JsonObject footer = reader.getFooter() == null ? JsonValue.EMPTY_JSON_OBJECT : reader.getFooter();
+      JsonObjectBuilder builder = Json.createObjectBuilder();
+      builder.add("Connected", footer.getOrDefault("Connected", JsonValue.FALSE));
+      builder.add("Room", footer.getOrDefault("Room", JsonValue.NULL));
+      builder.add("StatsArray", statsArray);
+      for (Map.Entry<String, JsonValue> entry : footer.entrySet()) {
+        if (!entry.getKey().equals("Connected") && !entry.getKey().equals("Room")) {
+          builder.add(entry.getKey(), entry.getValue());
+        }
+      }
+      return builder.build();
+    }
+  }
+
+  /**
+   * Converts a binary stats file to JSON.
+   *
+   * @param args the binary stats file, and optionally the JSON file to write (default: stdout)
+   *
+   * @throws IOException if a file cannot be read or written
+   */
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1) {
+      System.err.println("Usage: RTCStatsBinaryReader <file.kstats> [output.json]");
+      System.exit(1);
+    }
+    String json = toJson(new File(args[0])).toString();
+    if (args.length > 1) {
+      try (Writer writer = new FileWriter(args[1])) {
+        writer.write(json);
+      }
+    } else {
+      System.out.println(json);
+    }
+  }
+
+  private JsonValue readValue(String path) throws IOException {
+    int tag = in.readUnsignedByte();
+    switch (tag) {
+      case VALUE_OBJECT:
+        long size = readVarLong();
+        JsonObjectBuilder builder = Json.createObjectBuilder();
+        for (long index = 0; index < size; index++) {
+          String key = readReference();
+          builder.add(key, readValue(path + "/" + key));
+        }
+        return builder.build();
+      case VALUE_STRING:
+        return Json.createValue(readReference());
+      case VALUE_LONG_STRING:
+        return Json.createValue(Long.toString(readDelta(path)));
+      case VALUE_DOUBLE_STRING:
+        return Json.createValue(Double.toString(in.readDouble()));
+      case VALUE_LONG:
+        return Json.createValue(readDelta(path));
+      case VALUE_DOUBLE:
+        return Json.createValue(in.readDouble());
+      case VALUE_TRUE:
+        return JsonValue.TRUE;
+      case VALUE_FALSE:
+        return JsonValue.FALSE;
+      case VALUE_NULL:
+        return JsonValue.NULL;
+      case VALUE_JSON:
+        try (JsonReader jsonReader = Json.createReader(new StringReader(readString()))) {
+          return jsonReader.readValue();
+        }
+      default:
+        throw new IOException("Unknown value " + tag);
+    }
+  }
+
+  private long readDelta(String path) throws IOException {
+    Long previous = previousValues.get(path);
+    long value = unzigzag(readVarLong()) + (previous == null ? 0 : previous);
+    previousValues.put(path, value);
+    return value;
+  }
+
+  private String readReference() throws IOException {
+    int index = (int) readVarLong();
+    if (index == 0) {
+      String string = readString();
+      dictionary.add(string);
+      return string;
+    }
+    if (index > dictionary.size()) {
+      throw new IOException("Unknown reference " + index);
+    }
+    return dictionary.get(index - 1);
+  }
+
+  private String readString() throws IOException {
+    byte[] bytes = new byte[(int) readVarLong()];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private long readVarLong() throws IOException {
+    long value = 0;
+    for (int shift = 0; shift < 64; shift += 7) {
+      int b = in.read();
+      if (b == -1) {
+        throw new EOFException();
+      }
+      value |= (long) (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return value;
+      }
+    }
+    throw new IOException("Malformed varint");
+  }
+
+  private static long unzigzag(long value) {
+    return (value >>> 1) ^ -(value & 1);
+  }
+}
@@ -0,0 +1,248 @@
+package org.webrtc.kite.stats.rtc;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import javax.json.JsonNumber;
+import javax.json.JsonObject;
+import javax.json.JsonString;
+import javax.json.JsonValue;
+
+/**
+ * Writes the raw stats of a peer connection to a compact binary file, one sample at a time,
+ * so that the raw series never has to be held in memory nor serialized as JSON.
+ *
+ * <p>
+ * The file starts with the magic number and the format version, followed by records:
+ * each sample is written with its timestamp as a delta to the previous sample, then the JSON of
+ * the stats with every key and string value written once and then referred to by index.
+ * Integer values (counters such as bytes, packets or frames) are written as the zigzag varint of
+ * their difference with the previous value of the same stat. The footer record holds the
+ * Connected, Room and additional data of the list. RTCStatsBinaryReader converts the file back
+ * to the JSON of StatsUtils.transformToJson.
+ * </p>
+ */
+public class RTCStatsBinaryWriter implements Closeable {
+
+  static final int MAGIC = 0x4B535442;
+
+  /**
+   * The version of the format, to be incremented on any change the reader of the previous version
+   * could not read. The invariants of version 1, checked by RTCStatsBinaryWriterTest:
+   * <ul>
+   *   <li>the header is the int MAGIC then the byte VERSION, followed by sample records and at most
+   *   one footer record, the last one;</li>
+   *   <li>the varints are unsigned LEB128, the deltas are zigzag encoded before;</li>
+   *   <li>the timestamp of a sample is the delta to the previous sample, 0 before the first one;</li>
+   *   <li>a dictionary reference is 0 followed by the string the first time it is written (keys and
+   *   string values share the dictionary, in order of first appearance), then its index + 1;</li>
+   *   <li>an integer value is the delta to the previous integer value at the same path (the keys from
+   *   the root of the record joined with /), 0 if none, whether it was a JSON number or a string;</li>
+   *   <li>reading a sample back gives a JSON equal to RTCStats.toJson() of the sample written.</li>
+   * </ul>
+   */
+  static final int VERSION = 1;
+
+  static final int RECORD_SAMPLE = 1;
+  static final int RECORD_FOOTER = 2;
+
+  static final int VALUE_STRING = 0;
+  static final int VALUE_LONG_STRING = 1;
+  static final int VALUE_DOUBLE_STRING = 2;
+  static final int VALUE_LONG = 3;
+  static final int VALUE_DOUBLE = 4;
+  static final int VALUE_TRUE = 5;
+  static final int VALUE_FALSE = 6;
+  static final int VALUE_NULL = 7;
+  static final int VALUE_OBJECT = 8;
+  static final int VALUE_JSON = 9;
+
+  private final File file;
+  private final DataOutputStream out;
+  private final Map<String, Integer> dictionary = new HashMap<>();
+  private final Map<String, Long> previousValues = new HashMap<>();
+  private long previousTimestamp = 0;
+  private boolean closed = false;
+
+  /**
+   * Creates the file and writes its header.
+   *
+   * @param file the file to write
+   *
+   * @throws IOException if the file cannot be created
+   */
+  public RTCStatsBinaryWriter(File file) throws IOException {
+    this.file = file;
+    if (file.getParentFile() != null) {
+      file.getParentFile().mkdirs();
+    }
+    this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+    out.writeInt(MAGIC);
+    out.writeByte(VERSION);
+  }
+
+  /**
+   * Appends one sample to the file. Samples without any stats are skipped,
+   * as in StatsUtils.transformToJson.
+   *
+   * @param stats the sample
+   *
+   * @throws IOException if the sample cannot be written
+   */
+  public synchronized void write(RTCStats stats) throws IOException {
+    JsonObject json = stats.toJson();
+    if (json.isEmpty()) {
+      return;
+    }
+    out.writeByte(RECORD_SAMPLE);
+    writeVarLong(zigzag(stats.getTimestamp() - previousTimestamp));
+    previousTimestamp = stats.getTimestamp();
+    writeValue(json, "");
+  }
+
+  /**
+   * Writes the footer with the data of the list and closes the file.
+   *
+   * @param footer Connected, Room and the additional data of the list
+   *
+   * @throws IOException if the footer cannot be written
+   */
+  public synchronized void close(JsonObject footer) throws IOException {
+    if (closed) {
+      return;
+    }
+    try {
+      out.writeByte(RECORD_FOOTER);
+      writeValue(footer, "");
+    } finally {
+      close();
+    }
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (!closed) {
+      closed = true;
+      out.close();
+    }
+  }
+
+  public File getFile() {
+    return file;
+  }
+
+  private void writeValue(JsonValue value, String path) throws IOException {
+    switch (value.getValueType()) {
+      case OBJECT:
+        JsonObject object = (JsonObject) value;
+        out.writeByte(VALUE_OBJECT);
+        writeVarLong(object.size());
+        for (Map.Entry<String, JsonValue> entry : object.entrySet()) {
+          writeReference(entry.getKey());
+          writeValue(entry.getValue(), path + "/" + entry.getKey());
+        }
+        break;
+      case STRING:
+        String string = ((JsonString) value).getString();
+        if (isCanonicalLong(string)) {
+          out.writeByte(VALUE_LONG_STRING);
+          writeDelta(path, Long.parseLong(string));
+        } else if (isCanonicalDouble(string)) {
+          out.writeByte(VALUE_DOUBLE_STRING);
+          out.writeDouble(Double.parseDouble(string));
+        } else {
+          out.writeByte(VALUE_STRING);
+          writeReference(string);
+        }
+        break;
+      case NUMBER:
+        JsonNumber number = (JsonNumber) value;
+        if (number.isIntegral()) {
+          out.writeByte(VALUE_LONG);
+          writeDelta(path, number.longValue());
+        } else {
+          out.writeByte(VALUE_DOUBLE);
+          out.writeDouble(number.doubleValue());
+        }
+        break;
+      case TRUE:
+        out.writeByte(VALUE_TRUE);
+        break;
+      case FALSE:
+        out.writeByte(VALUE_FALSE);
+        break;
+      case NULL:
+        out.writeByte(VALUE_NULL);
+        break;
+      default:
+        out.writeByte(VALUE_JSON);
+        writeString(value.toString());
+        break;
+    }
+  }
+
+  private void writeDelta(String path, long value) throws IOException {
+    Long previous = previousValues.put(path, value);
+    writeVarLong(zigzag(value - (previous == null ? 0 : previous)));
+  }
+
+  /**
+   * Writes the index of a string already written, or 0 followed by the string the first time.
+   */
+  private void writeReference(String string) throws IOException {
+    Integer index = dictionary.get(string);
+    if (index != null) {
+      writeVarLong(index + 1);
+    } else {
+      dictionary.put(string, dictionary.size());
+      writeVarLong(0);
+      writeString(string);
+    }
+  }
+
+  private void writeString(String string) throws IOException {
+    byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+    writeVarLong(bytes.length);
+    out.write(bytes);
+  }
+
+  private void writeVarLong(long value) throws IOException {
+    while ((value & ~0x7FL) != 0) {
+      out.writeByte((int) ((value & 0x7F) | 0x80));
+      value >>>= 7;
+    }
+    out.writeByte((int) value);
+  }
+
+  private static long zigzag(long value) {
+    return (value << 1) ^ (value >> 63);
+  }
+
+  private static boolean isCanonicalLong(String string) {
+    if (string.isEmpty() || string.length() > 19) {
+      return false;
+    }
+    try {
+      return Long.toString(Long.parseLong(string)).equals(string);
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+
+  private static boolean isCanonicalDouble(String string) {
+    if (string.isEmpty() || !Character.isDigit(string.charAt(string.length() - 1))) {
+      return false;
+    }
+    try {
+      return Double.toString(Double.parseDouble(string)).equals(string);
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,69 @@
+package org.webrtc.kite.stats.rtc;
+
+import org.webrtc.kite.stats.StatEnum;
+import org.webrtc.kite.stats.rtc.rtpstream.RTCRtpStreamStats;
+
+/**
+ * The jitter, bitrate and frame rate histograms of one rtp stream.
+ * Bitrate and frame rate are computed between two consecutive samples of the stream.
+ */
+public class RTCStreamHistograms {
+  private final RTCLogHistogram jitter = new RTCLogHistogram();
+  private final RTCLogHistogram bitrate = new RTCLogHistogram();
+  private final RTCLogHistogram frameRate = new RTCLogHistogram();
+  private long previousTimestamp = -1;
+  private double previousBytes = -1;
+  private double previousFrames = -1;
+
+  /**
+   * Records one sample of the stream.
+   *
+   * @param streamStats the sample
+   */
+  public void add(RTCRtpStreamStats streamStats) {
+    Double jitterValue = RTCStatColumns.extract(streamStats, StatEnum.JITTER);
+    if (jitterValue != null) {
+      jitter.record(jitterValue);
+    }
+    long timestamp = streamStats.getTimestamp();
+    Double bytes = RTCStatColumns.extract(streamStats, StatEnum.BYTES);
+    Double frames = RTCStatColumns.extract(streamStats, StatEnum.FRAME);
+    long interval = timestamp - previousTimestamp;
+    if (previousTimestamp > 0 && interval > 0) {
+      // bytes per ms * 8 = kbps
+      recordDelta(bitrate, previousBytes, bytes, 8.0 / interval);
+      recordDelta(frameRate, previousFrames, frames, 1000.0 / interval);
+    }
+    previousTimestamp = timestamp;
+    previousBytes = bytes == null ? -1 : bytes;
+    previousFrames = frames == null ? -1 : frames;
+  }
+
+  private static void recordDelta(RTCLogHistogram histogram, double previous, Double current, double factor) {
+    // -1 means the stat is missing, a decrease means the counter was reset
+    if (current != null && previous >= 0 && current >= previous) {
+      histogram.record((current - previous) * factor);
+    }
+  }
+
+  /**
+   * @return the histogram of the jitter (ms)
+   */
+  public RTCLogHistogram getJitter() {
+    return jitter;
+  }
+
+  /**
+   * @return the histogram of the bitrate (kbps) between two samples
+   */
+  public RTCLogHistogram getBitrate() {
+    return bitrate;
+  }
+
+  /**
+   * @return the histogram of the frame rate (fps) between two samples
+   */
+  public RTCLogHistogram getFrameRate() {
+    return frameRate;
+  }
+}
@@ -0,0 +1,50 @@
+package org.webrtc.kite.stats.rtc;
+
+import org.webrtc.kite.stats.StatEnum;
+
+/**
+ * What StatsUtils needs to know about an rtp stream to build its stat summary.
+ */
+public interface RTCStreamSummary {
+
+  String getStreamId();
+
+  boolean isAudio();
+
+  /**
+   * @return true if this is a received (inbound) stream
+   */
+  boolean isReceived();
+
+  /**
+   * Gets the time between the first and the last sample of the stream.
+   *
+   * @return the duration in ms
+   */
+  long getDuration();
+
+  /**
+   * Gets the running summary of a metric.
+   *
+   * @param stat the metric
+   *
+   * @return the summary, empty if the metric does not apply to this stream
+   */
+  RTCRunningStat getSummary(StatEnum stat);
+
+  /**
+   * Gets every value of a metric, for the fully detailed summary.
+   *
+   * @param stat the metric
+   *
+   * @return the values, or null if the series was not retained
+   */
+  double[] getValues(StatEnum stat);
+
+  /**
+   * Gets the jitter, bitrate and frame rate histograms of the stream.
+   *
+   * @return the histograms
+   */
+  RTCStreamHistograms getHistograms();
+}
@@ -25,30 +25,30 @@ import javax.json.JsonObjectBuilder;
 public class RTCInboundRtpStreamStats extends RTCReceivedRtpStreamStats {
   protected final String receiverId;
   protected final String remoteId;
-  protected final String nackCount;
-  protected final String audioLevel;
-  protected final String framesDecoded;
-  protected final String framesReceived;
-  protected final String framesDropped;
-  protected final String partialFramesLost;
-  protected final String totalAudioEnergy;
-  protected final String totalSamplesDuration;
+  protected final double nackCount;
+  protected final double audioLevel;
+  protected final double framesDecoded;
+  protected final double framesReceived;
+  protected final double framesDropped;
+  protected final double partialFramesLost;
+  protected final double totalAudioEnergy;
+  protected final double totalSamplesDuration;
 
 
 
 
   public RTCInboundRtpStreamStats(Map statObject) {
     super(statObject);
-    this.receiverId = getStatByName( "receiverId");
-    this.remoteId = getStatByName( "remoteId");
-    this.nackCount = getStatByName( "nackCount");
-    this.audioLevel = getStatByName( "audioLevel");
-    this.framesDecoded = getStatByName( "framesDecoded");
-    this.framesReceived = getStatByName( "framesReceived");
-    this.framesDropped = getStatByName( "framesDropped");
-    this.partialFramesLost = getStatByName( "partialFramesLost");
-    this.totalAudioEnergy = getStatByName( "totalAudioEnergy");
-    this.totalSamplesDuration = getStatByName( "totalSamplesDuration");
+    this.receiverId = getStatByName( "receiverId").intern();
+    this.remoteId = getStatByName( "remoteId").intern();
+    this.nackCount = getStatValue( "nackCount");
+    this.audioLevel = getStatValue( "audioLevel");
+    this.framesDecoded = getStatValue( "framesDecoded");
+    this.framesReceived = getStatValue( "framesReceived");
+    this.framesDropped = getStatValue( "framesDropped");
+    this.partialFramesLost = getStatValue( "partialFramesLost");
+    this.totalAudioEnergy = getStatValue( "totalAudioEnergy");
+    this.totalSamplesDuration = getStatValue( "totalSamplesDuration");
   }
 
   @Override
@@ -56,14 +56,14 @@ public class RTCInboundRtpStreamStats extends RTCReceivedRtpStreamStats {
     return super.getJsonObjectBuilder()
         .add("receiverId", this.receiverId)
         .add("remoteId", this.remoteId)
-        .add("nackCount", this.nackCount)
-        .add("audioLevel", this.audioLevel)
-        .add("framesDecoded", this.framesDecoded)
-        .add("framesReceived", this.framesReceived)
-        .add("framesDropped", this.framesDropped)
-        .add("partialFramesLost", this.partialFramesLost)
-        .add("totalAudioEnergy", this.totalAudioEnergy)
-        .add("totalSamplesDuration", this.totalSamplesDuration);
+        .add("nackCount", format(this.nackCount))
+        .add("audioLevel", format(this.audioLevel))
+        .add("framesDecoded", format(this.framesDecoded))
+        .add("framesReceived", format(this.framesReceived))
+        .add("framesDropped", format(this.framesDropped))
+        .add("partialFramesLost", format(this.partialFramesLost))
+        .add("totalAudioEnergy", format(this.totalAudioEnergy))
+        .add("totalSamplesDuration", format(this.totalSamplesDuration));
   }
 
   public String getReceiverId() {
@@ -75,35 +75,35 @@ public class RTCInboundRtpStreamStats extends RTCReceivedRtpStreamStats {
   }
 
   public String getNackCount() {
-    return nackCount;
+    return format(nackCount);
   }
 
   public Double getFramesDecoded() {
-    return parseDouble(framesDecoded);
+    return valueOf(framesDecoded);
   }
 
   public Double getAudioLevel() {
-    return parseDouble(audioLevel);
+    return valueOf(audioLevel);
   }
 
   public Double getFramesReceived() {
-    return parseDouble(framesReceived);
+    return valueOf(framesReceived);
   }
 
   public Double getFramesDropped() {
-    return parseDouble(framesDropped);
+    return valueOf(framesDropped);
   }
 
   public Double getPartialFramesLost() {
-    return parseDouble(partialFramesLost);
+    return valueOf(partialFramesLost);
   }
 
   public Double getTotalAudioEnergy() {
-    return parseDouble(totalAudioEnergy);
+    return valueOf(totalAudioEnergy);
   }
 
   public Double getTotalSamplesDuration() {
-    return parseDouble(totalSamplesDuration);
+    return valueOf(totalSamplesDuration);
   }
 
 }
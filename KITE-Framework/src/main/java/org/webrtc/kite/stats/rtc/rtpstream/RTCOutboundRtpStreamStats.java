@@ -25,22 +25,22 @@ import javax.json.JsonObjectBuilder;
 public class RTCOutboundRtpStreamStats extends RTCSentRtpStreamStats {
   protected final String senderId;
   protected final String remoteId;
-  protected final String nackCount;
-  protected final String framesEncoded;
-  protected final String framesSent;
-  protected final String framesPerSecond;
+  protected final double nackCount;
+  protected final double framesEncoded;
+  protected final double framesSent;
+  protected final double framesPerSecond;
 
 
 
 
   public RTCOutboundRtpStreamStats(Map statObject) {
     super(statObject);
-    this.senderId = getStatByName( "senderId");
-    this.remoteId = getStatByName( "remoteId");
-    this.nackCount = getStatByName( "nackCount");
-    this.framesEncoded = getStatByName( "framesEncoded");
-    this.framesSent = getStatByName( "framesSent");
-    this.framesPerSecond = getStatByName( "framesPerSecond");
+    this.senderId = getStatByName( "senderId").intern();
+    this.remoteId = getStatByName( "remoteId").intern();
+    this.nackCount = getStatValue( "nackCount");
+    this.framesEncoded = getStatValue( "framesEncoded");
+    this.framesSent = getStatValue( "framesSent");
+    this.framesPerSecond = getStatValue( "framesPerSecond");
   }
 
   @Override
@@ -48,10 +48,10 @@ public class RTCOutboundRtpStreamStats extends RTCSentRtpStreamStats {
     return super.getJsonObjectBuilder()
         .add("senderId", this.senderId)
         .add("remoteId", this.remoteId)
-        .add("nackCount", this.nackCount)
-        .add("framesEncoded", this.framesEncoded)
-        .add("framesSent", this.framesSent)
-        .add("framesPerSecond", this.framesPerSecond);
+        .add("nackCount", format(this.nackCount))
+        .add("framesEncoded", format(this.framesEncoded))
+        .add("framesSent", format(this.framesSent))
+        .add("framesPerSecond", format(this.framesPerSecond));
   }
 
   public String getSenderId() {
@@ -63,18 +63,18 @@ public class RTCOutboundRtpStreamStats extends RTCSentRtpStreamStats {
   }
 
   public Double getNackCount() {
-    return parseDouble(nackCount);
+    return valueOf(nackCount);
   }
 
   public Double getFramesEncoded() {
-    return parseDouble(framesEncoded);
+    return valueOf(framesEncoded);
   }
 
   public Double getFramesSent() {
-    return parseDouble(framesSent);
+    return valueOf(framesSent);
   }
 
   public Double getFramesPerSecond() {
-    return parseDouble(framesPerSecond);
+    return valueOf(framesPerSecond);
   }
 }
@@ -23,49 +23,49 @@ import javax.json.JsonObjectBuilder;
  * Represent RTCRtpStreamStats, outbound and inbound, sent and received.
  */
 public class RTCReceivedRtpStreamStats extends RTCRtpStreamStats {
-  private final String packetsReceived;
-  private final String packetsLost;
-  private final String packetsDiscarded;
-  private final String jitter;
-  private final String bytesReceived;
+  private final double packetsReceived;
+  private final double packetsLost;
+  private final double packetsDiscarded;
+  private final double jitter;
+  private final double bytesReceived;
 
   public RTCReceivedRtpStreamStats(Map statObject) {
     super(statObject);
-    this.packetsReceived = getStatByName( "packetsReceived");
-    this.packetsLost = getStatByName( "packetsLost");
-    this.packetsDiscarded = getStatByName( "packetsDiscarded");
-    this.jitter = getStatByName( "jitter");
-    this.bytesReceived = getStatByName( "bytesReceived");
+    this.packetsReceived = getStatValue( "packetsReceived");
+    this.packetsLost = getStatValue( "packetsLost");
+    this.packetsDiscarded = getStatValue( "packetsDiscarded");
+    this.jitter = getStatValue( "jitter");
+    this.bytesReceived = getStatValue( "bytesReceived");
   }
 
   public Double getPacketsReceived() {
-    return parseDouble(packetsReceived);
+    return valueOf(packetsReceived);
   }
 
   public Double getPacketsLost() {
-    return parseDouble(packetsLost);
+    return valueOf(packetsLost);
   }
 
   public Double getPacketsDiscarded() {
-    return parseDouble(packetsDiscarded);
+    return valueOf(packetsDiscarded);
   }
 
   public Double getBytesReceived() {
-    return parseDouble(bytesReceived);
+    return valueOf(bytesReceived);
   }
 
   public Double getJitter() {
-    return 1000*parseDouble(jitter);
+    return 1000*valueOf(jitter);
   }
 
   @Override
   public JsonObjectBuilder getJsonObjectBuilder() {
     return super.getJsonObjectBuilder()
-        .add("packetsReceived", this.packetsReceived)
-        .add("packetsLost", this.packetsLost)
-        .add("packetsDiscarded", this.packetsDiscarded)
-        .add("jitter", this.jitter)
-        .add("bytesReceived", this.bytesReceived);
+        .add("packetsReceived", format(this.packetsReceived))
+        .add("packetsLost", format(this.packetsLost))
+        .add("packetsDiscarded", format(this.packetsDiscarded))
+        .add("jitter", format(this.jitter))
+        .add("bytesReceived", format(this.bytesReceived));
   }
   
 }
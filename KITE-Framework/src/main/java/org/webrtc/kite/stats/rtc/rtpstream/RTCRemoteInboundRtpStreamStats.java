@@ -24,17 +24,17 @@ import javax.json.JsonObjectBuilder;
  */
 public class RTCRemoteInboundRtpStreamStats extends RTCInboundRtpStreamStats {
   protected final String localId;
-  protected final String bytesReceived;
-  protected final String  roundTripTime;
+  protected final double bytesReceived;
+  protected final double roundTripTime;
 
 
 
 
   public RTCRemoteInboundRtpStreamStats(Map statObject) {
     super(statObject);
-    this.localId = getStatByName( "localId");
-    this.bytesReceived = getStatByName( "bytesReceived");
-    this. roundTripTime = getStatByName( " roundTripTime");
+    this.localId = getStatByName( "localId").intern();
+    this.bytesReceived = getStatValue( "bytesReceived");
+    this.roundTripTime = getStatValue( "roundTripTime");
   }
 
   public String getLocalId() {
@@ -42,19 +42,19 @@ public class RTCRemoteInboundRtpStreamStats extends RTCInboundRtpStreamStats {
   }
 
   public Double getBytesReceived() {
-    return parseDouble(bytesReceived);
+    return valueOf(bytesReceived);
   }
 
   public Double getRoundTripTime() {
-    return parseDouble(roundTripTime);
+    return valueOf(roundTripTime);
   }
 
   @Override
   public JsonObjectBuilder getJsonObjectBuilder() {
     return super.getJsonObjectBuilder()
         .add("localId", this.localId)
-        .add("bytesReceived", this.bytesReceived)
-        .add(" roundTripTime", this. roundTripTime);
+        .add("bytesReceived", format(this.bytesReceived))
+        .add("roundTripTime", format(this.roundTripTime));
   }
 
 
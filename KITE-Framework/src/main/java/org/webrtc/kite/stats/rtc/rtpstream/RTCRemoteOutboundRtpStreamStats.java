@@ -31,7 +31,7 @@ public class RTCRemoteOutboundRtpStreamStats extends RTCOutboundRtpStreamStats {
 
   public RTCRemoteOutboundRtpStreamStats(Map statObject) {
     super(statObject);
-    this.localId = getStatByName( "localId");
+    this.localId = getStatByName( "localId").intern();
     this.remoteTimestamp = getStatByName( "remoteTimestamp");
   }
 
@@ -18,6 +18,7 @@ package org.webrtc.kite.stats.rtc.rtpstream;
 
 import javax.json.JsonObjectBuilder;
 import java.util.Map;
+import org.webrtc.kite.stats.rtc.RTCMediaKind;
 import org.webrtc.kite.stats.rtc.RTCSingleStatObject;
 import org.webrtc.kite.stats.rtc.msource.RTCMediaSourceStats;
 
@@ -26,7 +27,7 @@ import org.webrtc.kite.stats.rtc.msource.RTCMediaSourceStats;
  */
 public class RTCRtpStreamStats extends RTCSingleStatObject {
   protected final String codecId;
-  protected final String kind;
+  protected final RTCMediaKind kind;
   protected final String ssrc;
   protected final String transportId;
 //  protected RTCMediaSourceStats mediaSourceStats;
@@ -34,9 +35,9 @@ public class RTCRtpStreamStats extends RTCSingleStatObject {
   public RTCRtpStreamStats(Map statObject) {
     super(statObject);
     this.ssrc = getStatByName( "ssrc");
-    this.kind = getStatByName( "kind");
-    this.transportId = getStatByName( "transportId");
-    this.codecId = getStatByName( "codecId");
+    this.kind = RTCMediaKind.fromString(getStatByName( "kind"));
+    this.transportId = getStatByName( "transportId").intern();
+    this.codecId = getStatByName( "codecId").intern();
   }
 
   public String getCodecId() {
@@ -44,6 +45,10 @@ public class RTCRtpStreamStats extends RTCSingleStatObject {
   }
 
   public String getKind() {
+    return kind.toString();
+  }
+
+  public RTCMediaKind getMediaKind() {
     return kind;
   }
 
@@ -51,8 +56,13 @@ public class RTCRtpStreamStats extends RTCSingleStatObject {
     return ssrc;
   }
   
+  /**
+   * Gets the raw map decoded from getStats().
+   *
+   * @return the raw map, or null once it has been released
+   */
   public Map getStatObject() {
-    return statObject;
+    return getSource();
   }
   
   public String getTransportId() {
@@ -73,10 +83,10 @@ public class RTCRtpStreamStats extends RTCSingleStatObject {
   public JsonObjectBuilder getJsonObjectBuilder() {
     return super.getJsonObjectBuilder()
         .add("ssrc", this.ssrc)
-        .add("kind", this.kind)
+        .add("kind", this.kind.toString())
         .add("transportId", this.transportId)
         .add("codecId", this.codecId)
-        .add("timestamp", this.timestamp);
+        .add("timestamp", formatTimestamp());
   }
   
   public boolean isEmpty() {
@@ -23,28 +23,28 @@ import javax.json.JsonObjectBuilder;
  * Represent RTCRtpStreamStats, outbound and inbound, sent and received.
  */
 public class RTCSentRtpStreamStats extends RTCRtpStreamStats {
-  private final String packetsSent;
-  private final String bytesSent;
+  private final double packetsSent;
+  private final double bytesSent;
 
   public RTCSentRtpStreamStats(Map statObject) {
     super(statObject);
-    this.packetsSent = getStatByName( "packetsSent");
-    this.bytesSent = getStatByName( "bytesSent");
+    this.packetsSent = getStatValue( "packetsSent");
+    this.bytesSent = getStatValue( "bytesSent");
   }
 
   public double getPacketsSent() {
-    return parseDouble(packetsSent);
+    return valueOf(packetsSent);
   }
 
   public double getBytesSent() {
-    return parseDouble(bytesSent);
+    return valueOf(bytesSent);
   }
 
   @Override
   public JsonObjectBuilder getJsonObjectBuilder() {
     return super.getJsonObjectBuilder()
-        .add("packetsSent", this.packetsSent)
-        .add("bytesSent", this.bytesSent);
+        .add("packetsSent", format(this.packetsSent))
+        .add("bytesSent", format(this.bytesSent));
   }
   
 }
@@ -41,6 +41,7 @@ public class InitClientWebDriverStep extends TestStep {
     } catch (KiteGridException e) {
       this.report.setStatus(Status.FAILED);
       this.webDriver = null;
+      this.client.setGridFailure(true);
       logger.error("Exception while populating webdriver: " + client.getName() + "\r\n" + getStackTrace(e));
       reporter.textAttachment(this.report, "KiteGridException", getStackTrace(e), "plain");
       StatusDetails details = new StatusDetails();
@@ -32,16 +32,17 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import javax.json.JsonArray;
 import javax.json.JsonObject;
 import javax.json.JsonValue;
 import org.openqa.selenium.WebDriver;
+import org.webrtc.kite.KiteScheduler;
+import org.webrtc.kite.WebDriverPool;
 import org.webrtc.kite.config.client.BrowserSpecs;
 import org.webrtc.kite.config.client.Client;
+import org.webrtc.kite.config.paas.Paas;
 import org.webrtc.kite.config.test.TestConfig;
 import org.webrtc.kite.config.test.Tuple;
 import org.webrtc.kite.exception.KiteGridException;
@@ -69,6 +70,7 @@ public abstract class KiteBaseTest extends ArrayList<TestRunner> implements Step
   protected Tuple tuple;
   protected int tupleSize;
   protected int currentIteration = 0;
+  protected int attempt = 1;
   protected String url;
   protected Reporter reporter;
   protected RoomManager roomManager;
@@ -82,6 +84,7 @@ public abstract class KiteBaseTest extends ArrayList<TestRunner> implements Step
   private int expectedTestDuration = 60; //in minutes
   private boolean fastRampUp = false;
   private boolean finished = false;
+  private volatile boolean setupAborted = false;
   private boolean loopRooms = false;
   private int maxUsersPerRoom = 1;
   private List<StepPhase> phases = new ArrayList<>();
@@ -94,25 +97,44 @@ public abstract class KiteBaseTest extends ArrayList<TestRunner> implements Step
 
   /**
    * Creates the TestRunners and add them to the testRunners list.
+   * For an interop test, the creation stops at the first WebDriver that could not be created:
+   * the creations pending are cancelled, and the WebDrivers already created are quit right away,
+   * since the test would be skipped anyway.
    */
   protected void createTestRunners() throws IOException, KiteTestException {
     try {
       if (multiThread) {
         //creates the TestRunner in parallel
         List<TestRunnerCreator> creatorList = new ArrayList<>();
+        List<Paas> paasList = new ArrayList<>();
         for (int index = 0; index < this.tuple.size(); index++) {
           creatorList.add(new TestRunnerCreator(this.tuple.get(index), this, isLoadTest ? (this.currentIteration + index) : index));
+          paasList.add(this.tuple.get(index).getPaas());
         }
-        ExecutorService executorService = Executors.newFixedThreadPool(creatorList.size());
-        List<Future<TestRunner>> futureList = executorService.invokeAll(creatorList,
-          expectedTestDuration, TimeUnit.MINUTES);
-        executorService.shutdown();
+        List<Future<TestRunner>> futureList = KiteScheduler.getInstance().invokeAllTogether(creatorList, paasList,
+          expectedTestDuration, TimeUnit.MINUTES,
+          isLoadTest ? null : runner -> runner == null || runner.getWebDriver() == null);
         for (Future<TestRunner> future : futureList) {
-          this.add(future.get());
+          if (setupAborted && future.isCancelled()) {
+            continue;
+          }
+          TestRunner runner = future.get();
+          if (runner != null) {
+            this.add(runner);
+          }
         }
       } else {
-        for (int index = 0; index < this.tuple.size(); index++) {
-          this.add(new TestRunner(this.tuple.get(index), this, index));
+        for (int index = 0; index < this.tuple.size() && !setupAborted; index++) {
+          TestRunner runner = new TestRunner(this.tuple.get(index), this, index);
+          this.add(runner);
+          if (!isLoadTest && runner.getWebDriver() == null) {
+            abortSetup();
+          }
+        }
+      }
+      if (setupAborted) {
+        for (Client client : this.tuple.getClients()) {
+          quitWebDriver(client);
         }
       }
       this.tupleSize = size();
@@ -214,7 +236,9 @@ public abstract class KiteBaseTest extends ArrayList<TestRunner> implements Step
       Runtime.getRuntime().addShutdownHook(new Thread(() -> emergencyTerminate(stepPhase)));
       logger.info("Creating runners");
       createTestRunners();
-      getInfoFromNavigator();
+      if (!setupAborted) {
+        getInfoFromNavigator();
+      }
       setStepPhaseToRunner(stepPhase); // set phase for runner
       initStep.setStatus(Status.PASSED);
       if(!closeDrivers) {
@@ -247,7 +271,7 @@ public abstract class KiteBaseTest extends ArrayList<TestRunner> implements Step
         terminateStep.setStartTimestamp();
         if (stepPhase.isLastPhase() && !jsTest) {
           logger.info("Terminating, quiting webdriver");
-          WebDriverUtils.closeDrivers(this.tuple.getWebDrivers());
+          WebDriverPool.getInstance().release(this.tuple);
         }
 
         terminateStep.setStopTimestamp();
@@ -279,10 +303,12 @@ public abstract class KiteBaseTest extends ArrayList<TestRunner> implements Step
     logger.info("Starting the execution of the test runners in parallel " + stepPhase.getName());
     expectedTestDuration = Math.max(expectedTestDuration, size() * 2);
     if (size() > 0) {
-      ExecutorService executorService = Executors.newFixedThreadPool(size());
+      List<Paas> paasList = new ArrayList<>();
+      for (TestRunner runner : this) {
+        paasList.add(runner.getClient() == null ? null : runner.getClient().getPaas());
+      }
       List<Future<Object>> futureList =
-          executorService.invokeAll(this, expectedTestDuration, TimeUnit.MINUTES);
-      executorService.shutdown();
+          KiteScheduler.getInstance().invokeAllTogether(this, paasList, expectedTestDuration, TimeUnit.MINUTES);
       for (Future<Object> future : futureList) {
         future.get();
       }
@@ -325,7 +351,9 @@ public abstract class KiteBaseTest extends ArrayList<TestRunner> implements Step
     }
     phaseReport.addLabel("suite", suite.getName());
     phaseReport.addLabel("parentSuite", this.parentSuite);
-    phaseReport.setName(stepPhase.getName() + generateTestCaseName() + " - " + this.currentIteration);
+    phaseReport.setName(stepPhase.getName() + generateTestCaseName() + " - " + this.currentIteration
+        + (this.attempt > 1 ? " (attempt " + this.attempt + ")" : ""));
+    phaseReport.addLabel("attempt", "" + this.attempt);
     this.suite.addChild(phaseReport.getUuid());
     this.reports.put(stepPhase, phaseReport);
     logger.info("Finished filling out initial report for phase " + stepPhase.getName());
@@ -802,6 +830,41 @@ public abstract class KiteBaseTest extends ArrayList<TestRunner> implements Step
     }
   }
 
+  /**
+   * Stops the creation of the WebDrivers of the tuple, after one of them could not be created.
+   */
+  void abortSetup() {
+    if (!this.setupAborted) {
+      this.setupAborted = true;
+      logger.warn("Could not create a WebDriver of the tuple, not creating the others");
+    }
+  }
+
+  /**
+   * Checks whether the creation of the WebDrivers of the tuple was stopped.
+   *
+   * @return true if stopped
+   */
+  boolean isSetupAborted() {
+    return this.setupAborted;
+  }
+
+  /**
+   * Quits the WebDriver of a client, if created, to free its slot on the grid.
+   *
+   * @param client the client
+   */
+  void quitWebDriver(Client client) {
+    WebDriver webDriver = client.getWebDriver();
+    if (webDriver != null) {
+      try {
+        webDriver.quit();
+      } catch (Exception e) {
+        logger.warn("Could not quit the WebDriver of " + client + ": " + e.getLocalizedMessage());
+      }
+    }
+  }
+
   public boolean hasWebdriverIssue () {
     if (this.isLoadTest) {
       for (TestRunner runner : this) {
@@ -824,6 +887,15 @@ public abstract class KiteBaseTest extends ArrayList<TestRunner> implements Step
     this.currentIteration = currentIteration;
   }
 
+  /**
+   * Sets the attempt of this test for its tuple, 1 for the first one, shown in the report.
+   *
+   * @param attempt the attempt
+   */
+  public void setAttempt(int attempt) {
+    this.attempt = attempt;
+  }
+
   public void setGenerateReport(boolean generateReport) {
     this.generateReport = generateReport;
   }
@@ -21,6 +21,7 @@ import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import org.openqa.selenium.WebDriver;
+import org.webrtc.kite.KiteMetrics;
 import org.webrtc.kite.config.client.Client;
 import org.webrtc.kite.config.test.TestConfig;
 import org.webrtc.kite.exception.KiteGridException;
@@ -176,27 +177,39 @@ public class TestRunner extends ArrayList<TestStep> implements Callable<Object>,
       this.reports.get(stepPhase).setStatus(Status.SKIPPED);
     }
 
-    for (TestStep step : this) {
-      if (this.webDriver != null) {
-        if (this.test.isLoadTest) {
-          if (step.getStepPhase().equals(StepPhase.ALL) || step.getStepPhase().equals(stepPhase)) {
-            step.processTestStep(stepPhase, this.reports.get(stepPhase), testConfig.isLoadTest());
-          }
-        } else {
-          if (!this.test.hasWebdriverIssue()) {
-            step.processTestStep(stepPhase, this.reports.get(stepPhase), testConfig.isLoadTest());
+    KiteMetrics.getInstance().increment(KiteMetrics.RUNNERS, stepPhase.getName());
+    try {
+      for (TestStep step : this) {
+        if (this.webDriver != null) {
+          if (this.test.isLoadTest) {
+            if (step.getStepPhase().equals(StepPhase.ALL) || step.getStepPhase().equals(stepPhase)) {
+              processTestStep(step);
+            }
           } else {
-            step.skipTestStep(stepPhase, this.reports.get(stepPhase), testConfig.isLoadTest());
+            if (!this.test.hasWebdriverIssue()) {
+              processTestStep(step);
+            } else {
+              step.skipTestStep(stepPhase, this.reports.get(stepPhase), testConfig.isLoadTest());
+            }
           }
+        } else {
+          step.skipTestStep(stepPhase, this.reports.get(stepPhase), testConfig.isLoadTest());
         }
-      } else {
-        step.skipTestStep(stepPhase, this.reports.get(stepPhase), testConfig.isLoadTest());
       }
+    } finally {
+      KiteMetrics.getInstance().decrement(KiteMetrics.RUNNERS, stepPhase.getName());
     }
     this.reports.get(stepPhase).setStopTimestamp();
     return null;
   }
 
+  private void processTestStep(TestStep step) {
+    long start = System.nanoTime();
+    step.processTestStep(stepPhase, this.reports.get(stepPhase), testConfig.isLoadTest());
+    KiteMetrics.getInstance().observe(KiteMetrics.STEP_DURATION, (System.nanoTime() - start) / 1e9,
+        step.getClass().getSimpleName());
+  }
+
   public void terminate() {
     try {
       for (TestStep step : this) {
@@ -345,4 +358,8 @@ public class TestRunner extends ArrayList<TestStep> implements Callable<Object>,
     return client;
   }
 
+  public TestConfig getTestConfig() {
+    return testConfig;
+  }
+
 }
@@ -30,7 +30,24 @@ public class TestRunnerCreator implements Callable<TestRunner> {
   public TestRunner call() throws Exception {
     logger.info("Start creating the TestRunner id " + id + " in " + interval + "ms");
     waitAround(interval);
-    return new TestRunner(client, test, id);
+    if (test.isSetupAborted()) {
+      return null;
+    }
+    TestRunner runner = null;
+    try {
+      runner = new TestRunner(client, test, id);
+      return runner;
+    } finally {
+      if (!test.isLoadTest) {
+        if (runner == null || runner.getWebDriver() == null) {
+          test.abortSetup();
+        }
+        if (test.isSetupAborted()) {
+          // created while the others were cancelled
+          test.quitWebDriver(client);
+        }
+      }
+    }
   }
   
 }
@@ -0,0 +1,144 @@
+package org.webrtc.kite.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.webrtc.kite.stats.StatsUtils.buildStatSummary;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.json.JsonObject;
+import org.junit.Test;
+import org.webrtc.kite.stats.rtc.RTCStatList;
+import org.webrtc.kite.stats.rtc.RTCStats;
+
+/**
+ * Feeds the same getStats() samples to an RTCStatList keeping its samples in columns and to one
+ * keeping only a running summary (streamingSummary), and checks that buildStatSummary gives the
+ * same summary for both.
+ */
+public class StatSummaryParityTest {
+
+  @Test
+  public void columnsAndRunningSummaryGiveTheSameSummary() {
+    List<RTCStats> samples = new ArrayList<>();
+    long start = 1561708049000L;
+    for (int index = 0; index < 6; index++) {
+      long timestamp = start + index * 1000L + (index % 2) * 13;
+      // no selected candidate pair in the first sample, the outbound video starts with the third one
+      samples.add(newSample(timestamp, index, index > 0, index >= 2));
+    }
+
+    RTCStatList columns = new RTCStatList();
+    RTCStatList runningSummary = new RTCStatList();
+    runningSummary.setRetainSamples(false);
+    for (RTCStats stats : samples) {
+      columns.add(stats);
+      runningSummary.add(stats);
+    }
+    assertTrue(columns.isRetainingSamples());
+    assertFalse(runningSummary.isRetainingSamples());
+
+    JsonObject expected = buildStatSummary(columns);
+    assertTrue(expected.getBoolean("Connected"));
+    assertEquals(2, expected.getJsonObject("inbound").getJsonArray("audio").size()
+        + expected.getJsonObject("inbound").getJsonArray("video").size());
+    assertEquals(2, expected.getJsonObject("outbound").getJsonArray("audio").size()
+        + expected.getJsonObject("outbound").getJsonArray("video").size());
+    assertEquals(expected, buildStatSummary(runningSummary));
+  }
+
+  @Test
+  public void emptyListsGiveTheSameSummary() {
+    RTCStatList runningSummary = new RTCStatList();
+    runningSummary.setRetainSamples(false);
+    assertEquals(buildStatSummary(new RTCStatList()), buildStatSummary(runningSummary));
+  }
+
+  /**
+   * Builds a sample with inbound and outbound audio and video streams, the candidate pair and the
+   * remote candidate, as returned by getStats(), the counters growing with the index.
+   */
+  private static RTCStats newSample(long timestamp, int index, boolean withCandidatePair, boolean withOutboundVideo) {
+    List<Map> statArray = new ArrayList<>();
+    Map<String, Object> inboundAudio = newStream("RTCInboundRTPAudioStream_3333556480", "inbound-rtp", "audio",
+        timestamp, 1000 + 1500 * index, 10 + 15 * index);
+    inboundAudio.put("packetsLost", (long) index / 2);
+    inboundAudio.put("jitter", 0.004 + 0.003 * (index % 3));
+    inboundAudio.put("audioLevel", 0.25 * (index % 4));
+    statArray.add(inboundAudio);
+
+    Map<String, Object> inboundVideo = newStream("RTCInboundRTPVideoStream_3131213379", "inbound-rtp", "video",
+        timestamp, 20000 + 95000 * index, 30 + 90 * index);
+    inboundVideo.put("packetsLost", (long) index);
+    inboundVideo.put("framesReceived", 30L * index);
+    inboundVideo.put("framesDecoded", 29L * index);
+    inboundVideo.put("framesDropped", (long) index / 3);
+    statArray.add(inboundVideo);
+
+    statArray.add(newStream("RTCOutboundRTPAudioStream_1193046", "outbound-rtp", "audio", timestamp,
+        1100 + 1400 * index, 11 + 14 * index));
+    if (withOutboundVideo) {
+      Map<String, Object> outboundVideo = newStream("RTCOutboundRTPVideoStream_2863311530", "outbound-rtp", "video",
+          timestamp, 18000 + 88000 * index, 25 + 85 * index);
+      outboundVideo.put("framesSent", 30L * index);
+      outboundVideo.put("framesEncoded", 30L * index);
+      outboundVideo.put("framesPerSecond", 28.0 + index % 3);
+      statArray.add(outboundVideo);
+    }
+
+    if (withCandidatePair) {
+      Map<String, Object> candidatePair = new HashMap<>();
+      candidatePair.put("id", "RTCIceCandidatePair_abc_def");
+      candidatePair.put("type", "candidate-pair");
+      candidatePair.put("timestamp", (double) timestamp);
+      candidatePair.put("localCandidateId", "RTCIceCandidate_abc");
+      candidatePair.put("remoteCandidateId", "RTCIceCandidate_def");
+      candidatePair.put("state", "succeeded");
+      candidatePair.put("nominated", true);
+      candidatePair.put("bytesSent", 20000L * index);
+      candidatePair.put("bytesReceived", 21000L * index);
+      candidatePair.put("totalRoundTripTime", 0.05 * index);
+      candidatePair.put("currentRoundTripTime", 0.02 + 0.01 * (index % 3));
+      statArray.add(candidatePair);
+    }
+
+    Map<String, Object> remoteCandidate = new HashMap<>();
+    remoteCandidate.put("id", "RTCIceCandidate_def");
+    remoteCandidate.put("type", "remote-candidate");
+    remoteCandidate.put("timestamp", (double) timestamp);
+    remoteCandidate.put("address", "203.0.113." + (10 + index));
+    remoteCandidate.put("port", 50000L);
+    remoteCandidate.put("protocol", "udp");
+    remoteCandidate.put("candidateType", "srflx");
+    statArray.add(remoteCandidate);
+
+    RTCStats stats = new RTCStats("pc", statArray);
+    stats.setTimestamp(timestamp);
+    stats.setRoomUrl("https://appr.tc/r/12345");
+    stats.setBatch(1);
+    return stats;
+  }
+
+  private static Map<String, Object> newStream(String id, String type, String kind, long timestamp, long bytes,
+      long packets) {
+    Map<String, Object> stream = new HashMap<>();
+    stream.put("id", id);
+    stream.put("type", type);
+    stream.put("timestamp", (double) timestamp);
+    stream.put("ssrc", 3333556480L);
+    stream.put("kind", kind);
+    stream.put("transportId", "RTCTransport_0_1");
+    stream.put("codecId", "RTCCodec_0_111");
+    if (type.startsWith("inbound")) {
+      stream.put("bytesReceived", bytes);
+      stream.put("packetsReceived", packets);
+    } else {
+      stream.put("bytesSent", bytes);
+      stream.put("packetsSent", packets);
+    }
+    return stream;
+  }
+}
@@ -0,0 +1,125 @@
+package org.webrtc.kite.stats.rtc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.json.Json;
+import javax.json.JsonObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Writes a few getStats() samples with RTCStatsBinaryWriter and checks that RTCStatsBinaryReader
+ * reads back the same JSON and timestamps.
+ */
+public class RTCStatsBinaryWriterTest {
+
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  @Test
+  public void samplesAndFooterAreReadBack() throws IOException {
+    List<RTCStats> samples = new ArrayList<>();
+    // the counters grow, the audio level and jitter go up and down
+    samples.add(newSample(1561708049000L, 1000, 10, 0.5, 0.012));
+    samples.add(newSample(1561708050000L, 2500, 25, 0.25, 0.008));
+    samples.add(newSample(1561708051013L, 4100, 41, 0.75, 0.015));
+    JsonObject footer = Json.createObjectBuilder()
+        .add("Connected", true)
+        .add("Room", "https://appr.tc/r/12345")
+        .add("Region Id", "NC")
+        .build();
+
+    File file = folder.newFile("pc.kstats");
+    try (RTCStatsBinaryWriter writer = new RTCStatsBinaryWriter(file)) {
+      for (RTCStats stats : samples) {
+        writer.write(stats);
+      }
+      writer.close(footer);
+    }
+
+    try (RTCStatsBinaryReader reader = new RTCStatsBinaryReader(new FileInputStream(file))) {
+      for (RTCStats stats : samples) {
+        assertTrue(reader.next());
+        assertFalse(stats.toJson().isEmpty());
+        assertEquals(stats.getTimestamp(), reader.getTimestamp());
+        assertEquals(stats.toJson(), reader.getStats());
+      }
+      assertFalse(reader.next());
+      assertEquals(footer, reader.getFooter());
+    }
+
+    JsonObject json = RTCStatsBinaryReader.toJson(file);
+    assertEquals(samples.size(), json.getJsonArray("StatsArray").size());
+    assertTrue(json.getBoolean("Connected"));
+    assertEquals("https://appr.tc/r/12345", json.getString("Room"));
+    assertEquals("NC", json.getString("Region Id"));
+  }
+
+  @Test
+  public void emptySamplesAreSkipped() throws IOException {
+    File file = folder.newFile("empty.kstats");
+    RTCStats empty = new RTCStats("pc", new ArrayList<>());
+    RTCStats stats = newSample(1561708049000L, 1000, 10, 0.5, 0.012);
+    try (RTCStatsBinaryWriter writer = new RTCStatsBinaryWriter(file)) {
+      writer.write(empty);
+      writer.write(stats);
+    }
+
+    try (RTCStatsBinaryReader reader = new RTCStatsBinaryReader(new FileInputStream(file))) {
+      assertTrue(reader.next());
+      assertEquals(stats.toJson(), reader.getStats());
+      assertFalse(reader.next());
+      // closed without a footer
+      assertNull(reader.getFooter());
+    }
+  }
+
+  @Test(expected = IOException.class)
+  public void otherFilesAreRejected() throws IOException {
+    File file = folder.newFile("stats.json");
+    new RTCStatsBinaryReader(new FileInputStream(file)).close();
+  }
+
+  /**
+   * Builds a sample with an inbound audio stream and the peer connection, as returned by getStats().
+   */
+  private static RTCStats newSample(long timestamp, long bytesReceived, long packetsReceived,
+    double audioLevel, double jitter) {
+    Map<String, Object> inbound = new HashMap<>();
+    inbound.put("id", "RTCInboundRTPAudioStream_3333556480");
+    inbound.put("type", "inbound-rtp");
+    inbound.put("timestamp", (double) timestamp);
+    inbound.put("ssrc", 3333556480L);
+    inbound.put("kind", "audio");
+    inbound.put("transportId", "RTCTransport_0_1");
+    inbound.put("codecId", "RTCCodec_0_Inbound_111");
+    inbound.put("bytesReceived", bytesReceived);
+    inbound.put("packetsReceived", packetsReceived);
+    inbound.put("packetsLost", 0L);
+    inbound.put("jitter", jitter);
+    inbound.put("audioLevel", audioLevel);
+    Map<String, Object> peerConnection = new HashMap<>();
+    peerConnection.put("id", "RTCPeerConnection");
+    peerConnection.put("type", "peer-connection");
+    peerConnection.put("timestamp", (double) timestamp);
+    peerConnection.put("dataChannelsOpened", 0L);
+    peerConnection.put("dataChannelsClosed", 0L);
+    List<Map> statArray = new ArrayList<>();
+    statArray.add(inbound);
+    statArray.add(peerConnection);
+    RTCStats stats = new RTCStats("pc", statArray);
+    stats.setTimestamp(timestamp);
+    return stats;
+  }
+}